@@ -0,0 +1,163 @@
+package adk.selectorswitch;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.annotation.UiThreadTest;
+import android.support.test.rule.UiThreadTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v4.content.ContextCompat;
+import android.util.DisplayMetrics;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SelectorSceneParityTest draws a {@link SelectorSwitch} at {@link SelectorSwitch#LOD_FULL}
+ * and the {@link SelectorScene} of the same switch through a {@link CanvasSelectorRenderer}
+ * into two bitmaps, for every mode, and checks that they match. The switch draws through a
+ * scene of its own, so this checks what it hands the scene: its modes, theme colors and
+ * knob, and the mode and the knob's angle of each frame.
+ * <p>
+ * The view is drawn into a software layer with its shadows, so a few anti-aliased pixels
+ * are allowed to differ.
+ *
+ * @see SelectorScene
+ */
+@RunWith(AndroidJUnit4.class)
+public class SelectorSceneParityTest {
+
+    /**
+     * A custom knob: a triangle pointing towards negative X.
+     */
+    private static final String KNOB_PATH_DATA = "M-7 0L0-3V3z";
+
+    /**
+     * The largest difference in any channel for two pixels to count as the same.
+     */
+    private static final int CHANNEL_TOLERANCE = 8;
+
+    /**
+     * The fraction of pixels allowed to differ by more than {@link #CHANNEL_TOLERANCE}.
+     */
+    private static final float MAX_DIFFERENT_PIXELS = 0.01f;
+
+    @Rule
+    public final UiThreadTestRule uiThreadTestRule = new UiThreadTestRule();
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getContext();
+    }
+
+    @Test
+    @UiThreadTest
+    public void drawsTheDefaultSwitchLikeTheView() throws IllegalSelectorException {
+        assertSameForEveryMode(new SelectorSwitch(context), createScene(null));
+    }
+
+    @Test
+    @UiThreadTest
+    public void drawsACustomKnobLikeTheView() throws IllegalSelectorException {
+        SelectorSwitch selectorSwitch = new SelectorSwitch(context);
+        selectorSwitch.setKnobPathData(KNOB_PATH_DATA);
+
+        assertSameForEveryMode(selectorSwitch,
+                createScene(SelectorKnobShape.fromPathData(KNOB_PATH_DATA)));
+    }
+
+    /**
+     * Lays out the scene of a default switch, in the colors of the current theme.
+     *
+     * @param knobShape <tt>SelectorKnobShape</tt> : The outline of the knob in DP units, or
+     *                  null for the default knob.
+     * @return scene The scene of the switch.
+     * @throws IllegalSelectorException Never, as the default modes and colors are valid.
+     */
+    private SelectorScene createScene(SelectorKnobShape knobShape)
+            throws IllegalSelectorException {
+        DisplayMetrics displayMetrics = context.getResources().getDisplayMetrics();
+        return new SelectorScene(displayMetrics.density, displayMetrics.scaledDensity,
+                SelectorSwitch.DEFAULT_MODES, SelectorSwitch.DEFAULT_DIAL_COLORS, knobShape,
+                ContextCompat.getColor(context, R.color.selectorBaseColor),
+                ContextCompat.getColor(context, R.color.selectorShadowColor),
+                ContextCompat.getColor(context, R.color.selectorModeTextColor));
+    }
+
+    /**
+     * Draws the switch and the scene in every mode and compares the bitmaps.
+     *
+     * @param selectorSwitch <tt>SelectorSwitch</tt> : The switch, with its default modes.
+     * @param scene          <tt>SelectorScene</tt> : The scene of the same switch.
+     */
+    private static void assertSameForEveryMode(SelectorSwitch selectorSwitch,
+                                               SelectorScene scene) {
+        int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        selectorSwitch.measure(unspecified, unspecified);
+        assertEquals(scene.getWidth(), selectorSwitch.getMeasuredWidth());
+        assertEquals(scene.getHeight(), selectorSwitch.getMeasuredHeight());
+        selectorSwitch.layout(0, 0, scene.getWidth(), scene.getHeight());
+        selectorSwitch.setLevelOfDetail(SelectorSwitch.LOD_FULL);
+
+        Bitmap actual = Bitmap.createBitmap(scene.getWidth(), scene.getHeight(),
+                Bitmap.Config.ARGB_8888);
+        Bitmap expected = Bitmap.createBitmap(scene.getWidth(), scene.getHeight(),
+                Bitmap.Config.ARGB_8888);
+        CanvasSelectorRenderer renderer = new CanvasSelectorRenderer(new Canvas(expected));
+        try {
+            for (int mode = 0; mode < scene.getModeCount(); mode++) {
+                selectorSwitch.setMode(mode, false);
+                actual.eraseColor(0);
+                selectorSwitch.draw(new Canvas(actual));
+
+                expected.eraseColor(0);
+                scene.draw(renderer, mode);
+
+                assertSimilar("Mode " + mode, expected, actual);
+            }
+        } finally {
+            actual.recycle();
+            expected.recycle();
+        }
+    }
+
+    /**
+     * Fails unless all but {@link #MAX_DIFFERENT_PIXELS} of the pixels of the bitmaps are
+     * within {@link #CHANNEL_TOLERANCE} of each other.
+     *
+     * @param message  <tt>String</tt> : Identifies the comparison when it fails.
+     * @param expected <tt>Bitmap</tt> : The bitmap drawn from the scene.
+     * @param actual   <tt>Bitmap</tt> : The bitmap drawn by the switch.
+     */
+    private static void assertSimilar(String message, Bitmap expected, Bitmap actual) {
+        int width = expected.getWidth();
+        int height = expected.getHeight();
+        int[] expectedPixels = new int[width * height];
+        int[] actualPixels = new int[width * height];
+        expected.getPixels(expectedPixels, 0, width, 0, 0, width, height);
+        actual.getPixels(actualPixels, 0, width, 0, 0, width, height);
+
+        int different = 0;
+        for (int i = 0; i < expectedPixels.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int difference = ((expectedPixels[i] >>> shift) & 0xFF)
+                        - ((actualPixels[i] >>> shift) & 0xFF);
+                if (Math.abs(difference) > CHANNEL_TOLERANCE) {
+                    different++;
+                    break;
+                }
+            }
+        }
+        assertTrue(message + ": " + different + " of " + expectedPixels.length
+                + " pixels differ", different <= expectedPixels.length * MAX_DIFFERENT_PIXELS);
+    }
+}
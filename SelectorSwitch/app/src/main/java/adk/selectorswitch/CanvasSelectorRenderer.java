@@ -0,0 +1,255 @@
+package adk.selectorswitch;
+
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PaintFlagsDrawFilter;
+import android.graphics.Path;
+import android.support.annotation.NonNull;
+
+/**
+ * CanvasSelectorRenderer is the Android backend of {@link SelectorRenderer}: it draws a
+ * {@link SelectorScene} onto an android.graphics.Canvas. It holds every paint a switch is
+ * drawn with, built once: a fill without a shadow, a few fills with the shadows in use, the
+ * text, the knob's line at {@link SelectorScene#LOD_MINIMAL} and the knob's sprite. Only
+ * their colors change between shapes, and the path of the last knob drawn and the width of
+ * the last text measured are kept, so drawing a scene again doesn't allocate.
+ * <p>
+ * Shadows drawn with a shadow layer need a software layer, or API 28 and later, on a
+ * hardware accelerated canvas.
+ *
+ * @see SelectorScene#draw(SelectorRenderer, SelectorScene.Frame)
+ */
+
+public final class CanvasSelectorRenderer implements SelectorRenderer {
+
+    /**
+     * The number of shadows kept with a paint of their own; a switch uses two, one for the
+     * base and one for the knob.
+     */
+    private static final int SHADOW_PAINT_COUNT = 2;
+
+    /**
+     * Turns anti-aliasing off for everything drawn at {@link SelectorScene#LOD_MINIMAL}.
+     */
+    private static final PaintFlagsDrawFilter NO_ANTI_ALIAS_FILTER =
+            new PaintFlagsDrawFilter(Paint.ANTI_ALIAS_FLAG, 0);
+
+    /**
+     * Stores the canvas being drawn onto.
+     */
+    private Canvas canvas;
+
+    /**
+     * Fills the shapes without a shadow.
+     */
+    private final Paint fillPaint;
+
+    /**
+     * Fills the shapes with a shadow, one paint per shadow radius and color, replaced in
+     * turn when another shadow is needed.
+     */
+    private final Paint[] shadowPaints = new Paint[SHADOW_PAINT_COUNT];
+    private final float[] shadowRadii = new float[SHADOW_PAINT_COUNT];
+    private final int[] shadowColors = new int[SHADOW_PAINT_COUNT];
+    private int nextShadowPaint;
+
+    /**
+     * Writes the text.
+     */
+    private final Paint textPaint;
+
+    /**
+     * Draws lines.
+     */
+    private final Paint linePaint;
+
+    /**
+     * Draws the knob's sprite, with bitmap filtering.
+     */
+    private final Paint spritePaint;
+
+    /**
+     * The matrix the knob's sprite is rotated with.
+     */
+    private final Matrix spriteMatrix;
+
+    /**
+     * The sprite of the last knob drawn from a sprite.
+     */
+    private SelectorKnobSprite knobSprite;
+
+    /**
+     * The knob shape whose path is kept in {@link #knobPath}.
+     */
+    private SelectorKnobShape knobShape;
+
+    /**
+     * The path of the {@link #knobShape}, about the origin.
+     */
+    private final Path knobPath;
+
+    /**
+     * The last text measured, at what size, and its width.
+     */
+    private String measuredText;
+    private float measuredTextSize;
+    private float measuredWidth;
+
+    /**
+     * Creates a renderer without a canvas; set one with {@link #setCanvas(Canvas)} before
+     * drawing.
+     */
+    public CanvasSelectorRenderer() {
+        this.fillPaint = SelectorUtil.createPaintFromColor(SelectorGeometry.BASE_COLOR,
+                Paint.Style.FILL, false, 0, 0);
+        this.textPaint = SelectorUtil.createPaintFromColor(SelectorGeometry.MODE_TEXT_COLOR,
+                Paint.Style.FILL, false, 0, 0);
+        this.linePaint = SelectorUtil.createPaintFromColor(SelectorGeometry.BASE_COLOR,
+                Paint.Style.STROKE, false, 0, 0);
+        this.spritePaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        this.spriteMatrix = new Matrix();
+        this.knobPath = new Path();
+    }
+
+    /**
+     * Creates a renderer that draws onto the given canvas.
+     *
+     * @param canvas <tt>Canvas</tt> : The canvas to draw on.
+     */
+    public CanvasSelectorRenderer(@NonNull Canvas canvas) {
+        this();
+        this.canvas = canvas;
+    }
+
+    /**
+     * Points the renderer at another canvas, keeping its paints and the path of the knob.
+     *
+     * @param canvas <tt>Canvas</tt> : The canvas to draw on.
+     */
+    public void setCanvas(@NonNull Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    @Override
+    public void drawCircle(float centerX, float centerY, float radius, int color,
+                           float shadowRadius, int shadowColor) {
+        canvas.drawCircle(centerX, centerY, radius, obtainFill(color, shadowRadius, shadowColor));
+    }
+
+    @Override
+    public void drawSector(float left, float top, float right, float bottom, float startAngle,
+                           float sweepAngle, int color) {
+        canvas.drawArc(left, top, right, bottom, startAngle, sweepAngle, true,
+                obtainFill(color, 0, 0));
+    }
+
+    @Override
+    public void drawKnob(SelectorKnobShape shape, float pivotX, float pivotY, float angle,
+                         int color, float shadowRadius, int shadowColor) {
+        if (!shape.equals(knobShape)) {
+            knobPath.rewind();
+            shape.appendTo(new SelectorKnob.PathSink(knobPath), 0, 0);
+            knobShape = shape;
+        }
+        Paint paint = obtainFill(color, shadowRadius, shadowColor);
+        int saveCount = canvas.save();
+        canvas.translate(pivotX, pivotY);
+        canvas.rotate(angle, 0, 0);
+        canvas.drawPath(knobPath, paint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * Draws the knob from a sprite shared through the {@link SelectorCacheManager}, which is
+     * only rasterized when the knob's shape, color or shadow changes.
+     */
+    @Override
+    public void drawKnobSprite(SelectorKnobShape shape, float pivotX, float pivotY,
+                               float angle, int color, float shadowRadius, int shadowColor) {
+        int radius = (int) shadowRadius;
+        if (knobSprite == null || !knobSprite.matches(shape, color, radius, shadowColor)) {
+            knobSprite = SelectorKnobSprite.obtain(shape, color, radius, shadowColor);
+        }
+        knobSprite.draw(canvas, spriteMatrix, spritePaint, pivotX, pivotY, angle);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY,
+                         float strokeWidth, int color) {
+        linePaint.setColor(color);
+        linePaint.setStrokeWidth(strokeWidth);
+        canvas.drawLine(startX, startY, stopX, stopY, linePaint);
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom,
+                              float cornerRadius, int color, float shadowRadius,
+                              int shadowColor) {
+        canvas.drawRoundRect(left, top, right, bottom, cornerRadius, cornerRadius,
+                obtainFill(color, shadowRadius, shadowColor));
+    }
+
+    @Override
+    public float measureText(String text, float textSize) {
+        if (!text.equals(measuredText) || textSize != measuredTextSize) {
+            textPaint.setTextSize(textSize);
+            measuredWidth = textPaint.measureText(text);
+            measuredText = text;
+            measuredTextSize = textSize;
+        }
+        return measuredWidth;
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float textSize, int color) {
+        textPaint.setTextSize(textSize);
+        textPaint.setColor(color);
+        canvas.drawText(text, x, y, textPaint);
+    }
+
+    @Override
+    public void setAntiAlias(boolean antiAlias) {
+        canvas.setDrawFilter(antiAlias ? null : NO_ANTI_ALIAS_FILTER);
+    }
+
+    /**
+     * Returns the paint for a shape of the given color and shadow: the {@link #fillPaint}
+     * without a shadow, or the paint kept for the shadow, which takes the place of the
+     * oldest one if the shadow is new.
+     *
+     * @param color        <tt>int</tt> : The color of the shape.
+     * @param shadowRadius <tt>float</tt> : The radius of the shape's shadow.
+     * @param shadowColor  <tt>int</tt> : The color of the shape's shadow.
+     * @return paint The paint, set to the color.
+     */
+    private Paint obtainFill(int color, float shadowRadius, int shadowColor) {
+        if (shadowRadius <= 0) {
+            fillPaint.setColor(color);
+            return fillPaint;
+        }
+
+        Paint paint = null;
+        for (int i = 0; i < SHADOW_PAINT_COUNT; i++) {
+            if (shadowPaints[i] != null && shadowRadii[i] == shadowRadius
+                    && shadowColors[i] == shadowColor) {
+                paint = shadowPaints[i];
+                break;
+            }
+        }
+        if (paint == null) {
+            int slot = nextShadowPaint;
+            nextShadowPaint = (slot + 1) % SHADOW_PAINT_COUNT;
+            if (shadowPaints[slot] == null) {
+                shadowPaints[slot] = SelectorUtil.createPaintFromColor(color, Paint.Style.FILL,
+                        false, 0, 0);
+            }
+            paint = shadowPaints[slot];
+            paint.setShadowLayer(shadowRadius, 0, 0, shadowColor);
+            shadowRadii[slot] = shadowRadius;
+            shadowColors[slot] = shadowColor;
+        }
+        paint.setColor(color);
+        return paint;
+    }
+}
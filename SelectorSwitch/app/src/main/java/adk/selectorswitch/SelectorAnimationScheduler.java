@@ -0,0 +1,132 @@
+package adk.selectorswitch;
+
+import android.support.annotation.UiThread;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SelectorAnimationScheduler runs the animations of every {@link SelectorSwitch} in the
+ * process from a single Choreographer frame callback. When a preset changes many switches
+ * at once, all of their animations advance together in one pass per frame, in step with
+ * the display, instead of each one running on its own thread. The frame callback is only
+ * posted while at least one animation is active.
+ * <p>
+ * The scheduler lives on the UI thread; animations must be scheduled from it.
+ *
+ * @see SelectorKnobAnimator
+ */
+
+final class SelectorAnimationScheduler implements Choreographer.FrameCallback {
+
+    /**
+     * An animation driven by the scheduler. Each animation object is meant to be reused
+     * for every run of the animation it stands for, so running it allocates nothing.
+     */
+    abstract static class Animation {
+
+        /**
+         * Stores whether the animation is in the scheduler's list of active animations.
+         */
+        private boolean scheduled;
+
+        /**
+         * Advances the animation to the given frame.
+         *
+         * @param frameTimeNanos <tt>long</tt> : The time the frame started rendering, in
+         *                       System.nanoTime() time.
+         * @return running True if the animation needs more frames.
+         */
+        abstract boolean doFrame(long frameTimeNanos);
+    }
+
+    /**
+     * The scheduler of the process.
+     */
+    private static SelectorAnimationScheduler instance;
+
+    /**
+     * The active animations, in the order they were scheduled.
+     */
+    private final List<Animation> animations = new ArrayList<>();
+
+    /**
+     * Stores whether the frame callback has been posted for the next frame.
+     */
+    private boolean framePosted;
+
+    private SelectorAnimationScheduler() {
+    }
+
+    /**
+     * Returns the scheduler of the process, creating it on first use.
+     *
+     * @return instance The scheduler.
+     */
+    @UiThread
+    static SelectorAnimationScheduler getInstance() {
+        if (instance == null) {
+            instance = new SelectorAnimationScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Adds an animation to the next frame, if it isn't active already. The animation keeps
+     * getting frames until its {@link Animation#doFrame(long)} returns false.
+     *
+     * @param animation <tt>Animation</tt> : The animation to run.
+     */
+    @UiThread
+    void schedule(Animation animation) {
+        if (!animation.scheduled) {
+            animation.scheduled = true;
+            animations.add(animation);
+        }
+        if (!framePosted) {
+            framePosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Returns the number of active animations.
+     *
+     * @return count The number of animations waiting for a frame.
+     */
+    @UiThread
+    int getActiveCount() {
+        return animations.size();
+    }
+
+    /**
+     * Advances every active animation to the frame in a single pass and drops those that
+     * have finished, compacting the list in place. Animations scheduled during the pass
+     * get their first frame in the same pass.
+     *
+     * @param frameTimeNanos <tt>long</tt> : The time the frame started rendering.
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        framePosted = false;
+
+        int kept = 0;
+        for (int i = 0; i < animations.size(); i++) {
+            Animation animation = animations.get(i);
+            if (animation.doFrame(frameTimeNanos)) {
+                animations.set(kept++, animation);
+            } else {
+                animation.scheduled = false;
+            }
+        }
+        for (int i = animations.size() - 1; i >= kept; i--) {
+            animations.remove(i);
+        }
+
+        if (!animations.isEmpty() && !framePosted) {
+            framePosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package adk.selectorswitch;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.annotation.AnyThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * SelectorAssetCache keeps the rendered dial layer of a switch, that is its base with the
+ * shadow and the colored dial, in app-private cache files so that it is rasterized once per
+ * configuration rather than on every cold start. The layer doesn't depend on the selected
+ * mode, so {@link SelectorBitmapRenderer} and {@link SelectorSwitch} only have to draw the
+ * knob and the mode's name over it.
+ * <p>
+ * Each layer is stored in its own file, named after a hash of everything the layer is drawn
+ * from: the densities, the size, the number of modes, their colors and the base and shadow
+ * colors of the theme, so switches in a light and a dark theme get layers of their own. A file holds a fixed header followed by the raw ARGB_8888 pixels:
+ * <pre>
+ *   int   magic      0x53454C44
+ *   int   version    {@value #FORMAT_VERSION}
+ *   long  hash       the configuration hash
+ *   int   width
+ *   int   height
+ *   byte  pixels[width * height * 4]
+ * </pre>
+ * Files are read and written through memory-mapped I/O, so loading a layer is a single copy
+ * from the page cache into the bitmap. A file whose header doesn't match the configuration,
+ * for example after a change of format, is ignored and rewritten. Recently used layers are
+ * also kept in memory by the {@link SelectorCacheManager}, within its bitmap budget.
+ * <p>
+ * Loading and saving touch the disk; call {@link #getDialLayer(SelectorSpec)} off the UI
+ * thread. A switch only takes a layer from memory while drawing, and loads it on an
+ * executor otherwise.
+ *
+ * @see SelectorBitmapRenderer#setAssetCache(SelectorAssetCache)
+ * @see SelectorSwitch#setAssetCache(SelectorAssetCache, java.util.concurrent.Executor)
+ */
+public final class SelectorAssetCache {
+
+    /**
+     * The version of the file format, part of every header and of every hash.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * The name of the directory within the app's cache directory holding the files.
+     */
+    public static final String DIRECTORY_NAME = "selector-switch";
+
+    private static final int MAGIC = 0x53454C44;
+    private static final int HEADER_SIZE = 24;
+    private static final String FILE_SUFFIX = ".dial";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    /**
+     * The directory holding the files.
+     */
+    private final File directory;
+
+    /**
+     * Creates a cache in the {@value #DIRECTORY_NAME} directory of the app's cache directory.
+     *
+     * @param context <tt>Context</tt> : A context used to find the app's cache directory.
+     */
+    public SelectorAssetCache(@NonNull Context context) {
+        this(new File(context.getCacheDir(), DIRECTORY_NAME));
+    }
+
+    /**
+     * Creates a cache in the given directory, which is created when the first layer is
+     * saved.
+     *
+     * @param directory <tt>File</tt> : The directory to keep the files in.
+     */
+    public SelectorAssetCache(@NonNull File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the dial layer of the switch described by the spec, from memory, from its
+     * file or, failing both, freshly rendered and saved for the next time. The returned
+     * bitmap is shared and must not be modified or recycled.
+     *
+     * @param spec <tt>SelectorSpec</tt> : The spec of the switch.
+     * @return layer A bitmap of {@link SelectorSpec#getWidth()} by
+     * {@link SelectorSpec#getHeight()} pixels.
+     */
+    @WorkerThread
+    public Bitmap getDialLayer(@NonNull SelectorSpec spec) {
+        return getDialLayer(spec.getScene(), spec.getScreenDensity(), spec.getScaledDensity());
+    }
+
+    /**
+     * Returns the dial layer of a scene, from memory, from its file or, failing both,
+     * freshly rendered and saved for the next time. The returned bitmap is shared and must
+     * not be modified or recycled.
+     *
+     * @param scene         <tt>SelectorScene</tt> : The scene of the switch.
+     * @param screenDensity <tt>float</tt> : The density the scene was laid out for.
+     * @param scaledDensity <tt>float</tt> : The scaled density the scene was laid out for.
+     * @return layer A bitmap of {@link SelectorScene#getWidth()} by
+     * {@link SelectorScene#getHeight()} pixels.
+     */
+    @WorkerThread
+    Bitmap getDialLayer(SelectorScene scene, float screenDensity, float scaledDensity) {
+        long hash = hashOf(scene, screenDensity, scaledDensity);
+        SelectorCacheManager cacheManager = SelectorCacheManager.getInstance();
+        LayerKey key = new LayerKey(directory, hash);
+        Bitmap layer = (Bitmap) cacheManager.getBitmapBacked(key);
+        if (layer != null) {
+            return layer;
+        }
+
+        File file = fileOf(hash);
+        layer = load(file, hash, scene.getWidth(), scene.getHeight());
+        if (layer == null) {
+            layer = Bitmap.createBitmap(scene.getWidth(), scene.getHeight(),
+                    Bitmap.Config.ARGB_8888);
+            SelectorBitmapRenderer.drawDialLayer(new Canvas(layer), scene);
+            save(file, hash, layer);
+        }
+        cacheManager.putBitmapBacked(key, layer, layer);
+        return layer;
+    }
+
+    /**
+     * Returns the dial layer of a scene if it is in memory, without touching the disk, so
+     * that it can be called while drawing.
+     *
+     * @param scene         <tt>SelectorScene</tt> : The scene of the switch.
+     * @param screenDensity <tt>float</tt> : The density the scene was laid out for.
+     * @param scaledDensity <tt>float</tt> : The scaled density the scene was laid out for.
+     * @return layer The shared layer, or null if it has to be loaded with
+     * {@link #getDialLayer(SelectorScene, float, float)}.
+     */
+    @AnyThread
+    Bitmap peekDialLayer(SelectorScene scene, float screenDensity, float scaledDensity) {
+        LayerKey key = new LayerKey(directory, hashOf(scene, screenDensity, scaledDensity));
+        return (Bitmap) SelectorCacheManager.getInstance().getBitmapBacked(key);
+    }
+
+    /**
+     * Deletes every file of the cache. Layers already in memory stay there until the
+     * {@link SelectorCacheManager} evicts them.
+     */
+    @WorkerThread
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(FILE_SUFFIX)
+                        || file.getName().endsWith(TEMP_SUFFIX)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Hashes everything the dial layer of a scene is drawn from, along with the format
+     * version, with 64-bit FNV-1a.
+     *
+     * @param scene         <tt>SelectorScene</tt> : The scene of the switch.
+     * @param screenDensity <tt>float</tt> : The density the scene was laid out for.
+     * @param scaledDensity <tt>float</tt> : The scaled density the scene was laid out for.
+     * @return hash The configuration hash.
+     */
+    static long hashOf(SelectorScene scene, float screenDensity, float scaledDensity) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = mix(hash, FORMAT_VERSION);
+        hash = mix(hash, Float.floatToIntBits(screenDensity));
+        hash = mix(hash, Float.floatToIntBits(scaledDensity));
+        hash = mix(hash, scene.getWidth());
+        hash = mix(hash, scene.getHeight());
+        hash = mix(hash, scene.getBaseColor());
+        hash = mix(hash, scene.getShadowColor());
+        hash = mix(hash, scene.getModeCount());
+        for (int i = 0; i < scene.getModeCount(); i++) {
+            hash = mix(hash, scene.getDialColor(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Mixes the four bytes of a value into an FNV-1a hash.
+     *
+     * @param hash  <tt>long</tt> : The hash so far.
+     * @param value <tt>int</tt> : The value to mix in.
+     * @return hash The updated hash.
+     */
+    private static long mix(long hash, int value) {
+        for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+            hash ^= (value >>> shift) & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the file a layer is kept in.
+     *
+     * @param hash <tt>long</tt> : The configuration hash of the layer.
+     * @return file The file, which may not exist.
+     */
+    private File fileOf(long hash) {
+        return new File(directory, String.format("%016x", hash) + FILE_SUFFIX);
+    }
+
+    /**
+     * Maps a layer's file and copies its pixels into a new bitmap.
+     *
+     * @param file   <tt>File</tt> : The file of the layer.
+     * @param hash   <tt>long</tt> : The expected configuration hash.
+     * @param width  <tt>int</tt> : The expected width of the layer.
+     * @param height <tt>int</tt> : The expected height of the layer.
+     * @return layer The layer, or null if there is no valid file for it.
+     */
+    private static Bitmap load(File file, long hash, int width, int height) {
+        long length = HEADER_SIZE + (long) width * height * BYTES_PER_PIXEL;
+        if (file.length() != length) {
+            return null;
+        }
+
+        RandomAccessFile input = null;
+        try {
+            input = new RandomAccessFile(file, "r");
+            MappedByteBuffer buffer =
+                    input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (!readHeader(buffer, hash, width, height)) {
+                return null;
+            }
+            Bitmap layer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            layer.copyPixelsFromBuffer(buffer);
+            return layer;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    /**
+     * Writes a layer to a temporary file through a memory mapping and then renames it over
+     * the layer's file, so that a reader never sees a partly written file. Failures only
+     * mean the layer is rendered again next time.
+     *
+     * @param file  <tt>File</tt> : The file of the layer.
+     * @param hash  <tt>long</tt> : The configuration hash of the layer.
+     * @param layer <tt>Bitmap</tt> : The rendered layer.
+     */
+    private void save(File file, long hash, Bitmap layer) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+
+        long length = HEADER_SIZE + (long) layer.getWidth() * layer.getHeight() * BYTES_PER_PIXEL;
+        File temp = null;
+        RandomAccessFile output = null;
+        try {
+            // Each writer has its own temporary file, so threads saving the same layer at
+            // once don't interleave.
+            temp = File.createTempFile(file.getName(), TEMP_SUFFIX, directory);
+            output = new RandomAccessFile(temp, "rw");
+            output.setLength(length);
+            MappedByteBuffer buffer =
+                    output.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            writeHeader(buffer, hash, layer.getWidth(), layer.getHeight());
+            layer.copyPixelsToBuffer(buffer);
+            buffer.force();
+        } catch (IOException e) {
+            closeQuietly(output);
+            if (temp != null) {
+                temp.delete();
+            }
+            return;
+        }
+        closeQuietly(output);
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Writes the header of a layer's file, leaving the buffer positioned at the pixels.
+     *
+     * @param buffer <tt>ByteBuffer</tt> : The buffer to write to.
+     * @param hash   <tt>long</tt> : The configuration hash of the layer.
+     * @param width  <tt>int</tt> : The width of the layer.
+     * @param height <tt>int</tt> : The height of the layer.
+     */
+    static void writeHeader(ByteBuffer buffer, long hash, int width, int height) {
+        buffer.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(hash)
+                .putInt(width)
+                .putInt(height);
+    }
+
+    /**
+     * Reads the header of a layer's file, leaving the buffer positioned at the pixels if it
+     * is valid.
+     *
+     * @param buffer <tt>ByteBuffer</tt> : The buffer to read from.
+     * @param hash   <tt>long</tt> : The expected configuration hash.
+     * @param width  <tt>int</tt> : The expected width of the layer.
+     * @param height <tt>int</tt> : The expected height of the layer.
+     * @return valid True if the header is complete, of the current format and describes
+     * the expected layer.
+     */
+    static boolean readHeader(ByteBuffer buffer, long hash, int width, int height) {
+        return buffer.remaining() >= HEADER_SIZE
+                && buffer.getInt() == MAGIC && buffer.getInt() == FORMAT_VERSION
+                && buffer.getLong() == hash && buffer.getInt() == width
+                && buffer.getInt() == height;
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Identifies a layer kept in memory by the directory of its cache and its hash.
+     */
+    private static final class LayerKey {
+
+        private final File directory;
+        private final long hash;
+
+        LayerKey(File directory, long hash) {
+            this.directory = directory;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LayerKey)) return false;
+            LayerKey that = (LayerKey) o;
+            return hash == that.hash && directory.equals(that.directory);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * directory.hashCode() + (int) (hash ^ (hash >>> 32));
+        }
+    }
+}
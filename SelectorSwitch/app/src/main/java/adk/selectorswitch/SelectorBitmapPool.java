@@ -0,0 +1,89 @@
+package adk.selectorswitch;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SelectorBitmapPool is a small, bounded pool of mutable bitmaps used by
+ * {@link SelectorBitmapRenderer} so that rendering the same switch sizes over and over
+ * reuses bitmaps instead of allocating new ones. The pool is safe to use from several
+ * threads at once.
+ *
+ * @see SelectorBitmapRenderer
+ */
+class SelectorBitmapPool {
+
+    /**
+     * Stores the maximum number of bitmaps kept in the pool.
+     */
+    private final int maxSize;
+
+    /**
+     * Stores the bitmaps currently available for reuse.
+     */
+    private final List<Bitmap> bitmaps;
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param maxSize <tt>int</tt> : The maximum number of bitmaps kept in the pool. Bitmaps
+     *                released into a full pool are recycled.
+     */
+    SelectorBitmapPool(int maxSize) {
+        this.maxSize = maxSize;
+        this.bitmaps = new ArrayList<>(maxSize);
+    }
+
+    /**
+     * Returns a cleared bitmap of the given size, reusing a pooled one if there is one.
+     *
+     * @param width  <tt>int</tt> : Width of the bitmap in pixels.
+     * @param height <tt>int</tt> : Height of the bitmap in pixels.
+     * @return bitmap A transparent ARGB_8888 bitmap of the given size.
+     */
+    Bitmap acquire(int width, int height) {
+        synchronized (this) {
+            for (int i = bitmaps.size() - 1; i >= 0; i--) {
+                Bitmap bitmap = bitmaps.get(i);
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    bitmaps.remove(i);
+                    bitmap.eraseColor(Color.TRANSPARENT);
+                    return bitmap;
+                }
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Hands a bitmap back to the pool. The bitmap is recycled if the pool is already full.
+     * The caller must not use the bitmap after releasing it.
+     *
+     * @param bitmap <tt>Bitmap</tt> : The bitmap to release.
+     */
+    void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        synchronized (this) {
+            if (bitmaps.size() < maxSize) {
+                bitmaps.add(bitmap);
+                return;
+            }
+        }
+        bitmap.recycle();
+    }
+
+    /**
+     * Recycles every bitmap in the pool.
+     */
+    synchronized void clear() {
+        for (Bitmap bitmap : bitmaps) {
+            bitmap.recycle();
+        }
+        bitmaps.clear();
+    }
+}
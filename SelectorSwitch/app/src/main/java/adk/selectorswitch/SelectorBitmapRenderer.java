@@ -0,0 +1,213 @@
+package adk.selectorswitch;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * SelectorBitmapRenderer draws a {@link SelectorSwitch} in a given mode into a bitmap,
+ * without inflating a view. Everything it needs comes from a {@link SelectorSpec}, whose
+ * {@link SelectorScene} is drawn with a {@link CanvasSelectorRenderer} just as the view
+ * draws its own, so rendering can happen on any thread, for example to make thumbnails for
+ * notifications, widgets or reports.
+ * <p>
+ * Bitmaps are taken from a bounded {@link SelectorBitmapPool}; hand them back with
+ * {@link #release(Bitmap)} once they have been used so they can be reused by later renders.
+ * Bulk jobs can be spread over an executor with {@link #renderAll(SelectorSpec, ExecutorService)}.
+ * With a {@link SelectorAssetCache} set, the base and the dial are copied from a layer
+ * rendered once per configuration and kept on disk, and only the knob and the mode's name
+ * are drawn for each render.
+ *
+ * @see SelectorSpec
+ * @see SelectorBitmapPool
+ */
+public final class SelectorBitmapRenderer {
+
+    /**
+     * The default number of bitmaps kept for reuse.
+     */
+    public static final int DEFAULT_POOL_SIZE = 16;
+
+    /**
+     * Stores the pool the rendered bitmaps are taken from.
+     */
+    private final SelectorBitmapPool bitmapPool;
+
+    /**
+     * Stores the cache the dial layers are taken from, or null to draw them every time.
+     */
+    private volatile SelectorAssetCache assetCache;
+
+    /**
+     * Creates a renderer with a pool of {@value #DEFAULT_POOL_SIZE} bitmaps.
+     */
+    public SelectorBitmapRenderer() {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Creates a renderer with a pool of the given size.
+     *
+     * @param maxPooledBitmaps <tt>int</tt> : The maximum number of bitmaps kept for reuse.
+     */
+    public SelectorBitmapRenderer(int maxPooledBitmaps) {
+        this.bitmapPool = new SelectorBitmapPool(maxPooledBitmaps);
+    }
+
+    /**
+     * Sets the cache the base and the dial are taken from, instead of being drawn for every
+     * render.
+     *
+     * @param assetCache <tt>SelectorAssetCache</tt> : The cache of dial layers, or null to
+     *                   draw the whole switch every time.
+     */
+    public void setAssetCache(@Nullable SelectorAssetCache assetCache) {
+        this.assetCache = assetCache;
+    }
+
+    /**
+     * Renders the switch described by the spec, with the given mode selected.
+     *
+     * @param spec <tt>SelectorSpec</tt> : The spec of the switch.
+     * @param mode <tt>int</tt> : The index of the selected mode.
+     * @return bitmap A bitmap of {@link SelectorSpec#getWidth()} by
+     * {@link SelectorSpec#getHeight()} pixels.
+     * @throws IllegalSelectorException If the spec has no such mode.
+     */
+    @WorkerThread
+    public Bitmap render(@NonNull SelectorSpec spec, int mode) throws IllegalSelectorException {
+        checkMode(spec, mode);
+        Bitmap bitmap = bitmapPool.acquire(spec.getWidth(), spec.getHeight());
+        Canvas canvas = new Canvas(bitmap);
+        CanvasSelectorRenderer renderer = new CanvasSelectorRenderer(canvas);
+        SelectorAssetCache cache = assetCache;
+        if (cache != null) {
+            canvas.drawBitmap(cache.getDialLayer(spec), 0, 0, null);
+            spec.getScene().draw(renderer, new SelectorScene.Frame()
+                    .setMode(mode)
+                    .setKnobAngle(mode * spec.getModeSweepingAngle())
+                    .setLayers(SelectorScene.LAYER_KNOB));
+        } else {
+            spec.getScene().draw(renderer, mode);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Renders every mode of the switch described by the spec side by side, from the first
+     * mode on the left to the last mode on the right, into a single sprite sheet.
+     *
+     * @param spec <tt>SelectorSpec</tt> : The spec of the switch.
+     * @return bitmap A bitmap of {@link SelectorSpec#getModeCount()} frames, each one
+     * {@link SelectorSpec#getWidth()} pixels wide.
+     */
+    @WorkerThread
+    public Bitmap renderSpriteSheet(@NonNull SelectorSpec spec) {
+        int modeCount = spec.getModeCount();
+        Bitmap bitmap = bitmapPool.acquire(spec.getWidth() * modeCount, spec.getHeight());
+        Canvas canvas = new Canvas(bitmap);
+        CanvasSelectorRenderer renderer = new CanvasSelectorRenderer(canvas);
+        for (int mode = 0; mode < modeCount; mode++) {
+            spec.getScene().draw(renderer, mode);
+            canvas.translate(spec.getWidth(), 0);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Renders every mode of the switch described by the spec in parallel on the given
+     * executor.
+     *
+     * @param spec     <tt>SelectorSpec</tt> : The spec of the switch.
+     * @param executor <tt>ExecutorService</tt> : The executor to render on.
+     * @return futures One future per mode, in the order of the modes.
+     * @see #render(SelectorSpec, int)
+     */
+    public List<Future<Bitmap>> renderAll(@NonNull SelectorSpec spec,
+                                          @NonNull ExecutorService executor) {
+        int modeCount = spec.getModeCount();
+        List<SelectorSpec> specs = new ArrayList<>(modeCount);
+        int[] modes = new int[modeCount];
+        for (int mode = 0; mode < modeCount; mode++) {
+            specs.add(spec);
+            modes[mode] = mode;
+        }
+        return renderAll(specs, modes, executor);
+    }
+
+    /**
+     * Renders a batch of (spec, mode) pairs in parallel on the given executor.
+     *
+     * @param specs    <tt>List<SelectorSpec></tt> : The specs of the switches.
+     * @param modes    <tt>int[]</tt> : The selected mode for each spec.
+     * @param executor <tt>ExecutorService</tt> : The executor to render on.
+     * @return futures One future per spec, in the order of the specs.
+     * @see #render(SelectorSpec, int)
+     */
+    public List<Future<Bitmap>> renderAll(@NonNull List<SelectorSpec> specs, @NonNull int[] modes,
+                                          @NonNull ExecutorService executor) {
+        List<Future<Bitmap>> futures = new ArrayList<>(specs.size());
+        for (int i = 0; i < specs.size(); i++) {
+            final SelectorSpec spec = specs.get(i);
+            final int mode = modes[i];
+            futures.add(executor.submit(new Callable<Bitmap>() {
+                @Override
+                public Bitmap call() throws IllegalSelectorException {
+                    return render(spec, mode);
+                }
+            }));
+        }
+        return futures;
+    }
+
+    /**
+     * Hands a rendered bitmap back so that it can be reused by later renders. The bitmap
+     * must not be used after it has been released.
+     *
+     * @param bitmap <tt>Bitmap</tt> : A bitmap returned by this renderer.
+     */
+    public void release(@NonNull Bitmap bitmap) {
+        bitmapPool.release(bitmap);
+    }
+
+    /**
+     * Recycles every bitmap currently kept for reuse.
+     */
+    public void clearPool() {
+        bitmapPool.clear();
+    }
+
+    /**
+     * Checks that the spec has the given mode.
+     *
+     * @param spec <tt>SelectorSpec</tt> : The spec of the switch.
+     * @param mode <tt>int</tt> : The index of the mode.
+     * @throws IllegalSelectorException If the spec has no such mode.
+     */
+    private static void checkMode(SelectorSpec spec, int mode) throws IllegalSelectorException {
+        if (mode < 0 || mode >= spec.getModeCount()) {
+            throw new IllegalSelectorException("No mode " + mode + " in the selector dial!");
+        }
+    }
+
+    /**
+     * Draws the parts of the switch that don't depend on the selected mode: the base with
+     * its shadow and the dial.
+     *
+     * @param canvas <tt>Canvas</tt> : The canvas to draw on.
+     * @param scene  <tt>SelectorScene</tt> : The scene of the switch.
+     * @see SelectorAssetCache
+     */
+    static void drawDialLayer(Canvas canvas, SelectorScene scene) {
+        scene.draw(new CanvasSelectorRenderer(canvas),
+                new SelectorScene.Frame().setLayers(SelectorScene.LAYER_DIAL));
+    }
+}
@@ -0,0 +1,259 @@
+package adk.selectorswitch;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.util.LruCache;
+
+/**
+ * SelectorCacheManager bounds every rendering cache of the selector switches in the process:
+ * the knob sprites, the dial layers, the pre-built specs and the knob shapes. Entries are
+ * kept in two least-recently-used caches with separate byte budgets, one for entries backed
+ * by bitmaps and one for everything else, so a long-running app can't grow them without
+ * bound.
+ * <p>
+ * The manager also listens for memory pressure. Bitmap-backed entries are the most
+ * expensive to keep and the cheapest to rebuild per byte, so they are dropped first:
+ * <ul>
+ * <li>While the app is running and memory is getting low, the bitmap cache is trimmed to
+ * half its budget, and emptied once memory is critical.</li>
+ * <li>When the UI is hidden, the bitmap cache is emptied.</li>
+ * <li>When the app is in the background, the other cache is trimmed to half its budget as
+ * well, and both are emptied if the app is about to be killed.</li>
+ * </ul>
+ * Evicted bitmaps are not recycled, since a switch may still be drawing them; they are
+ * simply no longer shared. The memo of blended colors in {@link SelectorColorBlender}, a
+ * fixed table of 32 ramps of a few KiB in all, is kept outside both budgets.
+ * <p>
+ * The manager registers itself with the application the first time a switch is
+ * constructed. It is safe to use from any thread.
+ *
+ * @see SelectorKnobSprite
+ * @see SelectorAssetCache
+ * @see SelectorSpecCache
+ * @see SelectorKnobShapeCache
+ */
+public final class SelectorCacheManager implements ComponentCallbacks2 {
+
+    /**
+     * The default budget of the bitmap-backed entries, in bytes.
+     */
+    public static final int DEFAULT_BITMAP_BUDGET = 4 * 1024 * 1024;
+
+    /**
+     * The default budget of the other entries, in bytes.
+     */
+    public static final int DEFAULT_OBJECT_BUDGET = 256 * 1024;
+
+    private static final SelectorCacheManager instance = new SelectorCacheManager();
+
+    private final Cache bitmapCache = new Cache(DEFAULT_BITMAP_BUDGET);
+    private final Cache objectCache = new Cache(DEFAULT_OBJECT_BUDGET);
+
+    /**
+     * Stores whether the manager has been registered for memory callbacks.
+     */
+    private volatile boolean registered;
+
+    private SelectorCacheManager() {
+    }
+
+    /**
+     * Returns the manager of the process.
+     *
+     * @return instance The manager.
+     */
+    public static SelectorCacheManager getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registers the manager with the application for memory callbacks, once.
+     *
+     * @param context <tt>Context</tt> : Any context of the application.
+     */
+    public void register(@NonNull Context context) {
+        if (registered) {
+            return;
+        }
+        synchronized (this) {
+            if (!registered) {
+                registered = true;
+                context.getApplicationContext().registerComponentCallbacks(this);
+            }
+        }
+    }
+
+    /**
+     * Sets the byte budgets of the caches, evicting the least recently used entries if a
+     * cache is over its new budget.
+     *
+     * @param bitmapBudget <tt>int</tt> : The budget of the bitmap-backed entries in bytes.
+     * @param objectBudget <tt>int</tt> : The budget of the other entries in bytes.
+     */
+    public void setBudgets(int bitmapBudget, int objectBudget) {
+        bitmapCache.resize(bitmapBudget);
+        objectCache.resize(objectBudget);
+    }
+
+    /**
+     * Returns the number of lookups that found their entry.
+     *
+     * @return hits The number of hits in both caches.
+     */
+    public int getHitCount() {
+        return bitmapCache.hitCount() + objectCache.hitCount();
+    }
+
+    /**
+     * Returns the number of lookups that didn't find their entry.
+     *
+     * @return misses The number of misses in both caches.
+     */
+    public int getMissCount() {
+        return bitmapCache.missCount() + objectCache.missCount();
+    }
+
+    /**
+     * Returns the number of entries evicted, whether to stay within a budget or because
+     * of memory pressure.
+     *
+     * @return evictions The number of evictions from both caches.
+     */
+    public int getEvictionCount() {
+        return bitmapCache.evictionCount() + objectCache.evictionCount();
+    }
+
+    /**
+     * Returns the bytes taken by the bitmap-backed entries.
+     *
+     * @return bytes The size of the bitmap cache.
+     */
+    public int getBitmapBytes() {
+        return bitmapCache.size();
+    }
+
+    /**
+     * Returns the bytes taken by the other entries, as estimated by their caches.
+     *
+     * @return bytes The size of the object cache.
+     */
+    public int getObjectBytes() {
+        return objectCache.size();
+    }
+
+    /**
+     * Evicts every entry of both caches.
+     */
+    public void clear() {
+        bitmapCache.evictAll();
+        objectCache.evictAll();
+    }
+
+    /**
+     * Evicts every entry that isn't backed by a bitmap.
+     */
+    void clearObjects() {
+        objectCache.evictAll();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_COMPLETE) {
+            clear();
+        } else if (level >= TRIM_MEMORY_BACKGROUND) {
+            bitmapCache.evictAll();
+            objectCache.trimToSize(objectCache.maxSize() / 2);
+        } else if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            // Critical while running, or the UI has been hidden.
+            bitmapCache.evictAll();
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            bitmapCache.trimToSize(bitmapCache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * Returns a bitmap-backed entry, marking it as the most recently used.
+     *
+     * @param key <tt>Object</tt> : The key of the entry.
+     * @return value The value, or null if it isn't cached.
+     */
+    Object getBitmapBacked(Object key) {
+        Entry entry = bitmapCache.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Adds an entry backed by a bitmap.
+     *
+     * @param key    <tt>Object</tt> : The key of the entry.
+     * @param value  <tt>Object</tt> : The value of the entry.
+     * @param bitmap <tt>Bitmap</tt> : The bitmap backing the value, whose size is charged
+     *               to the bitmap budget.
+     */
+    void putBitmapBacked(Object key, Object value, Bitmap bitmap) {
+        bitmapCache.put(key, new Entry(value, bitmap.getAllocationByteCount()));
+    }
+
+    /**
+     * Returns an entry that isn't backed by a bitmap, marking it as the most recently used.
+     *
+     * @param key <tt>Object</tt> : The key of the entry.
+     * @return value The value, or null if it isn't cached.
+     */
+    Object get(Object key) {
+        Entry entry = objectCache.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Adds an entry that isn't backed by a bitmap.
+     *
+     * @param key   <tt>Object</tt> : The key of the entry.
+     * @param value <tt>Object</tt> : The value of the entry.
+     * @param bytes <tt>int</tt> : An estimate of the bytes retained by the value.
+     */
+    void put(Object key, Object value, int bytes) {
+        objectCache.put(key, new Entry(value, bytes));
+    }
+
+    /**
+     * A cached value along with the bytes charged for it.
+     */
+    private static final class Entry {
+
+        final Object value;
+        final int bytes;
+
+        Entry(Object value, int bytes) {
+            this.value = value;
+            this.bytes = Math.max(1, bytes);
+        }
+    }
+
+    /**
+     * An LRU cache of entries bounded by their total size in bytes.
+     */
+    private static final class Cache extends LruCache<Object, Entry> {
+
+        Cache(int maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        protected int sizeOf(Object key, Entry entry) {
+            return entry.bytes;
+        }
+    }
+}
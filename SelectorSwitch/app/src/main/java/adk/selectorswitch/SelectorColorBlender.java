@@ -0,0 +1,215 @@
+package adk.selectorswitch;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SelectorColorBlender blends colors for the dial of the {@link SelectorSwitch}. The blending
+ * is done in the OKLab color space, in which equal steps look like equal changes in color,
+ * and is written in plain Java so that no JNI calls or temporary arrays are needed.
+ * <p>
+ * Ramps of blended colors are memoized by their starting color, ending color and size,
+ * since the same ramps are generated again and again whenever the number of modes or the
+ * colors of a dial are changed. Each ramp is cached both as an array and as an unmodifiable
+ * list of colors, boxed once, so once a ramp is cached looking it up allocates nothing in
+ * either form.
+ *
+ * @see SelectorUtil#generateBlendingColors(int, int, int)
+ */
+class SelectorColorBlender {
+
+    /**
+     * Number of ramps kept in the cache. Has to be a power of two. With at most
+     * {@link SelectorGeometry#MAX_MODES} colors per ramp, the cache holds a few KiB, which
+     * is why it isn't charged to the {@link SelectorCacheManager}.
+     */
+    private static final int CACHE_SIZE = 32;
+
+    /**
+     * Lock guarding the cache, as specs may be built on several threads at once.
+     */
+    private static final Object CACHE_LOCK = new Object();
+
+    /**
+     * Starting colors, ending colors and sizes of the cached ramps, indexed by slot.
+     */
+    private static final int[] cachedStartingColors = new int[CACHE_SIZE];
+    private static final int[] cachedEndingColors = new int[CACHE_SIZE];
+    private static final int[] cachedCounts = new int[CACHE_SIZE];
+
+    /**
+     * The cached ramps, indexed by slot.
+     */
+    private static final int[][] cachedRamps = new int[CACHE_SIZE][];
+
+    /**
+     * The cached ramps as unmodifiable lists, indexed by slot, or null until a ramp is
+     * first asked for as a list.
+     */
+    @SuppressWarnings("unchecked")
+    private static final List<Integer>[] cachedLists = new List[CACHE_SIZE];
+
+    private SelectorColorBlender() {
+    }
+
+    /**
+     * Returns the ramp of colors blending from the starting to the ending color, both
+     * included, computing it only if it isn't in the cache yet. The returned array is
+     * shared and must not be modified.
+     *
+     * @param count         <tt>int</tt> : Number of colors in the ramp.
+     * @param startingColor <tt>int</tt> : Color to start blending from.
+     * @param endingColor   <tt>int</tt> : Color to finally blend into.
+     * @return ramp The blended colors.
+     */
+    static int[] getBlendingRamp(int count, int startingColor, int endingColor) {
+        synchronized (CACHE_LOCK) {
+            return cachedRamps[findSlot(count, startingColor, endingColor)];
+        }
+    }
+
+    /**
+     * Returns the ramp of colors blending from the starting to the ending color as an
+     * unmodifiable list, computing and boxing it only if it isn't in the cache yet.
+     *
+     * @param count         <tt>int</tt> : Number of colors in the ramp.
+     * @param startingColor <tt>int</tt> : Color to start blending from.
+     * @param endingColor   <tt>int</tt> : Color to finally blend into.
+     * @return ramp The blended colors.
+     * @see #getBlendingRamp(int, int, int)
+     */
+    static List<Integer> getBlendingList(int count, int startingColor, int endingColor) {
+        synchronized (CACHE_LOCK) {
+            int slot = findSlot(count, startingColor, endingColor);
+            List<Integer> list = cachedLists[slot];
+            if (list == null) {
+                list = Collections.unmodifiableList(SelectorUtil.arrayToList(cachedRamps[slot]));
+                cachedLists[slot] = list;
+            }
+            return list;
+        }
+    }
+
+    /**
+     * Returns the slot of the cache holding a ramp, blending the ramp into it first if it
+     * isn't there yet. Must be called with the cache locked.
+     *
+     * @param count         <tt>int</tt> : Number of colors in the ramp.
+     * @param startingColor <tt>int</tt> : Color to start blending from.
+     * @param endingColor   <tt>int</tt> : Color to finally blend into.
+     * @return slot The slot of the ramp.
+     */
+    private static int findSlot(int count, int startingColor, int endingColor) {
+        int hash = (startingColor * 31 + endingColor) * 31 + count;
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+
+        if (cachedRamps[slot] != null && cachedCounts[slot] == count
+                && cachedStartingColors[slot] == startingColor
+                && cachedEndingColors[slot] == endingColor) {
+            return slot;
+        }
+
+        int[] ramp = new int[count];
+        fillBlendingRamp(ramp, count, startingColor, endingColor);
+        cachedRamps[slot] = ramp;
+        cachedLists[slot] = null;
+        cachedCounts[slot] = count;
+        cachedStartingColors[slot] = startingColor;
+        cachedEndingColors[slot] = endingColor;
+        return slot;
+    }
+
+    /**
+     * Fills the first count entries of the given array with colors blending evenly from the
+     * starting to the ending color, both included. Allocates nothing.
+     *
+     * @param ramp          <tt>int[]</tt> : Array receiving the colors.
+     * @param count         <tt>int</tt> : Number of colors to blend.
+     * @param startingColor <tt>int</tt> : Color to start blending from.
+     * @param endingColor   <tt>int</tt> : Color to finally blend into.
+     */
+    static void fillBlendingRamp(int[] ramp, int count, int startingColor, int endingColor) {
+        if (count == 1) {
+            ramp[0] = startingColor;
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            ramp[i] = blend(startingColor, endingColor, (float) i / (count - 1));
+        }
+    }
+
+    /**
+     * Blends two colors in the OKLab color space. Allocates nothing.
+     *
+     * @param startingColor <tt>int</tt> : The color at fraction 0.
+     * @param endingColor   <tt>int</tt> : The color at fraction 1.
+     * @param fraction      <tt>float</tt> : How far to blend towards the ending color.
+     * @return color The blended color.
+     */
+    static int blend(int startingColor, int endingColor, float fraction) {
+
+        // Starting color into OKLab.
+        double r = toLinear((startingColor >> 16) & 0xFF);
+        double g = toLinear((startingColor >> 8) & 0xFF);
+        double b = toLinear(startingColor & 0xFF);
+        double l = Math.cbrt(0.4122214708 * r + 0.5363325363 * g + 0.0514459929 * b);
+        double m = Math.cbrt(0.2119034982 * r + 0.6806995451 * g + 0.1073969566 * b);
+        double s = Math.cbrt(0.0883024619 * r + 0.2817188376 * g + 0.6299787005 * b);
+        double startL = 0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s;
+        double startA = 1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s;
+        double startB = 0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s;
+
+        // Ending color into OKLab.
+        r = toLinear((endingColor >> 16) & 0xFF);
+        g = toLinear((endingColor >> 8) & 0xFF);
+        b = toLinear(endingColor & 0xFF);
+        l = Math.cbrt(0.4122214708 * r + 0.5363325363 * g + 0.0514459929 * b);
+        m = Math.cbrt(0.2119034982 * r + 0.6806995451 * g + 0.1073969566 * b);
+        s = Math.cbrt(0.0883024619 * r + 0.2817188376 * g + 0.6299787005 * b);
+        double endL = 0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s;
+        double endA = 1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s;
+        double endB = 0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s;
+
+        // Interpolate.
+        double labL = startL + (endL - startL) * fraction;
+        double labA = startA + (endA - startA) * fraction;
+        double labB = startB + (endB - startB) * fraction;
+        int alpha = (int) ((startingColor >>> 24) + ((endingColor >>> 24) - (startingColor >>> 24)) * fraction + 0.5f);
+
+        // And back into sRGB.
+        l = labL + 0.3963377774 * labA + 0.2158037573 * labB;
+        m = labL - 0.1055613458 * labA - 0.0638541728 * labB;
+        s = labL - 0.0894841775 * labA - 1.2914855480 * labB;
+        l = l * l * l;
+        m = m * m * m;
+        s = s * s * s;
+
+        return (alpha << 24)
+                | (fromLinear(4.0767416621 * l - 3.3077115913 * m + 0.2309699292 * s) << 16)
+                | (fromLinear(-1.2684380046 * l + 2.6097574011 * m - 0.3413193965 * s) << 8)
+                | fromLinear(-0.0041960863 * l - 0.7034186147 * m + 1.7076147010 * s);
+    }
+
+    /**
+     * Converts an sRGB channel into linear light.
+     *
+     * @param channel <tt>int</tt> : The channel, from 0 to 255.
+     * @return linear The linear value, from 0 to 1.
+     */
+    private static double toLinear(int channel) {
+        double c = channel / 255.0;
+        return c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+
+    /**
+     * Converts linear light into an sRGB channel, clamping colors outside the sRGB gamut.
+     *
+     * @param linear <tt>double</tt> : The linear value.
+     * @return channel The channel, from 0 to 255.
+     */
+    private static int fromLinear(double linear) {
+        double c = linear <= 0.0031308 ? 12.92 * linear : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+        int channel = (int) Math.round(c * 255);
+        return channel < 0 ? 0 : (channel > 255 ? 255 : channel);
+    }
+}
@@ -0,0 +1,209 @@
+package adk.selectorswitch;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SelectorDebugOverlay measures how expensive a {@link SelectorSwitch} is to keep on screen
+ * and draws the figures over the switch, so that costly switches can be spotted on a real
+ * dashboard without attaching a profiler. It shows:
+ * <ul>
+ * <li>the time the last onDraw took, without the overlay itself,</li>
+ * <li>the frames drawn per second while the switch was animating,</li>
+ * <li>the invalidations per second, whether or not they led to a frame,</li>
+ * <li>whether the switch draws into a software layer, directly on a software canvas or on a
+ * hardware canvas.</li>
+ * </ul>
+ * The rates are counted over windows of one second and show the last complete window. The
+ * figures are only refreshed when the switch draws. Measuring and drawing the overlay
+ * allocate nothing.
+ *
+ * @see SelectorSwitch#setDebugOverlayEnabled(boolean)
+ */
+
+final class SelectorDebugOverlay {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The size of the overlay's text in SP units.
+     */
+    private static final int TEXT_SIZE_SP = 9;
+
+    private static final int BACKGROUND_COLOR = 0xB0000000;
+    private static final int TEXT_COLOR = Color.WHITE;
+
+    private static final int LINE_COUNT = 4;
+    private static final int LINE_LENGTH = 24;
+
+    private static final char[] DRAW = "draw ".toCharArray();
+    private static final char[] MILLIS = " ms".toCharArray();
+    private static final char[] ANIMATION = "anim ".toCharArray();
+    private static final char[] FPS = " fps".toCharArray();
+    private static final char[] IDLE = "idle".toCharArray();
+    private static final char[] INVALIDATES = "inval ".toCharArray();
+    private static final char[] PER_SECOND = "/s".toCharArray();
+    private static final char[] SOFTWARE_LAYER = "layer SW".toCharArray();
+    private static final char[] SOFTWARE_CANVAS = "canvas SW".toCharArray();
+    private static final char[] HARDWARE_CANVAS = "canvas HW".toCharArray();
+
+    private final Paint backgroundPaint;
+    private final Paint textPaint;
+    private final float lineHeight;
+    private final float padding;
+
+    /**
+     * The text of each line and its length, rebuilt in place on every draw.
+     */
+    private final char[][] lines = new char[LINE_COUNT][LINE_LENGTH];
+    private final int[] lineLengths = new int[LINE_COUNT];
+
+    private long lastDrawNanos;
+    private long windowStartNanos;
+    private int windowAnimationFrames;
+    private int windowInvalidates;
+    private int animationFps = -1;
+    private int invalidatesPerSecond;
+
+    /**
+     * Creates an overlay for a screen.
+     *
+     * @param scaledDensity <tt>float</tt> : The scaled density of the screen.
+     */
+    SelectorDebugOverlay(float scaledDensity) {
+        backgroundPaint = SelectorUtil.createPaintFromColor(BACKGROUND_COLOR, Paint.Style.FILL,
+                false, 0, 0);
+        textPaint = SelectorUtil.createPaintFromColor(TEXT_COLOR, Paint.Style.FILL,
+                false, 0, 0);
+        textPaint.setTextSize(TEXT_SIZE_SP * scaledDensity);
+        lineHeight = textPaint.descent() - textPaint.ascent();
+        padding = lineHeight / 4;
+    }
+
+    /**
+     * Counts an invalidation of the switch.
+     */
+    void onInvalidate() {
+        rollWindow(System.nanoTime());
+        windowInvalidates++;
+    }
+
+    /**
+     * Records a frame drawn by the switch.
+     *
+     * @param startNanos <tt>long</tt> : The time onDraw started.
+     * @param endNanos   <tt>long</tt> : The time onDraw finished drawing the switch.
+     * @param animating  <tt>boolean</tt> : Whether the frame was part of an animation.
+     */
+    void onDraw(long startNanos, long endNanos, boolean animating) {
+        lastDrawNanos = endNanos - startNanos;
+        rollWindow(endNanos);
+        if (animating) {
+            windowAnimationFrames++;
+        }
+    }
+
+    /**
+     * Draws the figures in the top left corner of the switch.
+     *
+     * @param canvas        <tt>Canvas</tt> : The canvas the switch was drawn on.
+     * @param softwareLayer <tt>boolean</tt> : Whether the switch draws into a software
+     *                      layer.
+     */
+    void draw(Canvas canvas, boolean softwareLayer) {
+        char[] line = lines[0];
+        int length = append(line, 0, DRAW);
+        length = appendFixed(line, length, lastDrawNanos / 10000, 2);
+        lineLengths[0] = append(line, length, MILLIS);
+
+        line = lines[1];
+        length = append(line, 0, ANIMATION);
+        if (animationFps < 0) {
+            length = append(line, length, IDLE);
+        } else {
+            length = appendFixed(line, length, animationFps, 0);
+            length = append(line, length, FPS);
+        }
+        lineLengths[1] = length;
+
+        line = lines[2];
+        length = append(line, 0, INVALIDATES);
+        length = appendFixed(line, length, invalidatesPerSecond, 0);
+        lineLengths[2] = append(line, length, PER_SECOND);
+
+        lineLengths[3] = append(lines[3], 0, softwareLayer ? SOFTWARE_LAYER
+                : canvas.isHardwareAccelerated() ? HARDWARE_CANVAS : SOFTWARE_CANVAS);
+
+        float width = 0;
+        for (int i = 0; i < LINE_COUNT; i++) {
+            width = Math.max(width, textPaint.measureText(lines[i], 0, lineLengths[i]));
+        }
+        canvas.drawRect(0, 0, width + 2 * padding, LINE_COUNT * lineHeight + 2 * padding,
+                backgroundPaint);
+        float baseline = padding - textPaint.ascent();
+        for (int i = 0; i < LINE_COUNT; i++) {
+            canvas.drawText(lines[i], 0, lineLengths[i], padding, baseline, textPaint);
+            baseline += lineHeight;
+        }
+    }
+
+    /**
+     * Publishes the counts of the current window once it is a second old and starts the
+     * next one. A window without any animation frame shows the animation as idle.
+     *
+     * @param nowNanos <tt>long</tt> : The current time.
+     */
+    private void rollWindow(long nowNanos) {
+        long elapsed = nowNanos - windowStartNanos;
+        if (elapsed < WINDOW_NANOS) {
+            return;
+        }
+        if (elapsed < 2 * WINDOW_NANOS) {
+            animationFps = windowAnimationFrames > 0
+                    ? (int) (windowAnimationFrames * WINDOW_NANOS / elapsed) : -1;
+            invalidatesPerSecond = (int) (windowInvalidates * WINDOW_NANOS / elapsed);
+        } else {
+            // Nothing happened for a while; the counts are too old to be rates.
+            animationFps = -1;
+            invalidatesPerSecond = 0;
+        }
+        windowStartNanos = nowNanos;
+        windowAnimationFrames = 0;
+        windowInvalidates = 0;
+    }
+
+    private static int append(char[] line, int length, char[] text) {
+        System.arraycopy(text, 0, line, length, text.length);
+        return length + text.length;
+    }
+
+    /**
+     * Appends a non-negative fixed-point number without allocating.
+     *
+     * @param line     <tt>char[]</tt> : The line to append to.
+     * @param length   <tt>int</tt> : The length of the line so far.
+     * @param value    <tt>long</tt> : The number, scaled by 10 to the power of decimals.
+     * @param decimals <tt>int</tt> : The number of decimal places.
+     * @return length The new length of the line.
+     */
+    private static int appendFixed(char[] line, int length, long value, int decimals) {
+        // Write the digits backwards into the end of the line, then move them into place.
+        int end = line.length;
+        int position = end;
+        int digits = 0;
+        do {
+            if (digits == decimals && decimals > 0) {
+                line[--position] = '.';
+            }
+            line[--position] = (char) ('0' + value % 10);
+            value /= 10;
+            digits++;
+        } while ((value > 0 || digits <= decimals) && position > length + 1);
+        int count = end - position;
+        System.arraycopy(line, position, line, length, count);
+        return length + count;
+    }
+}
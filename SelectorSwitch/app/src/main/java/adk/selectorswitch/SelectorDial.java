@@ -3,6 +3,7 @@ package adk.selectorswitch;
 import android.content.Context;
 import android.graphics.Paint;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -21,21 +22,6 @@ import java.util.List;
 
 class SelectorDial {
 
-    /**
-     * Dial has a default radius of {@value #DIAL_RADIUS_DP} DP units.
-     */
-    private static final int DIAL_RADIUS_DP = 14;
-
-    /**
-     * Dial should have a minimum of {@value #MIN_MODES}.
-     */
-    private static final int MIN_MODES = 1;
-
-    /**
-     * Dial can have a maximum of {@value #MAX_MODES}.
-     */
-    private static final int MAX_MODES = 8;
-
     /**
      * Context used to extract the device's screen density for converting DP units into
      * pixels.
@@ -50,15 +36,15 @@ class SelectorDial {
     /**
      * Stores the number of modes in the dial.
      *
-     * @see #MIN_MODES
-     * @see #MAX_MODES
+     * @see SelectorGeometry#MIN_MODES
+     * @see SelectorGeometry#MAX_MODES
      */
     private int dialModeCount;
 
     /**
      * Stores the radius of the dial in pixels.
      *
-     * @see #DIAL_RADIUS_DP
+     * @see SelectorGeometry#DIAL_RADIUS_DP
      */
     private int dialRadius;
 
@@ -90,6 +76,67 @@ class SelectorDial {
      */
     private List<Integer> dialColors;
 
+    /**
+     * Stores whether the {@link #dialPaints} are shared with a {@link SelectorSpec}, in
+     * which case they are copied before being changed in place.
+     */
+    private boolean paintsShared;
+
+    /**
+     * Stores the color each mode's paint fades from during a color transition.
+     *
+     * @see #beginColorTransition(List)
+     */
+    private final int[] fadeFromColors = new int[SelectorGeometry.MAX_MODES];
+
+    /**
+     * Stores the color each mode's paint fades to during a color transition.
+     *
+     * @see #beginColorTransition(List)
+     */
+    private final int[] fadeToColors = new int[SelectorGeometry.MAX_MODES];
+
+    /**
+     * Stores whether the dial is part of the way through a change of its mode count, in
+     * which case it is drawn from the drawn sectors instead of its modes.
+     *
+     * @see #beginModeCountTransition(int)
+     */
+    private boolean modeCountTransitioning;
+
+    /**
+     * Stores the number of sectors drawn during a change of the mode count: the larger of
+     * the counts it changes between.
+     */
+    private int sectorCount;
+
+    /**
+     * Store the starting and sweeping angle of each sector before and after a change of
+     * the mode count, computed once when the change begins.
+     *
+     * @see #beginModeCountTransition(int)
+     */
+    private final float[] fromStartingAngles = new float[SelectorGeometry.MAX_MODES];
+    private final float[] fromSweepingAngles = new float[SelectorGeometry.MAX_MODES];
+    private final float[] toStartingAngles = new float[SelectorGeometry.MAX_MODES];
+    private final float[] toSweepingAngles = new float[SelectorGeometry.MAX_MODES];
+
+    /**
+     * Store the starting and sweeping angle of each sector part of the way through a change
+     * of the mode count, updated in place on every frame.
+     *
+     * @see #setModeCountTransitionFraction(float)
+     */
+    private final float[] drawnStartingAngles = new float[SelectorGeometry.MAX_MODES];
+    private final float[] drawnSweepingAngles = new float[SelectorGeometry.MAX_MODES];
+
+    /**
+     * Stores the paint of each sector during a change of the mode count. Sectors of the
+     * new modes use the {@link #dialPaints}; sectors of removed modes keep their old paints
+     * until they have shrunk away.
+     */
+    private final Paint[] sectorPaints = new Paint[SelectorGeometry.MAX_MODES];
+
     /**
      * Constructs a selector dial and initialises its properties based on the given values.
      * <p>
@@ -106,11 +153,13 @@ class SelectorDial {
      * @param context       <tt>Context</tt>: A context used to calculate the density
      *                      of the screen for calculating dial's radius in pixels from DPs.
      * @param dialModeCount <tt>int</tt>: The total number of modes in the dial, which should
-     *                      be at least {@link #MIN_MODES} and at most {@link #MAX_MODES}.
+     *                      be at least {@link SelectorGeometry#MIN_MODES} and at most
+     *                      {@link SelectorGeometry#MAX_MODES}.
      * @param dialColors    <tt>int[]</tt>: Array specifies the color used for each mode in
      *                      the dial.
-     * @throws IllegalSelectorException If dialModeCount is less than {@link #MIN_MODES} or
-     *                                  greater than {@link #MAX_MODES}.
+     * @throws IllegalSelectorException If dialModeCount is less than
+     *                                  {@link SelectorGeometry#MIN_MODES} or greater than
+     *                                  {@link SelectorGeometry#MAX_MODES}.
      * @see SelectorUtil
      * @see SelectorUtil#arrayToList(int[])
      * @see SelectorUtil#generateDialPaints(int, List)
@@ -154,27 +203,45 @@ class SelectorDial {
         this.dialPaints = SelectorUtil.generateDialPaints(dialModeCount, this.dialColors);
     }
 
+    /**
+     * Constructs a selector dial from the precomputed mode count, angles, colors and paints
+     * of a spec, without computing any of them again.
+     *
+     * @param spec <tt>SelectorSpec</tt> : The spec to take the dial from.
+     * @see #applySpec(SelectorSpec)
+     * @see SelectorWarmUp
+     */
+    SelectorDial(SelectorSpec spec) {
+
+        this.screenDensity = spec.getScreenDensity();
+        this.dialRadius = SelectorUtil.getPixelsFromDips(SelectorGeometry.DIAL_RADIUS_DP,
+                screenDensity);
+        applySpec(spec);
+    }
+
     /**
      * Initialises the {@link #dialModeCount}, {@link #dialRadius}, {@link #modeSweepingAngle}
      * and {@link #modeStartingAngles} for the various modes in the dial.
      *
      * @param dialModeCount The number of modes in the selector switch's dial.
-     * @throws IllegalSelectorException If the number of modes is less than {@link #MIN_MODES} or
-     *                                  more than {@link #MAX_MODES}.
+     * @throws IllegalSelectorException If the number of modes is less than
+     *                                  {@link SelectorGeometry#MIN_MODES} or more than
+     *                                  {@link SelectorGeometry#MAX_MODES}.
      * @see SelectorUtil#getSweepingAngle(int)
      * @see SelectorUtil#generateStartingAngles(int, float)
      * @see SelectorUtil#getPixelsFromDips(int, float)
      */
     private void initialiseDial(int dialModeCount) throws IllegalSelectorException {
 
-        if (dialModeCount < MIN_MODES) {
+        if (dialModeCount < SelectorGeometry.MIN_MODES) {
             throw new IllegalSelectorException("Not enough modes in the selector dial!");
-        } else if (dialModeCount > MAX_MODES) {
+        } else if (dialModeCount > SelectorGeometry.MAX_MODES) {
             throw new IllegalSelectorException("Too many modes to accommodate in the selector dial!");
         }
 
         this.dialModeCount = dialModeCount;
-        this.dialRadius = SelectorUtil.getPixelsFromDips(DIAL_RADIUS_DP, screenDensity);
+        this.dialRadius = SelectorUtil.getPixelsFromDips(SelectorGeometry.DIAL_RADIUS_DP,
+                screenDensity);
         this.modeSweepingAngle = SelectorUtil.getSweepingAngle(this.dialModeCount);
         this.modeStartingAngles = SelectorUtil.generateStartingAngles(this.dialModeCount,
                 this.modeSweepingAngle);
@@ -189,6 +256,17 @@ class SelectorDial {
         return this.dialRadius;
     }
 
+    /**
+     * Updates the {@link #screenDensity} and recalculates the {@link #dialRadius} for it.
+     *
+     * @param screenDensity <tt>float</tt> : The new density of the screen.
+     */
+    void setScreenDensity(float screenDensity) {
+        this.screenDensity = screenDensity;
+        this.dialRadius = SelectorUtil.getPixelsFromDips(SelectorGeometry.DIAL_RADIUS_DP,
+                screenDensity);
+    }
+
     /**
      * Returns {@link #dialColors} : the list of colors for the modes of the dial.
      *
@@ -199,42 +277,100 @@ class SelectorDial {
     }
 
     /**
-     * Updates the {@link #dialColors} of the dial and re-initialises {@link #dialPaints}
-     * based on the new list of colors.
+     * Updates the {@link #dialColors} of the dial and the colors of the {@link #dialPaints}
+     * in place, or re-initialises the paints if there isn't one per color.
      *
      * @param dialColors New list of colors (Integers).
      * @see SelectorUtil#generateDialPaints(int, List)
      */
     void setDialColors(List<Integer> dialColors) {
         this.dialColors = dialColors;
-        this.dialPaints = SelectorUtil.generateDialPaints(dialModeCount, dialColors);
+        if (dialPaints.size() != dialColors.size()) {
+            this.dialPaints = SelectorUtil.generateDialPaints(dialModeCount, dialColors);
+            this.paintsShared = false;
+            return;
+        }
+        ensureOwnPaints();
+        for (int i = 0; i < dialPaints.size(); i++) {
+            dialPaints.get(i).setColor(dialColors.get(i));
+        }
     }
 
     /**
-     * Updates the {@link #dialColors} of the dial and re-initialises {@link #dialPaints}
-     * using the list of blended colors generated from the given two colors.
+     * Updates the {@link #dialColors} of the dial and the {@link #dialPaints} using the
+     * list of blended colors generated from the given two colors.
      *
      * @param startingColor Color to start blending from.
      * @param endingColor   Color to end blending at.
      * @see SelectorUtil#generateBlendingColors(int, int, int)
-     * @see SelectorUtil#generateDialPaints(int, List)
+     * @see #setDialColors(List)
      */
     void setDialColors(int startingColor, int endingColor) {
-        this.dialColors = SelectorUtil.generateBlendingColors(dialModeCount, startingColor,
-                endingColor);
-        this.dialPaints = SelectorUtil.generateDialPaints(dialModeCount, dialColors);
+        setDialColors(SelectorUtil.generateBlendingColors(dialModeCount, startingColor,
+                endingColor));
     }
 
     /**
-     * Updates the color for a specified mode in the dial and re co
+     * Updates the color for a specified mode in the dial and the color of its paint in
+     * place. The {@link #dialColors} are copied first, as they may be a shared list of
+     * blended colors.
      *
      * @param index Index of the mode.
      * @param color New color for the mode.
-     * @see SelectorUtil#generateDialPaint(int)
      */
     void setModeColor(int index, int color) {
+        ensureOwnPaints();
+        this.dialColors = new ArrayList<>(dialColors);
         this.dialColors.set(index, color);
-        this.dialPaints.set(index, SelectorUtil.generateDialPaint(color));
+        this.dialPaints.get(index).setColor(color);
+    }
+
+    /**
+     * Starts a cross-fade of the dial towards new colors, one per mode. Each paint fades
+     * from the color it has now, so a transition can start while another one is running.
+     * The {@link #dialColors} are set to the new colors straight away; the paints follow
+     * them through {@link #setColorTransitionFraction(float)}.
+     *
+     * @param targetColors <tt>List<Integer></tt> : The colors to fade to.
+     */
+    void beginColorTransition(List<Integer> targetColors) {
+        ensureOwnPaints();
+        for (int i = 0; i < dialModeCount; i++) {
+            fadeFromColors[i] = dialPaints.get(i).getColor();
+            fadeToColors[i] = targetColors.get(i);
+        }
+        this.dialColors = targetColors;
+    }
+
+    /**
+     * Sets the colors of the {@link #dialPaints} part of the way through a color
+     * transition. Updates the paints in place and allocates nothing, so it can be called
+     * on every frame.
+     *
+     * @param fraction <tt>float</tt> : How far the transition has gone, from 0 to 1.
+     * @see #beginColorTransition(List)
+     */
+    void setColorTransitionFraction(float fraction) {
+        for (int i = 0; i < dialModeCount; i++) {
+            dialPaints.get(i).setColor(
+                    SelectorColorBlender.blend(fadeFromColors[i], fadeToColors[i], fraction));
+        }
+    }
+
+    /**
+     * Replaces the {@link #dialPaints} shared with a spec with copies, once, so that they
+     * can be changed in place without changing the spec.
+     */
+    private void ensureOwnPaints() {
+        if (!paintsShared) {
+            return;
+        }
+        List<Paint> ownPaints = new ArrayList<>(dialPaints.size());
+        for (Paint paint : dialPaints) {
+            ownPaints.add(new Paint(paint));
+        }
+        this.dialPaints = ownPaints;
+        this.paintsShared = false;
     }
 
     /**
@@ -253,12 +389,13 @@ class SelectorDial {
      * less or equal to than the current count, the current {@link #dialColors} list is
      * replaced by its subset of a size equal to the new count. The method also updates
      * the {@link #dialPaints}, {@link #modeSweepingAngle} and {@link #modeStartingAngles}
-     * based on the new number of modes.
+     * based on the new number of modes. A change of the mode count in progress is ended.
      * <p>
      *
      * @param dialModeCount New number of modes.
-     * @throws IllegalSelectorException If the new number of states less than {@link #MIN_MODES}
-     *                                  or greater than {@link #MAX_MODES}.
+     * @throws IllegalSelectorException If the new number of states less than
+     *                                  {@link SelectorGeometry#MIN_MODES} or greater than
+     *                                  {@link SelectorGeometry#MAX_MODES}.
      * @see SelectorUtil#generateBlendingColors(int, int, int)
      * @see SelectorUtil#getSweepingAngle(int)
      * @see SelectorUtil#generateStartingAngles(int, float)
@@ -266,9 +403,9 @@ class SelectorDial {
     void setDialModeCount(int dialModeCount) throws IllegalSelectorException {
 
         // Check the validity of the new count.
-        if (dialModeCount < MIN_MODES) {
+        if (dialModeCount < SelectorGeometry.MIN_MODES) {
             throw new IllegalSelectorException("Too few modes to select!");
-        } else if (dialModeCount > MAX_MODES) {
+        } else if (dialModeCount > SelectorGeometry.MAX_MODES) {
             throw new IllegalSelectorException("Too many modes to accommodate!");
         }
 
@@ -276,14 +413,185 @@ class SelectorDial {
             this.dialColors = SelectorUtil.generateBlendingColors(dialModeCount,
                     this.dialColors.get(0), this.dialColors.get(this.dialColors.size() - 1));
         } else {                                    // Slice.
-            this.dialColors = dialColors.subList(0, dialModeCount);
+            this.dialColors = new ArrayList<>(dialColors.subList(0, dialModeCount));
         }
 
-        // Update the dial count and angles.
+        // Update the dial count, angles and paints.
         this.dialModeCount = dialModeCount;
         this.modeSweepingAngle = SelectorUtil.getSweepingAngle(dialModeCount);
         this.modeStartingAngles = SelectorUtil.generateStartingAngles(dialModeCount,
                 modeSweepingAngle);
+        this.dialPaints = SelectorUtil.generateDialPaints(dialModeCount, dialColors);
+        this.paintsShared = false;
+        this.modeCountTransitioning = false;
+    }
+
+    /**
+     * Changes the {@link #dialModeCount} like {@link #setDialModeCount(int)}, but starts a
+     * transition in which the sectors of the dial grow and shrink from their current
+     * angles to the new ones instead of jumping. Sectors of new modes grow out of the end
+     * of the dial and sectors of removed modes shrink into it, so that the sectors always
+     * cover the whole dial. The paints of the remaining modes fade to their new colors.
+     * <p>
+     * The angles of every sector before and after the change are computed here, once, so
+     * that {@link #setModeCountTransitionFraction(float)} only has to interpolate between
+     * them. A change started while another one is running starts from the sectors as they
+     * are drawn now.
+     *
+     * @param dialModeCount <tt>int</tt> : The new number of modes.
+     * @throws IllegalSelectorException If the new number of modes is less than
+     *                                  {@link SelectorGeometry#MIN_MODES} or greater than
+     *                                  {@link SelectorGeometry#MAX_MODES}.
+     * @see #setDialModeCount(int)
+     */
+    void beginModeCountTransition(int dialModeCount) throws IllegalSelectorException {
+
+        boolean restarting = modeCountTransitioning;
+        int fromCount = restarting ? sectorCount : this.dialModeCount;
+        List<Float> oldStartingAngles = modeStartingAngles;
+        float oldSweepingAngle = modeSweepingAngle;
+        List<Paint> oldPaints = dialPaints;
+
+        setDialModeCount(dialModeCount);
+
+        if (restarting) {
+            System.arraycopy(drawnStartingAngles, 0, fromStartingAngles, 0, fromCount);
+            System.arraycopy(drawnSweepingAngles, 0, fromSweepingAngles, 0, fromCount);
+        } else {
+            for (int i = 0; i < fromCount; i++) {
+                fromStartingAngles[i] = oldStartingAngles.get(i);
+                fromSweepingAngles[i] = oldSweepingAngle;
+                sectorPaints[i] = oldPaints.get(i);
+            }
+        }
+
+        // The sectors cover the whole dial, so its end is a full turn from the first start.
+        float fromEnd = fromStartingAngles[0] + 360;
+        float toEnd = modeStartingAngles.get(0) + 360;
+        sectorCount = Math.max(fromCount, dialModeCount);
+        for (int i = 0; i < sectorCount; i++) {
+            if (i >= fromCount) {
+                fromStartingAngles[i] = fromEnd;
+                fromSweepingAngles[i] = 0;
+            }
+            if (i < dialModeCount) {
+                toStartingAngles[i] = modeStartingAngles.get(i);
+                toSweepingAngles[i] = modeSweepingAngle;
+                fadeToColors[i] = dialColors.get(i);
+                fadeFromColors[i] = i < fromCount ? sectorPaints[i].getColor() : fadeToColors[i];
+                sectorPaints[i] = dialPaints.get(i);
+            } else {
+                toStartingAngles[i] = toEnd;
+                toSweepingAngles[i] = 0;
+            }
+        }
+
+        modeCountTransitioning = true;
+        setModeCountTransitionFraction(0);
+    }
+
+    /**
+     * Sets the angles of the sectors, and the colors of the paints of the remaining modes,
+     * part of the way through a change of the mode count. Only interpolates between the
+     * angles computed when the change began, in place, and allocates nothing, so it can be
+     * called on every frame. Does nothing if no change is in progress.
+     *
+     * @param fraction <tt>float</tt> : How far the change has gone, from 0 to 1.
+     * @see #beginModeCountTransition(int)
+     */
+    void setModeCountTransitionFraction(float fraction) {
+        if (!modeCountTransitioning) {
+            return;
+        }
+        for (int i = 0; i < sectorCount; i++) {
+            drawnStartingAngles[i] = fromStartingAngles[i]
+                    + (toStartingAngles[i] - fromStartingAngles[i]) * fraction;
+            drawnSweepingAngles[i] = fromSweepingAngles[i]
+                    + (toSweepingAngles[i] - fromSweepingAngles[i]) * fraction;
+        }
+        for (int i = 0; i < dialModeCount; i++) {
+            dialPaints.get(i).setColor(
+                    SelectorColorBlender.blend(fadeFromColors[i], fadeToColors[i], fraction));
+        }
+    }
+
+    /**
+     * Ends a change of the mode count, leaving the dial with its new modes, angles and
+     * colors.
+     *
+     * @see #beginModeCountTransition(int)
+     */
+    void endModeCountTransition() {
+        if (!modeCountTransitioning) {
+            return;
+        }
+        setModeCountTransitionFraction(1f);
+        modeCountTransitioning = false;
+        for (int i = 0; i < sectorCount; i++) {
+            sectorPaints[i] = null;
+        }
+    }
+
+    /**
+     * Returns the number of sectors to draw: the number of modes, or during a change of
+     * the mode count, the larger of the two counts.
+     *
+     * @return sectorCount The number of sectors.
+     */
+    int getSectorCount() {
+        return modeCountTransitioning ? sectorCount : dialModeCount;
+    }
+
+    /**
+     * Returns the angle at which a sector of the dial starts, as it is to be drawn now.
+     *
+     * @param sector <tt>int</tt> : The index of the sector.
+     * @return startingAngle The starting angle of the sector.
+     * @see #getSectorCount()
+     */
+    float getSectorStartingAngle(int sector) {
+        return modeCountTransitioning ? drawnStartingAngles[sector]
+                : getModeStartingAngle(sector);
+    }
+
+    /**
+     * Returns the angle a sector of the dial sweeps, as it is to be drawn now.
+     *
+     * @param sector <tt>int</tt> : The index of the sector.
+     * @return sweepingAngle The sweeping angle of the sector.
+     * @see #getSectorCount()
+     */
+    float getSectorSweepingAngle(int sector) {
+        return modeCountTransitioning ? drawnSweepingAngles[sector] : modeSweepingAngle;
+    }
+
+    /**
+     * Returns the paint a sector of the dial is to be drawn with now.
+     *
+     * @param sector <tt>int</tt> : The index of the sector.
+     * @return paint The paint of the sector.
+     * @see #getSectorCount()
+     */
+    Paint getSectorPaint(int sector) {
+        return modeCountTransitioning ? sectorPaints[sector] : getDialPaintForMode(sector);
+    }
+
+    /**
+     * Swaps in the precomputed mode count, angles, colors and paints of a spec. Nothing is
+     * computed here; the colors are copied and the paints are copied on the first change, so
+     * that later per-mode changes don't leak back into the spec.
+     *
+     * @param spec <tt>SelectorSpec</tt> : The spec to apply.
+     * @see SelectorSwitch#applySpec(SelectorSpec)
+     */
+    void applySpec(SelectorSpec spec) {
+        this.dialModeCount = spec.getModeCount();
+        this.modeSweepingAngle = spec.getModeSweepingAngle();
+        this.modeStartingAngles = spec.getModeStartingAngles();
+        this.dialColors = new ArrayList<>(spec.getDialColors());
+        this.dialPaints = spec.getDialPaints();
+        this.paintsShared = true;
+        this.modeCountTransitioning = false;
     }
 
     /**
@@ -317,6 +625,20 @@ class SelectorDial {
         return modeStartingAngles.get(mode);
     }
 
+    /**
+     * Returns the mode whose sector of the dial contains the given angle. The angle is
+     * measured clockwise from the positive X axis, in the same way as the starting angles.
+     * Only arithmetic is used, so this is O(1) and allocates nothing.
+     *
+     * @param angle <tt>float</tt> : The angle in degrees.
+     * @return mode The index of the mode at the angle.
+     */
+    int getModeAtAngle(float angle) {
+        float fromFirstMode = ((angle - modeStartingAngles.get(0)) % 360 + 360) % 360;
+        int mode = (int) (fromFirstMode / modeSweepingAngle);
+        return mode < dialModeCount ? mode : dialModeCount - 1;
+    }
+
     /**
      * Returns the list of paints for each mode in the dial.
      *
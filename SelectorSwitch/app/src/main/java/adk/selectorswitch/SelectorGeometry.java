@@ -0,0 +1,133 @@
+package adk.selectorswitch;
+
+/**
+ * SelectorGeometry holds the dimensions, in DP units, and the default colors of every part
+ * of the selector switch. It doesn't depend on the Android framework, so the same numbers
+ * lay out the switch on screen and in the headless renderer.
+ *
+ * @see SelectorSwitch
+ * @see SelectorScene
+ */
+
+final class SelectorGeometry {
+
+    /**
+     * The default space in DP Units used as an additional padding on top of the
+     * padding specified in the layout.
+     */
+    static final int SPACE_DIP = 6;
+
+    /**
+     * The default radius of the switch's base in DP Units.
+     */
+    static final int BASE_RADIUS_DIP = 16;
+
+    /**
+     * The default shadow radius of the switch's base in DP Units.
+     */
+    static final int BASE_SHADOW_RADIUS = 1;
+
+    /**
+     * The default shadow radius of the knob's base in DP Units.
+     */
+    static final int KNOB_SHADOW_RADIUS = 1;
+
+    /**
+     * The width of the line drawn for the knob at {@link SelectorScene#LOD_MINIMAL}, in DP
+     * units.
+     */
+    static final int KNOB_LINE_WIDTH_DP = 1;
+
+    /**
+     * Dial has a default radius of {@value #DIAL_RADIUS_DP} DP units.
+     */
+    static final int DIAL_RADIUS_DP = 14;
+
+    /**
+     * Dial should have a minimum of {@value #MIN_MODES}.
+     */
+    static final int MIN_MODES = 1;
+
+    /**
+     * Dial can have a maximum of {@value #MAX_MODES}.
+     */
+    static final int MAX_MODES = 8;
+
+    /**
+     * The default top and bottom margin of the
+     * mode's base in DP units.
+     */
+    static final int MODE_BASE_MARGIN_DP = 4;
+
+    /**
+     * The default top and bottom padding for
+     * the mode's base in DP units.
+     */
+    static final int MODE_BASE_PADDING_V_DP = 2;
+
+    /**
+     * The default left and right padding for
+     * the mode's base in DP units.
+     */
+    static final int MODE_BASE_PADDING_H_DP = 4;
+
+    /**
+     * The default height of the mode's base in DP units.
+     */
+    static final int MODE_BASE_HEIGHT_DP = 8;
+
+    /**
+     * The default text size for the mode's name.
+     */
+    static final int MODE_TEXT_SIZE = 6;
+
+    /**
+     * The default color of the base, the knob and the mode's base.
+     */
+    static final int BASE_COLOR = 0xFFFFFFFF;
+
+    /**
+     * The default color of the shadows.
+     */
+    static final int SHADOW_COLOR = 0xFF444444;
+
+    /**
+     * The default text color for the mode's name.
+     */
+    static final int MODE_TEXT_COLOR = 0xFF000000;
+
+    private SelectorGeometry() {
+    }
+
+    /**
+     * Converts DPs to Pixels based on the screen's pixel density.
+     *
+     * @param dps     <tt>int</tt> : DP units.
+     * @param density <tt>float</tt> : The density of the screen.
+     * @return pixels   Pixel count equivalent to the given DP units.
+     */
+    static int getPixelsFromDips(int dps, float density) {
+        return (int) (density * dps / 0.5);
+    }
+
+    /**
+     * Returns the number of pixels in a DP unit, by the same conversion as
+     * {@link #getPixelsFromDips(int, float)} but without rounding, for scaling shapes.
+     *
+     * @param density <tt>float</tt> : The density of the screen.
+     * @return pixels Pixels per DP unit.
+     */
+    static float getPixelsPerDip(float density) {
+        return (float) (density / 0.5);
+    }
+
+    /**
+     * Returns the angle between the starting angles of two successive modes on the dial.
+     *
+     * @param modeCount <tt>int</tt> : Number of modes in the selector dial.
+     * @return angle The sweeping angle of every mode.
+     */
+    static float getSweepingAngle(int modeCount) {
+        return (float) 360 / modeCount;
+    }
+}
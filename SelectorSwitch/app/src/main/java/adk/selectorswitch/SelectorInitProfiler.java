@@ -0,0 +1,277 @@
+package adk.selectorswitch;
+
+import java.util.Locale;
+
+/**
+ * SelectorInitProfiler is an opt-in profiler for the construction of {@link SelectorSwitch}
+ * instances. When enabled, every switch records the time it spends in each phase of its
+ * constructor ({@link #PHASE_MODES_AND_COLORS}, {@link #PHASE_COMPONENTS} and
+ * {@link #PHASE_LISTENERS}).
+ * <p>
+ * With {@link #setHeapProfilingEnabled(boolean)} it also records the growth of the heap in
+ * each phase. Garbage collection is forced before every reading, so the figures are the heap
+ * retained by the switch rather than what it allocated on the way. The collections happen
+ * between the timed sections and aren't charged to the phases, but they make the inflation
+ * itself much slower, so heap profiling is best left off when only the times matter.
+ * <p>
+ * This is meant for benchmarks that inflate layouts with many switches, for example 1, 50
+ * and 500 of them, and compare the averages to check that the startup work scales as
+ * expected.
+ * <p>
+ * When disabled, which is the default, the profiler costs a single volatile read per switch.
+ *
+ * @see SelectorSwitch
+ */
+public final class SelectorInitProfiler {
+
+    /**
+     * Phase in which the modes and colors are read from the XML attributes.
+     */
+    public static final int PHASE_MODES_AND_COLORS = 0;
+
+    /**
+     * Phase in which the dial and the knob are built and the theme colors resolved.
+     */
+    public static final int PHASE_COMPONENTS = 1;
+
+    /**
+     * Phase in which the default listeners are attached.
+     */
+    public static final int PHASE_LISTENERS = 2;
+
+    private static final int PHASE_COUNT = 3;
+
+    private static final String[] PHASE_NAMES =
+            {"initModesAndColors", "initComponents", "initListeners"};
+
+    /**
+     * Handed out while profiling is disabled, and records nothing.
+     */
+    private static final Sample DISABLED = new Sample(false);
+
+    private static volatile boolean enabled;
+    private static volatile boolean heapProfilingEnabled;
+
+    private static final long[] phaseNanos = new long[PHASE_COUNT];
+    private static final long[] phaseHeapBytes = new long[PHASE_COUNT];
+    private static long instanceCount;
+    private static long heapInstanceCount;
+
+    private SelectorInitProfiler() {
+    }
+
+    /**
+     * Enables or disables profiling of switches constructed from now on.
+     *
+     * @param enabled <tt>boolean</tt> : Profiles the constructors if true.
+     */
+    public static void setEnabled(boolean enabled) {
+        SelectorInitProfiler.enabled = enabled;
+    }
+
+    /**
+     * Returns whether profiling is enabled.
+     *
+     * @return enabled True if the constructors are being profiled.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the recording of the heap retained in each phase, which forces a
+     * garbage collection before every reading. Only has an effect while profiling is enabled.
+     *
+     * @param enabled <tt>boolean</tt> : Records the heap of every phase if true.
+     * @see #setEnabled(boolean)
+     */
+    public static void setHeapProfilingEnabled(boolean enabled) {
+        heapProfilingEnabled = enabled;
+    }
+
+    /**
+     * Returns whether the heap of every phase is being recorded.
+     *
+     * @return enabled True if the heap is being recorded.
+     */
+    public static boolean isHeapProfilingEnabled() {
+        return heapProfilingEnabled;
+    }
+
+    /**
+     * Clears everything recorded so far.
+     */
+    public static synchronized void reset() {
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            phaseNanos[i] = 0;
+            phaseHeapBytes[i] = 0;
+        }
+        instanceCount = 0;
+        heapInstanceCount = 0;
+    }
+
+    /**
+     * Returns the number of switches profiled since the last {@link #reset()}.
+     *
+     * @return instanceCount The number of profiled switches.
+     */
+    public static synchronized long getInstanceCount() {
+        return instanceCount;
+    }
+
+    /**
+     * Returns the average time spent in a phase per switch.
+     *
+     * @param phase <tt>int</tt> : One of the PHASE_ constants.
+     * @return nanos The average time in nanoseconds.
+     */
+    public static synchronized long getAverageNanos(int phase) {
+        return instanceCount == 0 ? 0 : phaseNanos[phase] / instanceCount;
+    }
+
+    /**
+     * Returns the average time spent in the constructor per switch.
+     *
+     * @return nanos The average time of all the phases together, in nanoseconds.
+     */
+    public static synchronized long getAverageNanos() {
+        long total = 0;
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            total += phaseNanos[i];
+        }
+        return instanceCount == 0 ? 0 : total / instanceCount;
+    }
+
+    /**
+     * Returns the average heap retained in a phase per switch, over the switches profiled
+     * with heap profiling enabled.
+     *
+     * @param phase <tt>int</tt> : One of the PHASE_ constants.
+     * @return bytes The average retained heap in bytes, or 0 if no heap was recorded.
+     * @see #setHeapProfilingEnabled(boolean)
+     */
+    public static synchronized long getAverageHeapBytes(int phase) {
+        return heapInstanceCount == 0 ? 0 : phaseHeapBytes[phase] / heapInstanceCount;
+    }
+
+    /**
+     * Returns the average heap retained by the constructor per switch, over the switches
+     * profiled with heap profiling enabled.
+     *
+     * @return bytes The average retained heap of all the phases together, in bytes.
+     * @see #setHeapProfilingEnabled(boolean)
+     */
+    public static synchronized long getAverageHeapBytes() {
+        long total = 0;
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            total += phaseHeapBytes[i];
+        }
+        return heapInstanceCount == 0 ? 0 : total / heapInstanceCount;
+    }
+
+    /**
+     * Returns a one line summary of the averages, suitable for a benchmark log. The heap of
+     * each phase is only included when some was recorded.
+     *
+     * @return report The summary.
+     */
+    public static synchronized String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "%d switches:", instanceCount));
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            report.append(String.format(Locale.US, " %s=%.1fus", PHASE_NAMES[i],
+                    getAverageNanos(i) / 1000f));
+            if (heapInstanceCount > 0) {
+                report.append(String.format(Locale.US, "/%dB", getAverageHeapBytes(i)));
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Marks the start of a constructor and of its first phase.
+     *
+     * @return sample The sample to record the phases of the constructor with, which
+     * records nothing if profiling is disabled.
+     */
+    static Sample start() {
+        if (!enabled) {
+            return DISABLED;
+        }
+        return new Sample(heapProfilingEnabled);
+    }
+
+    /**
+     * Forces a garbage collection and returns the heap still in use.
+     *
+     * @return bytes The used heap in bytes.
+     */
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        runtime.runFinalization();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static synchronized void record(long[] nanos, long[] heapBytes) {
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            phaseNanos[i] += nanos[i];
+        }
+        instanceCount++;
+        if (heapBytes != null) {
+            for (int i = 0; i < PHASE_COUNT; i++) {
+                phaseHeapBytes[i] += heapBytes[i];
+            }
+            heapInstanceCount++;
+        }
+    }
+
+    /**
+     * The phases of a single constructor, recorded together when it ends.
+     */
+    static final class Sample {
+
+        private final long[] nanos = new long[PHASE_COUNT];
+        private final long[] heapBytes;
+        private long heap;
+        private long time;
+
+        private Sample(boolean measureHeap) {
+            heapBytes = measureHeap ? new long[PHASE_COUNT] : null;
+            if (measureHeap) {
+                heap = usedHeapAfterGc();
+            }
+            time = System.nanoTime();
+        }
+
+        /**
+         * Records the end of a phase, which is also the start of the next one.
+         *
+         * @param phase <tt>int</tt> : One of the PHASE_ constants.
+         */
+        void endPhase(int phase) {
+            if (this == DISABLED) {
+                return;
+            }
+            nanos[phase] += System.nanoTime() - time;
+            if (heapBytes != null) {
+                long heapAfter = usedHeapAfterGc();
+                heapBytes[phase] += Math.max(0, heapAfter - heap);
+                heap = heapAfter;
+            }
+            // Restart the clock after the collection, so it isn't charged to the next phase.
+            time = System.nanoTime();
+        }
+
+        /**
+         * Records the end of the constructor.
+         */
+        void end() {
+            if (this == DISABLED) {
+                return;
+            }
+            record(nanos, heapBytes);
+        }
+    }
+}
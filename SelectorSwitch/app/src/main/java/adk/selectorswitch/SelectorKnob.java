@@ -22,46 +22,23 @@ import android.graphics.Path;
 class SelectorKnob {
 
     /**
-     * Knob has a central radius of {@value knobRadius1DIP} DP units.
-     */
-    private final static int knobRadius1DIP = 4;
-
-    /**
-     * Knob has an outer radius of {@value knobRadius2DIP} DP units.
-     */
-    private final static int knobRadius2DIP = 1;
-
-    /**
-     * Knob has a handle length of {@value knobLengthDIP} DP units.
-     */
-    private final static int knobLengthDIP = 3;
-
-    /**
-     * Knob has a central starting angle of {@value knobCentralStartingAngle} degrees.
-     */
-    private final static int knobCentralStartingAngle = 230;
-
-    /**
-     * Knob has a central sweeping angle of {@value knobCentralSweepingAngle} degrees.
-     */
-    private final static int knobCentralSweepingAngle = 260;
-
-    /**
-     * Knob has a notch starting angle of {@value notchStartingAngle} degrees.
+     * Stores the density of the screen for converting DPs into pixels.
+     *
+     * @see SelectorUtil#getPixelsFromDips(int, float)
      */
-    private final static int notchStartingAngle = 90;
+    private float screenDensity;
 
     /**
-     * Knob has a notch sweeping angle of {@value notchSweepingAngle} degrees.
+     * Stores the outline of the knob the paths are built from.
      */
-    private final static int notchSweepingAngle = 180;
+    private SelectorKnobShape shape;
 
     /**
-     * Stores the density of the screen for converting DPs into pixels.
+     * Stores the custom outline of the knob in DP units, or null for the default knob.
      *
-     * @see SelectorUtil#getPixelsFromDips(int, float)
+     * @see SelectorKnobShapeCache
      */
-    private float screenDensity;
+    private SelectorKnobShape customShape;
 
     /**
      * Stores the complete structure of the knob and is drawn onto the canvas
@@ -71,6 +48,13 @@ class SelectorKnob {
      */
     private Path knobPath;
 
+    /**
+     * Stores the structure of the knob pointing at an angle of zero degrees. The
+     * {@link #knobPath} is always derived from this path, so that the knob can be placed
+     * at any angle without accumulating rounding errors or allocating a new path.
+     */
+    private Path basePath;
+
     /**
      * Stores the X and Y coordinates of the point about which the knob is rotated.
      * <p>
@@ -90,6 +74,23 @@ class SelectorKnob {
      *                would rotate.
      */
     SelectorKnob(Context context, int centerX, int centerY) {
+        this(context, centerX, centerY, null);
+    }
+
+    /**
+     * Initialises the knob with a custom outline.
+     *
+     * @param context     <tt>Context</tt> A context to get the density of the screen.
+     * @param centerX     <tt>int</tt> : The X coordinate of the point about which the knob
+     *                    would rotate.
+     * @param centerY     <tt>int</tt> : The Y coordinate of the point about which the knob
+     *                    would rotate.
+     * @param customShape <tt>SelectorKnobShape</tt> : The outline of the knob in DP units,
+     *                    or null for the default knob.
+     * @see SelectorKnobShapeCache#parse(String)
+     */
+    SelectorKnob(Context context, int centerX, int centerY, SelectorKnobShape customShape) {
+        this.customShape = customShape;
         this.centerX = centerX;
         this.centerY = centerY;
         this.screenDensity = context.getTheme().getResources().getDisplayMetrics().density;
@@ -99,6 +100,28 @@ class SelectorKnob {
         initiateKnob();
     }
 
+    /**
+     * Initialises the knob with a copy of a precomputed path, pointing at an angle of zero
+     * degrees, instead of constructing it again.
+     *
+     * @param screenDensity <tt>float</tt> : The density of the screen.
+     * @param centerX       <tt>int</tt> : The X coordinate of the point about which the knob
+     *                      would rotate.
+     * @param centerY       <tt>int</tt> : The Y coordinate of the point about which the knob
+     *                      would rotate.
+     * @param sourcePath    <tt>Path</tt> : The precomputed path of the knob.
+     * @see SelectorSpec#getKnobPath()
+     */
+    SelectorKnob(float screenDensity, int centerX, int centerY, Path sourcePath) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.screenDensity = screenDensity;
+        this.currentAngle = 0;
+        this.rotationMatrix = new Matrix();
+        this.basePath = new Path(sourcePath);
+        this.knobPath = new Path(sourcePath);
+    }
+
     /**
      * Sets the default dimensions and constructs the path which can be used later while
      * drawing the switch.
@@ -106,35 +129,29 @@ class SelectorKnob {
      * @see SelectorSwitch#onDraw(Canvas)
      */
     private void initiateKnob() {
+        shape = createShape();
+        basePath = new Path();
+        shape.appendTo(new PathSink(basePath), centerX, centerY);
+        knobPath = new Path(basePath);
+    }
 
-        // Set knob dimensions.
-        int knobRadius1 = SelectorUtil.getPixelsFromDips(knobRadius1DIP, screenDensity);
-        int knobRadius2 = SelectorUtil.getPixelsFromDips(knobRadius2DIP, screenDensity);
-        int knobLength = SelectorUtil.getPixelsFromDips(knobLengthDIP, screenDensity);
-        knobPath = new Path();
-
-        // The central knob.
-        knobPath.addArc(centerX - knobRadius1,
-                centerY - knobRadius1,
-                centerX + knobRadius1,
-                centerY + knobRadius1,
-                knobCentralStartingAngle,
-                knobCentralSweepingAngle);
-
-        // The end notch.
-        knobPath.addArc(centerX - knobRadius1 - knobLength - knobRadius2,
-                centerY - knobRadius2,
-                centerX - knobRadius1 - knobLength + knobRadius2,
-                centerY + knobRadius2,
-                notchStartingAngle,
-                notchSweepingAngle);
-
-        // The handle between them.
-        knobPath.moveTo(centerX - knobLength + knobRadius2 / 2, centerY - knobRadius1 * 3 / 4);
-        knobPath.lineTo(centerX - knobRadius1 - knobLength, centerY - knobRadius2);
-        knobPath.lineTo(centerX - knobRadius1 - knobLength, centerY + knobRadius2);
-        knobPath.lineTo(centerX - knobLength + knobRadius2 / 2, centerY + knobRadius1 * 3 / 4);
-        knobPath.close();
+    /**
+     * Constructs the structure of the knob, pointing at an angle of zero degrees, into the
+     * given path. Used by {@link SelectorSpec.Builder} to precompute the knob's path away
+     * from the UI thread.
+     * <p>
+     * The structure itself is described by {@link SelectorKnobShape#createDefault(float)}.
+     *
+     * @param knobPath      <tt>Path</tt> : The path to add the knob's structure to.
+     * @param centerX       <tt>int</tt> : The X coordinate of the point about which the knob
+     *                      would rotate.
+     * @param centerY       <tt>int</tt> : The Y coordinate of the point about which the knob
+     *                      would rotate.
+     * @param screenDensity <tt>float</tt> : The density of the screen.
+     */
+    static void buildKnobPath(Path knobPath, int centerX, int centerY, float screenDensity) {
+        SelectorKnobShape.createDefault(screenDensity)
+                .appendTo(new PathSink(knobPath), centerX, centerY);
     }
 
     /**
@@ -153,9 +170,96 @@ class SelectorKnob {
      * @param delta <tt>float</tt> : The angle to rotate the knob by.
      */
     public void rotateBy(float delta) {
-        this.currentAngle = (currentAngle + delta) % 360;
-        this.rotationMatrix.setRotate(delta, centerX, centerY);
-        this.knobPath.transform(rotationMatrix);
+        rotateTo(currentAngle + delta);
+    }
+
+    /**
+     * Places the knob at an absolute angle about the point whose coordinates are
+     * {@link #centerX} and {@link #centerY}. The {@link #knobPath} is rebuilt from the
+     * {@link #basePath} in place, so no objects are allocated.
+     *
+     * @param angle <tt>float</tt> : The angle the knob should point at.
+     */
+    void rotateTo(float angle) {
+        this.currentAngle = ((angle % 360) + 360) % 360;
+        this.rotationMatrix.setRotate(currentAngle, centerX, centerY);
+        this.basePath.transform(rotationMatrix, knobPath);
+    }
+
+    /**
+     * Rebuilds the structure of the knob in place for a new screen density and point of
+     * rotation, keeping the knob at its current angle.
+     *
+     * @param screenDensity <tt>float</tt> : The new density of the screen.
+     * @param centerX       <tt>int</tt> : The X coordinate of the point about which the knob
+     *                      would rotate.
+     * @param centerY       <tt>int</tt> : The Y coordinate of the point about which the knob
+     *                      would rotate.
+     */
+    void setGeometry(float screenDensity, int centerX, int centerY) {
+        this.screenDensity = screenDensity;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.shape = createShape();
+        this.basePath.rewind();
+        shape.appendTo(new PathSink(basePath), centerX, centerY);
+        rotateTo(currentAngle);
+    }
+
+    /**
+     * Replaces the structure of the knob with a copy of a precomputed path, pointing at an
+     * angle of zero degrees, and then rotates it to the given angle.
+     *
+     * @param sourcePath <tt>Path</tt> : The precomputed path of the knob.
+     * @param angle      <tt>float</tt> : The angle the knob should point at.
+     * @see SelectorSpec#getKnobPath()
+     */
+    void setKnobPath(Path sourcePath, float angle) {
+        // Precomputed paths are of the default knob; a custom knob keeps its own.
+        if (customShape == null) {
+            this.basePath.set(sourcePath);
+        }
+        rotateTo(angle);
+    }
+
+    /**
+     * Replaces the outline of the knob, keeping the knob at its current angle.
+     *
+     * @param customShape <tt>SelectorKnobShape</tt> : The outline of the knob in DP units,
+     *                    or null for the default knob.
+     * @see SelectorKnobShapeCache#parse(String)
+     */
+    void setCustomShape(SelectorKnobShape customShape) {
+        this.customShape = customShape;
+        this.shape = createShape();
+        this.basePath.rewind();
+        shape.appendTo(new PathSink(basePath), centerX, centerY);
+        rotateTo(currentAngle);
+    }
+
+    /**
+     * Returns the outline of the knob in pixels for the current screen density, shared
+     * with every other knob of the same outline and density.
+     *
+     * @return shape The outline in pixels.
+     */
+    private SelectorKnobShape createShape() {
+        return customShape == null ? SelectorKnobShape.createDefault(screenDensity)
+                : SelectorKnobShapeCache.scale(customShape, screenDensity);
+    }
+
+    /**
+     * Returns the outline of the knob, for example to rasterize it into a sprite.
+     *
+     * @return {@link #shape}
+     * @see SelectorKnobSprite
+     */
+    SelectorKnobShape getShape() {
+        // A knob seeded with a precomputed path only needs its outline for the sprite.
+        if (this.shape == null) {
+            this.shape = createShape();
+        }
+        return this.shape;
     }
 
     /**
@@ -167,5 +271,41 @@ class SelectorKnob {
         return this.currentAngle;
     }
 
+    /**
+     * Replays the commands of a {@link SelectorKnobShape} into an android.graphics.Path.
+     */
+    static final class PathSink implements SelectorKnobShape.PathSink {
+
+        private final Path path;
+
+        PathSink(Path path) {
+            this.path = path;
+        }
 
+        @Override
+        public void moveTo(float x, float y) {
+            path.moveTo(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            path.lineTo(x, y);
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            path.cubicTo(x1, y1, x2, y2, x3, y3);
+        }
+
+        @Override
+        public void addArc(float left, float top, float right, float bottom, float startAngle,
+                           float sweepAngle) {
+            path.addArc(left, top, right, bottom, startAngle, sweepAngle);
+        }
+
+        @Override
+        public void close() {
+            path.close();
+        }
+    }
 }
@@ -1,31 +1,54 @@
 package adk.selectorswitch;
 
-import android.os.AsyncTask;
-
 /**
- * SelectorKnobAnimator is built on top of {@link
- * <a href="https://developer.android.com/reference/android/os/AsyncTask.html">AsyncTask</a>}
- * and is used primarily by {@link SelectorSwitch} to animate the rotation of its knob when
- * the mode of the switch is changed.
+ * SelectorKnobAnimator is used by {@link SelectorSwitch} to animate the rotation of its
+ * knob when the mode of the switch is changed. It is driven by the process-wide
+ * {@link SelectorAnimationScheduler}, so the knobs of every switch changed at once move
+ * together, on the UI thread, in step with the display.
+ * <p>
+ * The animation is driven by time rather than by a fixed number of steps: on each frame
+ * the knob is placed at the angle matching the elapsed fraction of the animation's
+ * duration. Frames arriving sooner than the frame interval after the last drawn one are
+ * skipped, so the frame rate can be capped without changing how long the animation takes.
+ * Once the knob has reached its final angle the animation stops asking for frames.
+ * <p>
+ * Each switch owns one animator and reuses it for every animation, so animating the knob
+ * allocates nothing.
  *
  * @see SelectorSwitch
  * @see SelectorKnob
  */
-class SelectorKnobAnimator extends AsyncTask<Void, Void, Void> {
+class SelectorKnobAnimator extends SelectorAnimationScheduler.Animation {
+
+    /**
+     * Frames are drawn once at least this fraction of the frame interval has passed, so
+     * that vsync jitter doesn't make a capped animation drop every other frame.
+     */
+    private static final float FRAME_INTERVAL_TOLERANCE = 0.9f;
+
+    /**
+     * Marks that the animation hasn't had its first frame yet.
+     */
+    private static final long NOT_STARTED = -1;
 
     /**
      * The selector switch whose knob has to be animated.
      *
      * @see SelectorSwitch
      */
-    private SelectorSwitch selectorSwitch;
+    private final SelectorSwitch selectorSwitch;
 
     /**
      * The selector knob being animated.
      *
      * @see SelectorKnob
      */
-    private SelectorKnob selectorKnob;
+    private final SelectorKnob selectorKnob;
+
+    /**
+     * The angle the knob was at when the animation started.
+     */
+    private float startingAngle;
 
     /**
      * The angle to rotate the knob by.
@@ -33,78 +56,106 @@ class SelectorKnobAnimator extends AsyncTask<Void, Void, Void> {
     private float rotateBy;
 
     /**
-     * The angle increment in which the rotation proceeds.
+     * The duration of the animation in nanoseconds.
+     */
+    private long durationNanos;
+
+    /**
+     * The shortest time, in nanoseconds, between successive updates of the knob's
+     * rotation.
      */
-    private float stepAngle;
+    private long frameIntervalNanos;
 
     /**
-     * The delay, in nanoseconds, between successive increments of
-     * the knob's rotation.
+     * The time of the animation's first frame and of the last frame drawn.
      */
-    private int stepWait;
+    private long startTimeNanos, lastFrameTimeNanos;
 
     /**
-     * Create an Async task to animate the knob's rotation.
+     * Stores whether the animation is running.
+     */
+    private boolean running;
+
+    /**
+     * Creates an animator for the knob of a switch.
      *
-     * @param selectorSwitch <tt>SelectorSwitch</tt> : The SelectorSwitch whose knob has
-     *                       to be animated.
+     * @param selectorSwitch <tt>SelectorSwitch</tt> : The SelectorSwitch whose knob has to
+     *                       be animated.
      * @param selectorKnob   <tt>SelectorKnob</tt> : The SelectorKnob to be animated.
-     * @param rotateBy       <tt>float</tt> : The angle to rotate the knob by.
-     * @param stepAngle      <tt>float</tt> : Angle increment to rotate the knob until
-     *                       the ending angle has been reached.
-     * @param stepWaitNanos  <tt>int</tt> : Delay in nanoseconds between each successive
-     *                       increment of the knob's rotation.
      * @see SelectorSwitch
      * @see SelectorKnob
      */
-    SelectorKnobAnimator(SelectorSwitch selectorSwitch, SelectorKnob selectorKnob,
-                         float rotateBy, float stepAngle, int stepWaitNanos) {
+    SelectorKnobAnimator(SelectorSwitch selectorSwitch, SelectorKnob selectorKnob) {
         this.selectorSwitch = selectorSwitch;
         this.selectorKnob = selectorKnob;
-        this.stepAngle = rotateBy > 0 ? stepAngle : -stepAngle;
-        this.rotateBy = Math.abs(rotateBy);
-        this.stepWait = stepWaitNanos;
     }
 
     /**
-     * Animates the knob by rotating it in increments and waiting 250ns between each increment,
-     * until the knob has been rotated by the desired angle {@link #rotateBy} at which moment
-     * the animation is completed. The method call to the knob, for the actual rotation, is in
-     * the {@link #onProgressUpdate(Object[])}. This method only controls the time delay between
-     * each step increment in the knob's angle.
+     * Starts rotating the knob from its current angle, replacing any animation in flight.
      *
-     * @param params Parameters used. ( None used here. )
-     * @return null
+     * @param rotateBy            <tt>float</tt> : The angle to rotate the knob by.
+     * @param durationMillis      <tt>long</tt> : Duration of the animation in milliseconds.
+     * @param frameIntervalNanos  <tt>long</tt> : The shortest time in nanoseconds between
+     *                            successive updates of the knob's rotation.
      */
-    @Override
-    protected Void doInBackground(Void... params) {
-
-        // Number of iterations.
-        float iter = Math.abs(rotateBy / stepAngle);
-
-        // Rotate with delay.
-        for (float i = 0; i < iter; i++) {
-            synchronized (this) {
-                try {
-                    wait(0, stepWait);
-                    publishProgress();
-                } catch (Exception ignored) {
-                }
-            }
-        }
-        return null;
+    void start(float rotateBy, long durationMillis, long frameIntervalNanos) {
+        this.startingAngle = selectorKnob.getRotation();
+        this.rotateBy = rotateBy;
+        this.durationNanos = durationMillis * 1000000L;
+        this.frameIntervalNanos = frameIntervalNanos;
+        this.startTimeNanos = NOT_STARTED;
+        this.running = true;
+        SelectorAnimationScheduler.getInstance().schedule(this);
+    }
+
+    /**
+     * Stops the animation, leaving the knob wherever it got to. The scheduler drops the
+     * animation on the next frame.
+     */
+    void cancel() {
+        running = false;
     }
 
     /**
-     * Rotates the knob by a specified step angle. This progress is updated repeatedly by
-     * {@link #doInBackground(Object[])} until the knob has been rotated by a net desired
-     * angle {@link #rotateBy}.
+     * Returns whether the animation is running.
      *
-     * @param values Values used. ( None used here. )
-     * @see SelectorKnob#rotateBy(float)
+     * @return {@link #running}
      */
-    protected void onProgressUpdate(Void... values) {
-        selectorKnob.rotateBy(stepAngle);
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Places the knob at the angle matching the elapsed fraction of the animation, unless
+     * the frame comes too soon after the last one drawn.
+     *
+     * @param frameTimeNanos <tt>long</tt> : The time the frame started rendering.
+     * @return running True if the knob hasn't reached its final angle yet.
+     * @see SelectorKnob#rotateTo(float)
+     */
+    @Override
+    boolean doFrame(long frameTimeNanos) {
+        if (!running) {
+            return false;
+        }
+
+        // The animation's clock starts with its first frame.
+        if (startTimeNanos == NOT_STARTED) {
+            startTimeNanos = frameTimeNanos;
+            lastFrameTimeNanos = frameTimeNanos;
+            return true;
+        }
+
+        float fraction = Math.min(1f, (float) (frameTimeNanos - startTimeNanos) / durationNanos);
+        if (fraction < 1 && frameTimeNanos - lastFrameTimeNanos
+                < frameIntervalNanos * FRAME_INTERVAL_TOLERANCE) {
+            return true;
+        }
+
+        lastFrameTimeNanos = frameTimeNanos;
+        selectorKnob.rotateTo(startingAngle + rotateBy * fraction);
         selectorSwitch.invalidate();
+        running = fraction < 1;
+        return running;
     }
 }
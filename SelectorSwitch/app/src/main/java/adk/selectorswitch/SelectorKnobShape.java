@@ -0,0 +1,311 @@
+package adk.selectorswitch;
+
+import java.util.Arrays;
+
+/**
+ * SelectorKnobShape describes the outline of the knob, pointing at an angle of zero degrees,
+ * as a list of drawing commands relative to the point about which the knob rotates. It
+ * doesn't depend on the Android framework, so the same outline can be replayed into an
+ * android.graphics.Path or into any other path type through a {@link PathSink}.
+ * <p>
+ * Shapes are immutable and can be shared between threads and switches.
+ *
+ * @see SelectorKnob
+ * @see SelectorRenderer#drawKnob(SelectorKnobShape, float, float, float, int, float, int)
+ */
+
+public final class SelectorKnobShape {
+
+    /**
+     * Knob has a central radius of {@value knobRadius1DIP} DP units.
+     */
+    private final static int knobRadius1DIP = 4;
+
+    /**
+     * Knob has an outer radius of {@value knobRadius2DIP} DP units.
+     */
+    private final static int knobRadius2DIP = 1;
+
+    /**
+     * Knob has a handle length of {@value knobLengthDIP} DP units.
+     */
+    private final static int knobLengthDIP = 3;
+
+    /**
+     * Knob has a central starting angle of {@value knobCentralStartingAngle} degrees.
+     */
+    private final static int knobCentralStartingAngle = 230;
+
+    /**
+     * Knob has a central sweeping angle of {@value knobCentralSweepingAngle} degrees.
+     */
+    private final static int knobCentralSweepingAngle = 260;
+
+    /**
+     * Knob has a notch starting angle of {@value notchStartingAngle} degrees.
+     */
+    private final static int notchStartingAngle = 90;
+
+    /**
+     * Knob has a notch sweeping angle of {@value notchSweepingAngle} degrees.
+     */
+    private final static int notchSweepingAngle = 180;
+
+    /**
+     * Starts a new contour at (x, y).
+     */
+    private static final byte MOVE_TO = 0;
+
+    /**
+     * Adds a line to (x, y).
+     */
+    private static final byte LINE_TO = 1;
+
+    /**
+     * Adds an arc as a new contour, given its oval and its starting and sweeping angles.
+     */
+    private static final byte ADD_ARC = 2;
+
+    /**
+     * Adds a cubic bezier through two control points to (x, y).
+     */
+    private static final byte CUBIC_TO = 3;
+
+    /**
+     * Closes the current contour.
+     */
+    private static final byte CLOSE = 4;
+
+    /**
+     * Receives the drawing commands of a shape. Coordinates are in pixels and already
+     * translated to the point about which the knob rotates.
+     *
+     * @see #appendTo(PathSink, float, float)
+     */
+    public interface PathSink {
+
+        void moveTo(float x, float y);
+
+        void lineTo(float x, float y);
+
+        void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3);
+
+        void addArc(float left, float top, float right, float bottom, float startAngle,
+                    float sweepAngle);
+
+        void close();
+    }
+
+    /**
+     * The commands of the shape, in order.
+     */
+    private final byte[] commands;
+
+    /**
+     * The arguments of the commands, in order. Points are relative to the point about which
+     * the knob rotates.
+     */
+    private final float[] arguments;
+
+    private SelectorKnobShape(byte[] commands, float[] arguments) {
+        this.commands = commands;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Builds the default knob of the selector switch: a central disc, a notch at its end and
+     * a handle between them, as shown
+     * {@link <a href="https://www.github.com/adk96r/Selector-Switch-UI-Component/">here</a>}.
+     *
+     * @param screenDensity <tt>float</tt> : The density of the screen.
+     * @return shape The default knob for the density.
+     */
+    public static SelectorKnobShape createDefault(float screenDensity) {
+
+        // Set knob dimensions.
+        int knobRadius1 = SelectorGeometry.getPixelsFromDips(knobRadius1DIP, screenDensity);
+        int knobRadius2 = SelectorGeometry.getPixelsFromDips(knobRadius2DIP, screenDensity);
+        int knobLength = SelectorGeometry.getPixelsFromDips(knobLengthDIP, screenDensity);
+
+        Builder builder = new Builder();
+
+        // The central knob.
+        builder.addArc(-knobRadius1, -knobRadius1, knobRadius1, knobRadius1,
+                knobCentralStartingAngle, knobCentralSweepingAngle);
+
+        // The end notch.
+        builder.addArc(-knobRadius1 - knobLength - knobRadius2, -knobRadius2,
+                -knobRadius1 - knobLength + knobRadius2, knobRadius2,
+                notchStartingAngle, notchSweepingAngle);
+
+        // The handle between them.
+        builder.moveTo(-knobLength + knobRadius2 / 2, -knobRadius1 * 3 / 4);
+        builder.lineTo(-knobRadius1 - knobLength, -knobRadius2);
+        builder.lineTo(-knobRadius1 - knobLength, knobRadius2);
+        builder.lineTo(-knobLength + knobRadius2 / 2, knobRadius1 * 3 / 4);
+        builder.close();
+
+        return builder.build();
+    }
+
+    /**
+     * Builds a knob from SVG path data in DP units. The knob rotates about the origin and
+     * points at an angle of zero degrees, towards negative X, like the default knob.
+     *
+     * @param pathData <tt>String</tt> : The SVG path data of the knob.
+     * @return shape The shape of the knob in DP units.
+     * @throws IllegalSelectorException If the path data is not valid.
+     * @see SelectorPathDataParser
+     */
+    public static SelectorKnobShape fromPathData(String pathData)
+            throws IllegalSelectorException {
+        Builder builder = new Builder();
+        SelectorPathDataParser.parse(pathData, builder);
+        return builder.build();
+    }
+
+    /**
+     * Replays the shape into the sink, translated so that the knob rotates about
+     * (pivotX, pivotY).
+     *
+     * @param sink   <tt>PathSink</tt> : The sink to replay the shape into.
+     * @param pivotX <tt>float</tt> : The X coordinate of the point about which the knob
+     *               would rotate.
+     * @param pivotY <tt>float</tt> : The Y coordinate of the point about which the knob
+     *               would rotate.
+     */
+    public void appendTo(PathSink sink, float pivotX, float pivotY) {
+        float[] a = arguments;
+        int i = 0;
+        for (byte command : commands) {
+            switch (command) {
+                case MOVE_TO:
+                    sink.moveTo(pivotX + a[i], pivotY + a[i + 1]);
+                    i += 2;
+                    break;
+                case LINE_TO:
+                    sink.lineTo(pivotX + a[i], pivotY + a[i + 1]);
+                    i += 2;
+                    break;
+                case CUBIC_TO:
+                    sink.cubicTo(pivotX + a[i], pivotY + a[i + 1], pivotX + a[i + 2],
+                            pivotY + a[i + 3], pivotX + a[i + 4], pivotY + a[i + 5]);
+                    i += 6;
+                    break;
+                case ADD_ARC:
+                    sink.addArc(pivotX + a[i], pivotY + a[i + 1], pivotX + a[i + 2],
+                            pivotY + a[i + 3], a[i + 4], a[i + 5]);
+                    i += 6;
+                    break;
+                default:
+                    sink.close();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the shape with every point scaled about the point about which the
+     * knob rotates, for example from DP units to pixels. The angles of arcs are kept.
+     *
+     * @param scale <tt>float</tt> : The factor to scale by.
+     * @return shape The scaled shape.
+     */
+    SelectorKnobShape scaledBy(float scale) {
+        float[] scaled = new float[arguments.length];
+        int i = 0;
+        for (byte command : commands) {
+            int count = command == MOVE_TO || command == LINE_TO ? 2
+                    : command == CUBIC_TO || command == ADD_ARC ? 6 : 0;
+            for (int j = 0; j < count; j++, i++) {
+                // The last two arguments of an arc are its angles.
+                scaled[i] = command == ADD_ARC && j >= 4 ? arguments[i] : arguments[i] * scale;
+            }
+        }
+        return new SelectorKnobShape(commands, scaled);
+    }
+
+    /**
+     * Returns an estimate of the bytes retained by the shape, for bounding caches of shapes.
+     *
+     * @return bytes The estimated size of the shape.
+     */
+    int getByteCount() {
+        // The commands, the arguments and the headers of the shape and of its arrays.
+        return commands.length + 4 * arguments.length + 48;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SelectorKnobShape)) return false;
+        SelectorKnobShape that = (SelectorKnobShape) o;
+        return Arrays.equals(commands, that.commands) && Arrays.equals(arguments, that.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(commands) + Arrays.hashCode(arguments);
+    }
+
+    /**
+     * Records the commands of a shape. Points are relative to the point about which the knob
+     * rotates.
+     */
+    static final class Builder implements PathSink {
+
+        private byte[] commands = new byte[16];
+        private float[] arguments = new float[64];
+        private int commandCount;
+        private int argumentCount;
+
+        @Override
+        public void moveTo(float x, float y) {
+            add(MOVE_TO, x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            add(LINE_TO, x, y);
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            add(CUBIC_TO, x1, y1, x2, y2, x3, y3);
+        }
+
+        @Override
+        public void addArc(float left, float top, float right, float bottom, float startAngle,
+                           float sweepAngle) {
+            add(ADD_ARC, left, top, right, bottom, startAngle, sweepAngle);
+        }
+
+        @Override
+        public void close() {
+            add(CLOSE);
+        }
+
+        /**
+         * Returns the recorded shape.
+         *
+         * @return shape An immutable shape with the recorded commands.
+         */
+        SelectorKnobShape build() {
+            return new SelectorKnobShape(Arrays.copyOf(commands, commandCount),
+                    Arrays.copyOf(arguments, argumentCount));
+        }
+
+        private void add(byte command, float... values) {
+            if (commandCount == commands.length) {
+                commands = Arrays.copyOf(commands, commandCount * 2);
+            }
+            commands[commandCount++] = command;
+            if (argumentCount + values.length > arguments.length) {
+                arguments = Arrays.copyOf(arguments,
+                        Math.max(arguments.length * 2, argumentCount + values.length));
+            }
+            System.arraycopy(values, 0, arguments, argumentCount, values.length);
+            argumentCount += values.length;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package adk.selectorswitch;
+
+/**
+ * SelectorKnobShapeCache turns the SVG path data of custom knobs into
+ * {@link SelectorKnobShape}s and shares them between every switch in the process. Path
+ * data is parsed once into a shape in DP units, and that shape is scaled once per screen
+ * density, so inflating many switches with the same knob neither parses nor converts the
+ * arcs and curves again. The shapes are kept by the {@link SelectorCacheManager}, within
+ * its budget.
+ * <p>
+ * The cache is safe to use from any thread.
+ *
+ * @see SelectorPathDataParser
+ * @see SelectorSwitch#setKnobPathData(String)
+ */
+
+final class SelectorKnobShapeCache {
+
+    private SelectorKnobShapeCache() {
+    }
+
+    /**
+     * Returns the shape described by SVG path data, in DP units. The knob rotates about
+     * the origin and points at an angle of zero degrees, towards negative X, like the
+     * default knob.
+     *
+     * @param pathData <tt>String</tt> : The SVG path data of the knob.
+     * @return shape The shape of the knob in DP units.
+     * @throws IllegalSelectorException If the path data is not valid.
+     */
+    static SelectorKnobShape parse(String pathData) throws IllegalSelectorException {
+        SelectorCacheManager cacheManager = SelectorCacheManager.getInstance();
+        PathDataKey key = new PathDataKey(pathData);
+        SelectorKnobShape shape = (SelectorKnobShape) cacheManager.get(key);
+        if (shape == null) {
+            shape = SelectorKnobShape.fromPathData(pathData);
+            cacheManager.put(key, shape, 2 * pathData.length() + shape.getByteCount());
+        }
+        return shape;
+    }
+
+    /**
+     * Returns a shape in DP units scaled to pixels for a screen density, by the same
+     * conversion as every other dimension of the switch, so that a custom knob is sized
+     * like the default one.
+     *
+     * @param shape         <tt>SelectorKnobShape</tt> : The shape in DP units.
+     * @param screenDensity <tt>float</tt> : The density of the screen.
+     * @return shape The shape in pixels.
+     * @see #parse(String)
+     * @see SelectorGeometry#getPixelsPerDip(float)
+     */
+    static SelectorKnobShape scale(SelectorKnobShape shape, float screenDensity) {
+        SelectorCacheManager cacheManager = SelectorCacheManager.getInstance();
+        ScaledKey key = new ScaledKey(shape, screenDensity);
+        SelectorKnobShape scaled = (SelectorKnobShape) cacheManager.get(key);
+        if (scaled == null) {
+            scaled = shape.scaledBy(SelectorGeometry.getPixelsPerDip(screenDensity));
+            cacheManager.put(key, scaled, scaled.getByteCount());
+        }
+        return scaled;
+    }
+
+    /**
+     * Identifies a shape parsed from path data.
+     */
+    private static final class PathDataKey {
+
+        private final String pathData;
+
+        PathDataKey(String pathData) {
+            this.pathData = pathData;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PathDataKey && pathData.equals(((PathDataKey) o).pathData);
+        }
+
+        @Override
+        public int hashCode() {
+            return pathData.hashCode();
+        }
+    }
+
+    /**
+     * Identifies a shape scaled for a density.
+     */
+    private static final class ScaledKey {
+
+        private final SelectorKnobShape shape;
+        private final float screenDensity;
+
+        ScaledKey(SelectorKnobShape shape, float screenDensity) {
+            this.shape = shape;
+            this.screenDensity = screenDensity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ScaledKey)) return false;
+            ScaledKey that = (ScaledKey) o;
+            return screenDensity == that.screenDensity && shape.equals(that.shape);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * shape.hashCode() + Float.floatToIntBits(screenDensity);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package adk.selectorswitch;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * SelectorKnobSprite is the knob of the selector switch, together with its shadow,
+ * rasterized once into a bitmap. Drawing the sprite with a rotation matrix and bitmap
+ * filtering costs about the same at any angle and on any canvas, whereas drawing the knob's
+ * path with a shadow has to rasterize the arcs, the lines and the blur on every frame, in a
+ * software layer.
+ * <p>
+ * Sprites are shared by every switch drawing the same knob, with the same color and shadow,
+ * through the bitmap cache of the {@link SelectorCacheManager}.
+ *
+ * @see SelectorSwitch#setKnobSpriteEnabled(boolean)
+ */
+
+final class SelectorKnobSprite {
+
+    private final SelectorKnobShape shape;
+    private final int color;
+    private final int shadowRadius;
+    private final int shadowColor;
+
+    /**
+     * Stores the rasterized knob, pointing at an angle of zero degrees.
+     */
+    private final Bitmap bitmap;
+
+    /**
+     * Stores the point in the {@link #bitmap} about which the knob rotates.
+     */
+    private final float pivotX, pivotY;
+
+    private SelectorKnobSprite(SelectorKnobShape shape, int color, int shadowRadius,
+                               int shadowColor) {
+        this.shape = shape;
+        this.color = color;
+        this.shadowRadius = shadowRadius;
+        this.shadowColor = shadowColor;
+
+        Path path = new Path();
+        shape.appendTo(new SelectorKnob.PathSink(path), 0, 0);
+        RectF bounds = new RectF();
+        path.computeBounds(bounds, true);
+
+        // Leave room around the knob for its shadow.
+        int margin = 2 * shadowRadius + 1;
+        this.pivotX = margin - bounds.left;
+        this.pivotY = margin - bounds.top;
+        this.bitmap = Bitmap.createBitmap((int) Math.ceil(bounds.width()) + 2 * margin,
+                (int) Math.ceil(bounds.height()) + 2 * margin, Bitmap.Config.ARGB_8888);
+
+        Canvas canvas = new Canvas(bitmap);
+        canvas.translate(pivotX, pivotY);
+        canvas.drawPath(path, SelectorUtil.createPaintFromColor(color, Paint.Style.FILL,
+                shadowRadius > 0, shadowColor, shadowRadius));
+    }
+
+    /**
+     * Returns the sprite of a knob, from the cache if it has been rasterized before.
+     *
+     * @param shape        <tt>SelectorKnobShape</tt> : The outline of the knob.
+     * @param color        <tt>int</tt> : The color of the knob.
+     * @param shadowRadius <tt>int</tt> : The radius of the knob's shadow in pixels, or 0
+     *                     for no shadow.
+     * @param shadowColor  <tt>int</tt> : The color of the knob's shadow.
+     * @return sprite The sprite of the knob.
+     */
+    static SelectorKnobSprite obtain(SelectorKnobShape shape, int color, int shadowRadius,
+                                     int shadowColor) {
+        SelectorCacheManager cacheManager = SelectorCacheManager.getInstance();
+        Key key = new Key(shape, color, shadowRadius, shadowRadius > 0 ? shadowColor : 0);
+        SelectorKnobSprite sprite = (SelectorKnobSprite) cacheManager.getBitmapBacked(key);
+        if (sprite == null) {
+            // Two threads may both build the same sprite, which only wastes a little work.
+            sprite = new SelectorKnobSprite(shape, color, shadowRadius, shadowColor);
+            cacheManager.putBitmapBacked(key, sprite, sprite.bitmap);
+        }
+        return sprite;
+    }
+
+    /**
+     * Returns whether this sprite is of the given knob, color and shadow. Allocates nothing,
+     * so it can be checked on every frame.
+     *
+     * @param shape        <tt>SelectorKnobShape</tt> : The outline of the knob.
+     * @param color        <tt>int</tt> : The color of the knob.
+     * @param shadowRadius <tt>int</tt> : The radius of the knob's shadow in pixels.
+     * @param shadowColor  <tt>int</tt> : The color of the knob's shadow.
+     * @return matches True if the sprite can be drawn for the knob.
+     */
+    boolean matches(SelectorKnobShape shape, int color, int shadowRadius, int shadowColor) {
+        return this.color == color && this.shadowRadius == shadowRadius
+                && (shadowRadius == 0 || this.shadowColor == shadowColor)
+                && this.shape.equals(shape);
+    }
+
+    /**
+     * Draws the sprite with the knob rotated to an angle about a point.
+     *
+     * @param canvas <tt>Canvas</tt> : The canvas to draw on.
+     * @param matrix <tt>Matrix</tt> : A matrix to reuse for the transformation.
+     * @param paint  <tt>Paint</tt> : A paint with bitmap filtering turned on.
+     * @param x      <tt>float</tt> : The X coordinate of the point about which the knob
+     *               rotates.
+     * @param y      <tt>float</tt> : The Y coordinate of the point about which the knob
+     *               rotates.
+     * @param angle  <tt>float</tt> : The angle the knob points at.
+     */
+    void draw(Canvas canvas, Matrix matrix, Paint paint, float x, float y, float angle) {
+        matrix.setTranslate(x - pivotX, y - pivotY);
+        matrix.postRotate(angle, x, y);
+        canvas.drawBitmap(bitmap, matrix, paint);
+    }
+
+    /**
+     * Identifies the sprite of a knob, color and shadow in the cache.
+     */
+    private static final class Key {
+
+        private final SelectorKnobShape shape;
+        private final int color;
+        private final int shadowRadius;
+        private final int shadowColor;
+
+        Key(SelectorKnobShape shape, int color, int shadowRadius, int shadowColor) {
+            this.shape = shape;
+            this.color = color;
+            this.shadowRadius = shadowRadius;
+            this.shadowColor = shadowColor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return color == that.color && shadowRadius == that.shadowRadius
+                    && shadowColor == that.shadowColor && shape.equals(that.shape);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * shape.hashCode() + color) + shadowRadius) + shadowColor;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package adk.selectorswitch;
+
+/**
+ * SelectorPathDataParser reads SVG path data, as found in the <tt>d</tt> attribute of an SVG
+ * path or the <tt>pathData</tt> of a vector drawable, and replays it into a
+ * {@link SelectorKnobShape.PathSink}. Every command of the SVG grammar is understood, in
+ * both its absolute and its relative form, with implicitly repeated commands and compact
+ * number separators such as <tt>"M1-2.5L.5.5"</tt>. Quadratic curves and elliptical arcs are
+ * converted into cubic curves, so the sink only receives moves, lines, cubics and closes.
+ * <p>
+ * The parser doesn't depend on the Android framework.
+ *
+ * @see SelectorKnobShapeCache
+ */
+
+final class SelectorPathDataParser {
+
+    /**
+     * The largest angle, in radians, spanned by a single cubic approximating an arc.
+     */
+    private static final double MAX_ARC_SEGMENT = Math.PI / 2;
+
+    private final String data;
+    private final SelectorKnobShape.PathSink sink;
+    private int position;
+
+    /**
+     * The current point and the start of the current contour.
+     */
+    private float currentX, currentY, startX, startY;
+
+    /**
+     * The last control point of the previous command, reflected by the smooth curve
+     * commands.
+     */
+    private float controlX, controlY;
+
+    private SelectorPathDataParser(String data, SelectorKnobShape.PathSink sink) {
+        this.data = data;
+        this.sink = sink;
+    }
+
+    /**
+     * Parses path data and replays it into a sink.
+     *
+     * @param data <tt>String</tt> : The SVG path data.
+     * @param sink <tt>PathSink</tt> : The sink to replay the path into.
+     * @throws IllegalSelectorException If the path data is not valid.
+     */
+    static void parse(String data, SelectorKnobShape.PathSink sink)
+            throws IllegalSelectorException {
+        new SelectorPathDataParser(data, sink).parse();
+    }
+
+    private void parse() throws IllegalSelectorException {
+        char command = 0;
+        char previous = 0;
+        while (true) {
+            skipSeparators();
+            if (position == data.length()) {
+                break;
+            }
+
+            char c = data.charAt(position);
+            if (Character.isLetter(c)) {
+                command = c;
+                position++;
+            } else if (command == 0 || command == 'Z' || command == 'z') {
+                throw error("Expected a command");
+            } else if (command == 'M') {
+                // Coordinates following a move are implicit lines.
+                command = 'L';
+            } else if (command == 'm') {
+                command = 'l';
+            }
+
+            boolean relative = Character.isLowerCase(command);
+            float originX = relative ? currentX : 0;
+            float originY = relative ? currentY : 0;
+
+            switch (Character.toUpperCase(command)) {
+                case 'M':
+                    currentX = originX + nextNumber();
+                    currentY = originY + nextNumber();
+                    startX = currentX;
+                    startY = currentY;
+                    sink.moveTo(currentX, currentY);
+                    break;
+                case 'L':
+                    lineTo(originX + nextNumber(), originY + nextNumber());
+                    break;
+                case 'H':
+                    lineTo(originX + nextNumber(), currentY);
+                    break;
+                case 'V':
+                    lineTo(currentX, originY + nextNumber());
+                    break;
+                case 'C': {
+                    float x1 = originX + nextNumber();
+                    float y1 = originY + nextNumber();
+                    float x2 = originX + nextNumber();
+                    float y2 = originY + nextNumber();
+                    cubicTo(x1, y1, x2, y2, originX + nextNumber(), originY + nextNumber());
+                    break;
+                }
+                case 'S': {
+                    boolean smooth = "CcSs".indexOf(previous) >= 0;
+                    float x1 = smooth ? 2 * currentX - controlX : currentX;
+                    float y1 = smooth ? 2 * currentY - controlY : currentY;
+                    float x2 = originX + nextNumber();
+                    float y2 = originY + nextNumber();
+                    cubicTo(x1, y1, x2, y2, originX + nextNumber(), originY + nextNumber());
+                    break;
+                }
+                case 'Q': {
+                    float x1 = originX + nextNumber();
+                    float y1 = originY + nextNumber();
+                    quadTo(x1, y1, originX + nextNumber(), originY + nextNumber());
+                    break;
+                }
+                case 'T': {
+                    boolean smooth = "QqTt".indexOf(previous) >= 0;
+                    float x1 = smooth ? 2 * currentX - controlX : currentX;
+                    float y1 = smooth ? 2 * currentY - controlY : currentY;
+                    quadTo(x1, y1, originX + nextNumber(), originY + nextNumber());
+                    break;
+                }
+                case 'A': {
+                    float radiusX = nextNumber();
+                    float radiusY = nextNumber();
+                    float rotation = nextNumber();
+                    boolean largeArc = nextFlag();
+                    boolean sweep = nextFlag();
+                    arcTo(radiusX, radiusY, rotation, largeArc, sweep,
+                            originX + nextNumber(), originY + nextNumber());
+                    break;
+                }
+                case 'Z':
+                    sink.close();
+                    currentX = startX;
+                    currentY = startY;
+                    break;
+                default:
+                    throw error("Unknown command '" + command + "'");
+            }
+            previous = command;
+        }
+    }
+
+    private void lineTo(float x, float y) {
+        sink.lineTo(x, y);
+        currentX = x;
+        currentY = y;
+    }
+
+    private void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+        sink.cubicTo(x1, y1, x2, y2, x, y);
+        controlX = x2;
+        controlY = y2;
+        currentX = x;
+        currentY = y;
+    }
+
+    /**
+     * Adds a quadratic curve as the cubic curve of the same shape.
+     */
+    private void quadTo(float x1, float y1, float x, float y) {
+        sink.cubicTo(currentX + 2f / 3 * (x1 - currentX), currentY + 2f / 3 * (y1 - currentY),
+                x + 2f / 3 * (x1 - x), y + 2f / 3 * (y1 - y), x, y);
+        controlX = x1;
+        controlY = y1;
+        currentX = x;
+        currentY = y;
+    }
+
+    /**
+     * Adds an elliptical arc, given in SVG's endpoint form, as a series of cubic curves of
+     * at most a quarter turn each, following the conversion to the center form in the
+     * implementation notes of the SVG specification.
+     */
+    private void arcTo(float radiusX, float radiusY, float rotation, boolean largeArc,
+                       boolean sweep, float x, float y) {
+        double x1 = currentX, y1 = currentY;
+        if (x1 == x && y1 == y) {
+            return;
+        }
+        double rx = Math.abs(radiusX), ry = Math.abs(radiusY);
+        if (rx == 0 || ry == 0) {
+            lineTo(x, y);
+            return;
+        }
+
+        double phi = Math.toRadians(rotation);
+        double cosPhi = Math.cos(phi), sinPhi = Math.sin(phi);
+
+        // The start point in the ellipse's own axes, relative to the chord's midpoint.
+        double halfDx = (x1 - x) / 2, halfDy = (y1 - y) / 2;
+        double x1p = cosPhi * halfDx + sinPhi * halfDy;
+        double y1p = -sinPhi * halfDx + cosPhi * halfDy;
+
+        // Scale radii that are too small to span the chord up until they just do.
+        double lambda = (x1p * x1p) / (rx * rx) + (y1p * y1p) / (ry * ry);
+        if (lambda > 1) {
+            rx *= Math.sqrt(lambda);
+            ry *= Math.sqrt(lambda);
+        }
+
+        double numerator = rx * rx * ry * ry - rx * rx * y1p * y1p - ry * ry * x1p * x1p;
+        double denominator = rx * rx * y1p * y1p + ry * ry * x1p * x1p;
+        double coefficient = Math.sqrt(Math.max(0, numerator / denominator));
+        if (largeArc == sweep) {
+            coefficient = -coefficient;
+        }
+        double cxp = coefficient * rx * y1p / ry;
+        double cyp = -coefficient * ry * x1p / rx;
+        double cx = cosPhi * cxp - sinPhi * cyp + (x1 + x) / 2;
+        double cy = sinPhi * cxp + cosPhi * cyp + (y1 + y) / 2;
+
+        double startAngle = angle(1, 0, (x1p - cxp) / rx, (y1p - cyp) / ry);
+        double sweepAngle = angle((x1p - cxp) / rx, (y1p - cyp) / ry,
+                (-x1p - cxp) / rx, (-y1p - cyp) / ry);
+        if (!sweep && sweepAngle > 0) {
+            sweepAngle -= 2 * Math.PI;
+        } else if (sweep && sweepAngle < 0) {
+            sweepAngle += 2 * Math.PI;
+        }
+
+        int segments = (int) Math.ceil(Math.abs(sweepAngle) / MAX_ARC_SEGMENT - 1e-6);
+        double delta = sweepAngle / segments;
+        double handle = 4.0 / 3 * Math.tan(delta / 4);
+        double angle1 = startAngle;
+        for (int i = 0; i < segments; i++) {
+            double angle2 = angle1 + delta;
+            double cos1 = Math.cos(angle1), sin1 = Math.sin(angle1);
+            double cos2 = Math.cos(angle2), sin2 = Math.sin(angle2);
+
+            // The tangents at both ends of the segment.
+            double dx1 = -rx * sin1 * cosPhi - ry * cos1 * sinPhi;
+            double dy1 = -rx * sin1 * sinPhi + ry * cos1 * cosPhi;
+            double dx2 = -rx * sin2 * cosPhi - ry * cos2 * sinPhi;
+            double dy2 = -rx * sin2 * sinPhi + ry * cos2 * cosPhi;
+
+            double endX = cx + rx * cos2 * cosPhi - ry * sin2 * sinPhi;
+            double endY = cy + rx * cos2 * sinPhi + ry * sin2 * cosPhi;
+            if (i == segments - 1) {
+                endX = x;
+                endY = y;
+            }
+
+            sink.cubicTo((float) (currentX + handle * dx1), (float) (currentY + handle * dy1),
+                    (float) (endX - handle * dx2), (float) (endY - handle * dy2),
+                    (float) endX, (float) endY);
+            currentX = (float) endX;
+            currentY = (float) endY;
+            angle1 = angle2;
+        }
+        controlX = currentX;
+        controlY = currentY;
+    }
+
+    /**
+     * Returns the signed angle from one vector to another, in radians.
+     */
+    private static double angle(double ux, double uy, double vx, double vy) {
+        return Math.atan2(ux * vy - uy * vx, ux * vx + uy * vy);
+    }
+
+    private void skipSeparators() {
+        while (position < data.length()) {
+            char c = data.charAt(position);
+            if (c != ',' && !Character.isWhitespace(c)) {
+                break;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Reads a number: an optional sign, digits with at most one decimal point and an
+     * optional exponent. A second decimal point or a sign starts the next number.
+     */
+    private float nextNumber() throws IllegalSelectorException {
+        skipSeparators();
+        int start = position;
+        int length = data.length();
+        if (position < length && (data.charAt(position) == '-' || data.charAt(position) == '+')) {
+            position++;
+        }
+        boolean digits = false;
+        boolean point = false;
+        while (position < length) {
+            char c = data.charAt(position);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+            position++;
+        }
+        if (!digits) {
+            position = start;
+            throw error("Expected a number");
+        }
+        if (position < length && (data.charAt(position) == 'e' || data.charAt(position) == 'E')) {
+            int exponent = position++;
+            if (position < length
+                    && (data.charAt(position) == '-' || data.charAt(position) == '+')) {
+                position++;
+            }
+            int exponentDigits = position;
+            while (position < length && Character.isDigit(data.charAt(position))) {
+                position++;
+            }
+            if (position == exponentDigits) {
+                // Not an exponent after all.
+                position = exponent;
+            }
+        }
+        return Float.parseFloat(data.substring(start, position));
+    }
+
+    /**
+     * Reads an arc flag, which is a single 0 or 1 and may be followed by the next number
+     * without a separator.
+     */
+    private boolean nextFlag() throws IllegalSelectorException {
+        skipSeparators();
+        if (position < data.length()) {
+            char c = data.charAt(position);
+            if (c == '0' || c == '1') {
+                position++;
+                return c == '1';
+            }
+        }
+        throw error("Expected an arc flag");
+    }
+
+    private IllegalSelectorException error(String message) {
+        return new IllegalSelectorException(message + " at index " + position
+                + " of the knob's path data.");
+    }
+}
@@ -0,0 +1,134 @@
+package adk.selectorswitch;
+
+/**
+ * SelectorRenderer is the set of drawing primitives a {@link SelectorScene} needs to draw a
+ * selector switch. It only deals in coordinates, angles and ARGB colors, so a switch can be
+ * drawn onto an android.graphics.Canvas with {@link CanvasSelectorRenderer} or, without the
+ * Android framework, onto a java.awt.image.BufferedImage with the headless Java2D renderer.
+ * <p>
+ * Angles are in degrees and measured clockwise from the positive X axis, as on a Canvas.
+ * A shadow radius of zero draws the shape without a shadow. A renderer is not thread safe;
+ * use one per thread.
+ *
+ * @see SelectorScene#draw(SelectorRenderer, int)
+ */
+
+public interface SelectorRenderer {
+
+    /**
+     * Fills a circle.
+     *
+     * @param centerX      <tt>float</tt> : The X coordinate of the center of the circle.
+     * @param centerY      <tt>float</tt> : The Y coordinate of the center of the circle.
+     * @param radius       <tt>float</tt> : The radius of the circle.
+     * @param color        <tt>int</tt> : The color of the circle.
+     * @param shadowRadius <tt>float</tt> : The radius of the circle's shadow.
+     * @param shadowColor  <tt>int</tt> : The color of the circle's shadow.
+     */
+    void drawCircle(float centerX, float centerY, float radius, int color, float shadowRadius,
+                    int shadowColor);
+
+    /**
+     * Fills a sector of the oval bounded by the given rectangle, joined to its center.
+     *
+     * @param left       <tt>float</tt> : The left edge of the oval.
+     * @param top        <tt>float</tt> : The top edge of the oval.
+     * @param right      <tt>float</tt> : The right edge of the oval.
+     * @param bottom     <tt>float</tt> : The bottom edge of the oval.
+     * @param startAngle <tt>float</tt> : The angle the sector starts at.
+     * @param sweepAngle <tt>float</tt> : The angle the sector sweeps through.
+     * @param color      <tt>int</tt> : The color of the sector.
+     */
+    void drawSector(float left, float top, float right, float bottom, float startAngle,
+                    float sweepAngle, int color);
+
+    /**
+     * Fills the knob, rotated about the given pivot.
+     *
+     * @param shape        <tt>SelectorKnobShape</tt> : The outline of the knob.
+     * @param pivotX       <tt>float</tt> : The X coordinate of the point about which the knob
+     *                     rotates.
+     * @param pivotY       <tt>float</tt> : The Y coordinate of the point about which the knob
+     *                     rotates.
+     * @param angle        <tt>float</tt> : The angle the knob points at.
+     * @param color        <tt>int</tt> : The color of the knob.
+     * @param shadowRadius <tt>float</tt> : The radius of the knob's shadow.
+     * @param shadowColor  <tt>int</tt> : The color of the knob's shadow.
+     */
+    void drawKnob(SelectorKnobShape shape, float pivotX, float pivotY, float angle, int color,
+                  float shadowRadius, int shadowColor);
+
+    /**
+     * Fills the knob like {@link #drawKnob}, but from a bitmap of the knob and its shadow
+     * rasterized once and then only rotated, which is cheaper per frame at the cost of
+     * slightly softer edges. A renderer without sprites draws the knob from its shape.
+     *
+     * @param shape        <tt>SelectorKnobShape</tt> : The outline of the knob.
+     * @param pivotX       <tt>float</tt> : The X coordinate of the point about which the knob
+     *                     rotates.
+     * @param pivotY       <tt>float</tt> : The Y coordinate of the point about which the knob
+     *                     rotates.
+     * @param angle        <tt>float</tt> : The angle the knob points at.
+     * @param color        <tt>int</tt> : The color of the knob.
+     * @param shadowRadius <tt>float</tt> : The radius of the knob's shadow.
+     * @param shadowColor  <tt>int</tt> : The color of the knob's shadow.
+     */
+    void drawKnobSprite(SelectorKnobShape shape, float pivotX, float pivotY, float angle,
+                        int color, float shadowRadius, int shadowColor);
+
+    /**
+     * Draws a straight line with butt ends.
+     *
+     * @param startX      <tt>float</tt> : The X coordinate the line starts at.
+     * @param startY      <tt>float</tt> : The Y coordinate the line starts at.
+     * @param stopX       <tt>float</tt> : The X coordinate the line stops at.
+     * @param stopY       <tt>float</tt> : The Y coordinate the line stops at.
+     * @param strokeWidth <tt>float</tt> : The width of the line.
+     * @param color       <tt>int</tt> : The color of the line.
+     */
+    void drawLine(float startX, float startY, float stopX, float stopY, float strokeWidth,
+                  int color);
+
+    /**
+     * Fills a rectangle with rounded corners.
+     *
+     * @param left         <tt>float</tt> : The left edge of the rectangle.
+     * @param top          <tt>float</tt> : The top edge of the rectangle.
+     * @param right        <tt>float</tt> : The right edge of the rectangle.
+     * @param bottom       <tt>float</tt> : The bottom edge of the rectangle.
+     * @param cornerRadius <tt>float</tt> : The radius of the corners.
+     * @param color        <tt>int</tt> : The color of the rectangle.
+     * @param shadowRadius <tt>float</tt> : The radius of the rectangle's shadow.
+     * @param shadowColor  <tt>int</tt> : The color of the rectangle's shadow.
+     */
+    void drawRoundRect(float left, float top, float right, float bottom, float cornerRadius,
+                       int color, float shadowRadius, int shadowColor);
+
+    /**
+     * Returns the width of the text when drawn at the given size.
+     *
+     * @param text     <tt>String</tt> : The text to measure.
+     * @param textSize <tt>float</tt> : The size of the text in pixels.
+     * @return width The advance width of the text in pixels.
+     */
+    float measureText(String text, float textSize);
+
+    /**
+     * Draws the text with its baseline starting at (x, y).
+     *
+     * @param text     <tt>String</tt> : The text to draw.
+     * @param x        <tt>float</tt> : The X coordinate the text starts at.
+     * @param y        <tt>float</tt> : The Y coordinate of the text's baseline.
+     * @param textSize <tt>float</tt> : The size of the text in pixels.
+     * @param color    <tt>int</tt> : The color of the text.
+     */
+    void drawText(String text, float x, float y, float textSize, int color);
+
+    /**
+     * Turns anti-aliasing on or off for everything drawn from now on. It is on until
+     * turned off.
+     *
+     * @param antiAlias <tt>boolean</tt> : Smooths the edges of shapes and text if true.
+     */
+    void setAntiAlias(boolean antiAlias);
+}
@@ -0,0 +1,526 @@
+package adk.selectorswitch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SelectorScene lays out a selector switch once, from its modes, its colors and the density
+ * of the screen, and draws it through any {@link SelectorRenderer}. It doesn't depend on the
+ * Android framework, so the scene can be drawn onto a Canvas with
+ * {@link CanvasSelectorRenderer} or rendered on a plain JVM, for golden images and
+ * server-side previews, with the headless Java2D renderer.
+ * <p>
+ * This is the only code that draws a switch: {@link SelectorSwitch#onDraw} and
+ * {@link SelectorBitmapRenderer} both draw through a scene, so the golden images cover what
+ * a device shows. What changes from frame to frame, the knob's angle, the level of detail,
+ * the sectors of a dial that is fading or changing its number of modes, the knob's sprite
+ * and the layers to draw, is passed in a {@link Frame}.
+ * <p>
+ * Scenes are immutable, so one scene can be drawn by several threads at once, each with its
+ * own renderer and frame.
+ *
+ * @see SelectorRenderer
+ * @see SelectorGeometry
+ */
+
+public final class SelectorScene {
+
+    /**
+     * Draws the switch with full fidelity: shadows, anti-aliasing and the mode's name.
+     */
+    public static final int LOD_FULL = 1;
+
+    /**
+     * Draws the switch without shadows.
+     */
+    public static final int LOD_REDUCED = 2;
+
+    /**
+     * Draws only the base, the dial and a simple line for the knob, without shadows,
+     * anti-aliasing or the mode's name.
+     */
+    public static final int LOD_MINIMAL = 3;
+
+    /**
+     * The layer of the parts that don't depend on the selected mode: the base and the dial.
+     */
+    public static final int LAYER_DIAL = 1;
+
+    /**
+     * The layer of the parts that follow the selected mode: the knob and the mode's name.
+     */
+    public static final int LAYER_KNOB = 2;
+
+    /**
+     * Both layers, which is the whole switch.
+     */
+    public static final int LAYER_ALL = LAYER_DIAL | LAYER_KNOB;
+
+    private final List<String> modes;
+    private final int[] dialColors;
+    private final int baseColor;
+    private final int shadowColor;
+    private final int modeTextColor;
+
+    private final float modeSweepingAngle;
+    private final int center;
+    private final int baseRadius;
+    private final int dialRadius;
+    private final int knobLineLength;
+    private final int knobLineWidth;
+    private final int baseShadowRadius;
+    private final int knobShadowRadius;
+    private final int modeBaseTop;
+    private final int modeBaseBottom;
+    private final int modeBasePaddingH;
+    private final float modeBaseCornerRadius;
+    private final float modeNameTop;
+    private final int modeTextSize;
+    private final int width;
+    private final int height;
+    private final SelectorKnobShape knobShape;
+
+    /**
+     * Lays out a switch drawn with the default, light, theme colors.
+     *
+     * @param screenDensity <tt>float</tt> : The density of the screen.
+     * @param scaledDensity <tt>float</tt> : The scaled density of the screen, which includes
+     *                      the user's font scale.
+     * @param modes         <tt>List<String></tt> : The names of the modes.
+     * @param dialColors    <tt>List<Integer></tt> : The color of each mode in the dial.
+     * @throws IllegalSelectorException If the number of modes is out of range or if the
+     *                                  number of modes and colors are not equal.
+     */
+    public SelectorScene(float screenDensity, float scaledDensity, List<String> modes,
+                         List<Integer> dialColors) throws IllegalSelectorException {
+        this(screenDensity, scaledDensity, modes, dialColors, SelectorGeometry.BASE_COLOR,
+                SelectorGeometry.SHADOW_COLOR, SelectorGeometry.MODE_TEXT_COLOR);
+    }
+
+    /**
+     * Lays out a switch drawn with the given theme colors.
+     *
+     * @param screenDensity <tt>float</tt> : The density of the screen.
+     * @param scaledDensity <tt>float</tt> : The scaled density of the screen, which includes
+     *                      the user's font scale.
+     * @param modes         <tt>List<String></tt> : The names of the modes.
+     * @param dialColors    <tt>List<Integer></tt> : The color of each mode in the dial.
+     * @param baseColor     <tt>int</tt> : The color of the base, the knob and the mode's base.
+     * @param shadowColor   <tt>int</tt> : The color of the shadows.
+     * @param modeTextColor <tt>int</tt> : The color of the mode's name.
+     * @throws IllegalSelectorException If the number of modes is out of range or if the
+     *                                  number of modes and colors are not equal.
+     */
+    public SelectorScene(float screenDensity, float scaledDensity, List<String> modes,
+                         List<Integer> dialColors, int baseColor, int shadowColor,
+                         int modeTextColor) throws IllegalSelectorException {
+        this(screenDensity, scaledDensity, modes, dialColors, null, baseColor, shadowColor,
+                modeTextColor);
+    }
+
+    /**
+     * Lays out a switch with a custom knob, drawn with the given theme colors.
+     *
+     * @param screenDensity <tt>float</tt> : The density of the screen.
+     * @param scaledDensity <tt>float</tt> : The scaled density of the screen, which includes
+     *                      the user's font scale.
+     * @param modes         <tt>List<String></tt> : The names of the modes.
+     * @param dialColors    <tt>List<Integer></tt> : The color of each mode in the dial.
+     * @param knobShape     <tt>SelectorKnobShape</tt> : The outline of the knob in DP units,
+     *                      or null for the default knob.
+     * @param baseColor     <tt>int</tt> : The color of the base, the knob and the mode's base.
+     * @param shadowColor   <tt>int</tt> : The color of the shadows.
+     * @param modeTextColor <tt>int</tt> : The color of the mode's name.
+     * @throws IllegalSelectorException If the number of modes is out of range or if the
+     *                                  number of modes and colors are not equal.
+     * @see SelectorKnobShape#fromPathData(String)
+     */
+    public SelectorScene(float screenDensity, float scaledDensity, List<String> modes,
+                         List<Integer> dialColors, SelectorKnobShape knobShape, int baseColor,
+                         int shadowColor, int modeTextColor) throws IllegalSelectorException {
+
+        int modeCount = modes.size();
+        if (modeCount < SelectorGeometry.MIN_MODES) {
+            throw new IllegalSelectorException("Not enough modes in the selector dial!");
+        } else if (modeCount > SelectorGeometry.MAX_MODES) {
+            throw new IllegalSelectorException("Too many modes to accommodate in the selector dial!");
+        } else if (dialColors.size() != modeCount) {
+            throw new IllegalSelectorException("Unequal number of modes and colors.");
+        }
+
+        this.modes = Collections.unmodifiableList(new ArrayList<>(modes));
+        this.dialColors = new int[modeCount];
+        for (int i = 0; i < modeCount; i++) {
+            this.dialColors[i] = dialColors.get(i);
+        }
+        this.baseColor = baseColor;
+        this.shadowColor = shadowColor;
+        this.modeTextColor = modeTextColor;
+
+        // Footprint of the switch.
+        int space = SelectorGeometry.getPixelsFromDips(SelectorGeometry.SPACE_DIP, screenDensity);
+        baseRadius = SelectorGeometry.getPixelsFromDips(SelectorGeometry.BASE_RADIUS_DIP,
+                screenDensity);
+        dialRadius = SelectorGeometry.getPixelsFromDips(SelectorGeometry.DIAL_RADIUS_DP,
+                screenDensity);
+        center = space + baseRadius;
+        modeSweepingAngle = SelectorGeometry.getSweepingAngle(modeCount);
+        knobLineLength = dialRadius * 3 / 4;
+        knobLineWidth = SelectorGeometry.getPixelsFromDips(SelectorGeometry.KNOB_LINE_WIDTH_DP,
+                screenDensity);
+
+        // Shadows.
+        baseShadowRadius = SelectorGeometry.getPixelsFromDips(SelectorGeometry.BASE_SHADOW_RADIUS,
+                screenDensity);
+        knobShadowRadius = SelectorGeometry.getPixelsFromDips(SelectorGeometry.KNOB_SHADOW_RADIUS,
+                screenDensity);
+
+        // The mode's base and name.
+        int modeBaseMargin = SelectorGeometry.getPixelsFromDips(
+                SelectorGeometry.MODE_BASE_MARGIN_DP, screenDensity);
+        int modeBasePaddingV = SelectorGeometry.getPixelsFromDips(
+                SelectorGeometry.MODE_BASE_PADDING_V_DP, screenDensity);
+        int modeBaseHeight = SelectorGeometry.getPixelsFromDips(
+                SelectorGeometry.MODE_BASE_HEIGHT_DP, screenDensity);
+        modeBasePaddingH = SelectorGeometry.getPixelsFromDips(
+                SelectorGeometry.MODE_BASE_PADDING_H_DP, screenDensity);
+        modeBaseTop = center + baseRadius + modeBaseMargin;
+        modeBaseBottom = modeBaseTop + modeBaseHeight;
+        modeBaseCornerRadius = modeBaseHeight / 2;
+        modeNameTop = modeBaseTop + modeBasePaddingV + modeBaseHeight / 2;
+        modeTextSize = SelectorGeometry.getPixelsFromDips(SelectorGeometry.MODE_TEXT_SIZE,
+                scaledDensity);
+
+        width = space + (2 * baseRadius) + space;
+        height = space + (2 * baseRadius) + modeBasePaddingV + modeBaseHeight
+                + modeBasePaddingV + space;
+
+        // And the knob, scaled like the custom knob of a switch.
+        this.knobShape = knobShape == null ? SelectorKnobShape.createDefault(screenDensity)
+                : knobShape.scaledBy(SelectorGeometry.getPixelsPerDip(screenDensity));
+    }
+
+    /**
+     * Draws the base, the dial, the knob pointing at the given mode and the mode's name.
+     *
+     * @param renderer <tt>SelectorRenderer</tt> : The renderer to draw with.
+     * @param mode     <tt>int</tt> : The index of the selected mode.
+     */
+    public void draw(SelectorRenderer renderer, int mode) {
+        draw(renderer, mode, mode * modeSweepingAngle);
+    }
+
+    /**
+     * Draws the base, the dial, the knob at the given angle and the name of the given mode,
+     * so that frames of the knob's animation can be rendered too.
+     *
+     * @param renderer  <tt>SelectorRenderer</tt> : The renderer to draw with.
+     * @param mode      <tt>int</tt> : The index of the selected mode.
+     * @param knobAngle <tt>float</tt> : The angle the knob points at.
+     */
+    public void draw(SelectorRenderer renderer, int mode, float knobAngle) {
+        draw(renderer, mode, knobAngle, LOD_FULL, null, false, LAYER_ALL);
+    }
+
+    /**
+     * Draws a frame of the switch, as described by the frame's parameters.
+     *
+     * @param renderer <tt>SelectorRenderer</tt> : The renderer to draw with.
+     * @param frame    <tt>Frame</tt> : The mode, the knob's angle and the other parameters of
+     *                 the frame.
+     * @see Frame
+     */
+    public void draw(SelectorRenderer renderer, Frame frame) {
+        draw(renderer, frame.mode, frame.knobAngle, frame.levelOfDetail, frame.dial,
+                frame.knobSprite, frame.layers);
+    }
+
+    /**
+     * Draws the layers of the switch at a level of detail.
+     *
+     * @param renderer      <tt>SelectorRenderer</tt> : The renderer to draw with.
+     * @param mode          <tt>int</tt> : The index of the selected mode.
+     * @param knobAngle     <tt>float</tt> : The angle the knob points at.
+     * @param levelOfDetail <tt>int</tt> : One of the LOD_ constants.
+     * @param dial          <tt>Dial</tt> : The sectors to draw, or null for one sector per
+     *                      mode in the scene's colors.
+     * @param knobSprite    <tt>boolean</tt> : Draws the knob from a sprite if true.
+     * @param layers        <tt>int</tt> : The LAYER_ constants of the layers to draw.
+     */
+    private void draw(SelectorRenderer renderer, int mode, float knobAngle, int levelOfDetail,
+                      Dial dial, boolean knobSprite, int layers) {
+
+        boolean minimal = levelOfDetail == LOD_MINIMAL;
+        boolean shadows = levelOfDetail == LOD_FULL;
+        if (minimal) {
+            renderer.setAntiAlias(false);
+        }
+
+        if ((layers & LAYER_DIAL) != 0) {
+            // Draw the base with shadow.
+            renderer.drawCircle(center, center, baseRadius, baseColor,
+                    shadows ? baseShadowRadius : 0, shadowColor);
+
+            // Draw the selector dial, one sector per mode unless the dial says otherwise.
+            int sectorCount = dial == null ? dialColors.length : dial.getSectorCount();
+            for (int i = 0; i < sectorCount; i++) {
+                renderer.drawSector(center - dialRadius, center - dialRadius,
+                        center + dialRadius, center + dialRadius,
+                        dial == null ? (i + 1) * modeSweepingAngle
+                                : dial.getSectorStartingAngle(i),
+                        dial == null ? modeSweepingAngle : dial.getSectorSweepingAngle(i),
+                        dial == null ? dialColors[i] : dial.getSectorColor(i));
+            }
+        }
+
+        if ((layers & LAYER_KNOB) != 0) {
+            if (minimal) {
+                // Tiny switches get a simple line for the knob and no mode's name.
+                double angle = Math.toRadians(180 + knobAngle);
+                renderer.drawLine(center, center,
+                        center + (float) (knobLineLength * Math.cos(angle)),
+                        center + (float) (knobLineLength * Math.sin(angle)),
+                        knobLineWidth, baseColor);
+            } else {
+                // Draw the knob and the notch.
+                int knobShadow = shadows ? knobShadowRadius : 0;
+                if (knobSprite) {
+                    renderer.drawKnobSprite(knobShape, center, center, knobAngle, baseColor,
+                            knobShadow, shadowColor);
+                } else {
+                    renderer.drawKnob(knobShape, center, center, knobAngle, baseColor,
+                            knobShadow, shadowColor);
+                }
+
+                // Draw the mode's base and show the current mode.
+                String name = modes.get(mode);
+                float halfWidth = renderer.measureText(name, modeTextSize) / 2;
+                renderer.drawRoundRect(center - halfWidth - modeBasePaddingH, modeBaseTop,
+                        center + halfWidth + modeBasePaddingH, modeBaseBottom,
+                        modeBaseCornerRadius, baseColor, shadows ? baseShadowRadius : 0,
+                        shadowColor);
+                renderer.drawText(name, center - halfWidth, modeNameTop, modeTextSize,
+                        modeTextColor);
+            }
+        }
+
+        if (minimal) {
+            renderer.setAntiAlias(true);
+        }
+    }
+
+    /**
+     * Returns the names of the modes.
+     *
+     * @return modes An unmodifiable list of the modes.
+     */
+    public List<String> getModes() {
+        return modes;
+    }
+
+    /**
+     * Returns the number of modes in the dial.
+     *
+     * @return modeCount The number of modes.
+     */
+    public int getModeCount() {
+        return dialColors.length;
+    }
+
+    /**
+     * Returns the angle between the starting angles of two successive modes, which is also
+     * the angle the knob turns through per mode.
+     *
+     * @return angle The sweeping angle of every mode.
+     */
+    public float getModeSweepingAngle() {
+        return modeSweepingAngle;
+    }
+
+    /**
+     * Returns the color a mode has in the dial.
+     *
+     * @param mode <tt>int</tt> : The index of the mode.
+     * @return color The color of the mode.
+     */
+    public int getDialColor(int mode) {
+        return dialColors[mode];
+    }
+
+    /**
+     * Returns the color of the base, the knob and the mode's base.
+     *
+     * @return {@link #baseColor}
+     */
+    public int getBaseColor() {
+        return baseColor;
+    }
+
+    /**
+     * Returns the color of the shadows.
+     *
+     * @return {@link #shadowColor}
+     */
+    public int getShadowColor() {
+        return shadowColor;
+    }
+
+    /**
+     * Returns the color of the mode's name.
+     *
+     * @return {@link #modeTextColor}
+     */
+    public int getModeTextColor() {
+        return modeTextColor;
+    }
+
+    /**
+     * Returns the width of the switch, without the padding from a layout.
+     *
+     * @return width The width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the switch, without the padding from a layout.
+     *
+     * @return height The height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * The sectors of a dial as they are to be drawn now, which differ from one sector per
+     * mode while the dial's colors fade or its number of modes changes.
+     *
+     * @see Frame#setDial(Dial)
+     */
+    public interface Dial {
+
+        /**
+         * Returns the number of sectors to draw.
+         *
+         * @return sectorCount The number of sectors.
+         */
+        int getSectorCount();
+
+        /**
+         * Returns the angle at which a sector starts.
+         *
+         * @param sector <tt>int</tt> : The index of the sector.
+         * @return startingAngle The starting angle of the sector.
+         */
+        float getSectorStartingAngle(int sector);
+
+        /**
+         * Returns the angle a sector sweeps.
+         *
+         * @param sector <tt>int</tt> : The index of the sector.
+         * @return sweepingAngle The sweeping angle of the sector.
+         */
+        float getSectorSweepingAngle(int sector);
+
+        /**
+         * Returns the color of a sector.
+         *
+         * @param sector <tt>int</tt> : The index of the sector.
+         * @return color The color of the sector.
+         */
+        int getSectorColor(int sector);
+    }
+
+    /**
+     * The parameters of one frame of a scene. A frame is mutable and meant to be kept and
+     * reused, so that drawing a scene on every frame doesn't allocate. By default it draws
+     * both layers of the first mode at {@link #LOD_FULL}, with the knob pointing at the
+     * mode, drawn from its path, and the dial in the scene's colors.
+     *
+     * @see SelectorScene#draw(SelectorRenderer, Frame)
+     */
+    public static final class Frame {
+
+        private int mode;
+        private float knobAngle;
+        private int levelOfDetail = LOD_FULL;
+        private Dial dial;
+        private boolean knobSprite;
+        private int layers = LAYER_ALL;
+
+        /**
+         * Sets the selected mode, whose name is shown.
+         *
+         * @param mode <tt>int</tt> : The index of the selected mode.
+         * @return frame This frame.
+         */
+        public Frame setMode(int mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        /**
+         * Sets the angle the knob points at, which may be between two modes while the knob
+         * turns.
+         *
+         * @param knobAngle <tt>float</tt> : The angle of the knob.
+         * @return frame This frame.
+         */
+        public Frame setKnobAngle(float knobAngle) {
+            this.knobAngle = knobAngle;
+            return this;
+        }
+
+        /**
+         * Sets the level of detail to draw at.
+         *
+         * @param levelOfDetail <tt>int</tt> : One of {@link #LOD_FULL}, {@link #LOD_REDUCED}
+         *                      or {@link #LOD_MINIMAL}.
+         * @return frame This frame.
+         */
+        public Frame setLevelOfDetail(int levelOfDetail) {
+            this.levelOfDetail = levelOfDetail;
+            return this;
+        }
+
+        /**
+         * Sets the sectors of the dial to draw instead of the scene's own.
+         *
+         * @param dial <tt>Dial</tt> : The sectors of the dial, or null for one sector per
+         *             mode in the scene's colors.
+         * @return frame This frame.
+         */
+        public Frame setDial(Dial dial) {
+            this.dial = dial;
+            return this;
+        }
+
+        /**
+         * Draws the knob from a sprite rasterized once by the renderer, instead of from its
+         * path.
+         *
+         * @param knobSprite <tt>boolean</tt> : Draws the knob from a sprite if true.
+         * @return frame This frame.
+         * @see SelectorRenderer#drawKnobSprite
+         */
+        public Frame setKnobSprite(boolean knobSprite) {
+            this.knobSprite = knobSprite;
+            return this;
+        }
+
+        /**
+         * Sets the layers to draw, for example to draw only the knob and the mode's name
+         * over a cached image of the dial.
+         *
+         * @param layers <tt>int</tt> : {@link #LAYER_DIAL}, {@link #LAYER_KNOB} or
+         *               {@link #LAYER_ALL}.
+         * @return frame This frame.
+         */
+        public Frame setLayers(int layers) {
+            this.layers = layers;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package adk.selectorswitch;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SelectorSpec is an immutable description of everything a {@link SelectorSwitch} needs to
+ * draw its modes: the names of the modes, their colors, the default mode, the angles of the
+ * dial, the path of the knob and the {@link SelectorScene} the switch is drawn from with the
+ * default theme colors.
+ * <p>
+ * A spec is created with a {@link Builder}, which does all of the computation up front and
+ * can therefore be used on any thread. Once built, the spec can be handed to one or more
+ * switches on the UI thread via {@link SelectorSwitch#applySpec(SelectorSpec)}, which only
+ * swaps the precomputed values in. Specs can also be built ahead of time with
+ * {@link SelectorWarmUp}, in which case switches inflated later with the same configuration
+ * pick them up in their constructor.
+ *
+ * @see SelectorSwitch
+ * @see SelectorDial
+ * @see SelectorKnob
+ */
+public final class SelectorSpec {
+
+    /**
+     * The density of the screen the spec was built for.
+     */
+    private final float screenDensity;
+
+    /**
+     * The scaled density, which includes the user's font scale, the spec was built for.
+     */
+    private final float scaledDensity;
+
+    /**
+     * The names of the modes.
+     */
+    private final List<String> modes;
+
+    /**
+     * The colors of the modes in the dial.
+     */
+    private final List<Integer> dialColors;
+
+    /**
+     * The mode selected when the switch is reset, for example by a long click.
+     */
+    private final int defaultMode;
+
+    /**
+     * The paints used to draw each mode in the dial.
+     */
+    private final List<Paint> dialPaints;
+
+    /**
+     * The angle between two successive modes in the dial.
+     */
+    private final float modeSweepingAngle;
+
+    /**
+     * The starting angle for each mode in the dial.
+     */
+    private final List<Float> modeStartingAngles;
+
+    /**
+     * The path of the knob pointing at an angle of zero degrees.
+     */
+    private final Path knobPath;
+
+    /**
+     * The coordinate of the center of the switch along both axes.
+     */
+    private final int center;
+
+    /**
+     * The layout of the switch, drawn with the default theme colors.
+     */
+    private final SelectorScene scene;
+
+    /**
+     * Creates a spec from the values computed by the builder.
+     *
+     * @param builder <tt>Builder</tt> : The builder holding the computed values.
+     */
+    private SelectorSpec(Builder builder) {
+        this.screenDensity = builder.screenDensity;
+        this.scaledDensity = builder.scaledDensity;
+        this.modes = Collections.unmodifiableList(builder.modes);
+        this.dialColors = Collections.unmodifiableList(builder.dialColors);
+        this.defaultMode = builder.defaultMode;
+        this.dialPaints = Collections.unmodifiableList(builder.dialPaints);
+        this.modeSweepingAngle = builder.modeSweepingAngle;
+        this.modeStartingAngles = Collections.unmodifiableList(builder.modeStartingAngles);
+        this.knobPath = builder.knobPath;
+        this.center = builder.center;
+        this.scene = builder.scene;
+    }
+
+    /**
+     * Returns the density of the screen the spec was built for.
+     *
+     * @return {@link #screenDensity}
+     */
+    public float getScreenDensity() {
+        return screenDensity;
+    }
+
+    /**
+     * Returns the scaled density, which includes the user's font scale, the spec was built
+     * for.
+     *
+     * @return {@link #scaledDensity}
+     */
+    public float getScaledDensity() {
+        return scaledDensity;
+    }
+
+    /**
+     * Returns the number of modes described by the spec.
+     *
+     * @return modeCount The number of modes.
+     */
+    public int getModeCount() {
+        return modes.size();
+    }
+
+    /**
+     * Returns the mode selected when the switch is reset.
+     *
+     * @return {@link #defaultMode}
+     */
+    public int getDefaultMode() {
+        return defaultMode;
+    }
+
+    /**
+     * Returns the names of the modes.
+     *
+     * @return {@link #modes}
+     */
+    public List<String> getModes() {
+        return modes;
+    }
+
+    /**
+     * Returns the colors of the modes in the dial.
+     *
+     * @return {@link #dialColors}
+     */
+    public List<Integer> getDialColors() {
+        return dialColors;
+    }
+
+    /**
+     * Returns the paints used to draw each mode in the dial.
+     *
+     * @return {@link #dialPaints}
+     */
+    List<Paint> getDialPaints() {
+        return dialPaints;
+    }
+
+    /**
+     * Returns the angle between two successive modes in the dial.
+     *
+     * @return {@link #modeSweepingAngle}
+     */
+    float getModeSweepingAngle() {
+        return modeSweepingAngle;
+    }
+
+    /**
+     * Returns the starting angle for each mode in the dial.
+     *
+     * @return {@link #modeStartingAngles}
+     */
+    List<Float> getModeStartingAngles() {
+        return modeStartingAngles;
+    }
+
+    /**
+     * Returns the path of the knob pointing at an angle of zero degrees. The path is shared
+     * by every switch the spec is applied to and must not be modified.
+     *
+     * @return {@link #knobPath}
+     */
+    Path getKnobPath() {
+        return knobPath;
+    }
+
+    /**
+     * Returns the width of the switch in pixels, without the layout's padding.
+     *
+     * @return width The width of the {@link #scene}.
+     */
+    public int getWidth() {
+        return scene.getWidth();
+    }
+
+    /**
+     * Returns the height of the switch in pixels, without the layout's padding.
+     *
+     * @return height The height of the {@link #scene}.
+     */
+    public int getHeight() {
+        return scene.getHeight();
+    }
+
+    /**
+     * Returns the coordinate of the center of the switch along both axes.
+     *
+     * @return {@link #center}
+     */
+    int getCenter() {
+        return center;
+    }
+
+    /**
+     * Returns the layout of the switch, drawn with the default theme colors.
+     *
+     * @return {@link #scene}
+     * @see SelectorBitmapRenderer
+     */
+    SelectorScene getScene() {
+        return scene;
+    }
+
+    /**
+     * Builder for {@link SelectorSpec}. Does not touch any view and can be used on any thread,
+     * so that the work of configuring a switch can be moved off the UI thread.
+     */
+    public static final class Builder {
+
+        private final float screenDensity;
+        private final float scaledDensity;
+        private List<String> modes = SelectorSwitch.DEFAULT_MODES;
+        private List<Integer> colors;
+        private int startingColor;
+        private int endingColor;
+        private boolean blendColors;
+        private int defaultMode;
+
+        private List<Integer> dialColors;
+        private List<Paint> dialPaints;
+        private float modeSweepingAngle;
+        private List<Float> modeStartingAngles;
+        private Path knobPath;
+        private int center;
+        private SelectorScene scene;
+
+        /**
+         * Creates a builder for the density of the screen of the given context.
+         *
+         * @param context <tt>Context</tt> : The context used to get the screen's density.
+         */
+        public Builder(@NonNull Context context) {
+            this(context.getTheme().getResources().getDisplayMetrics().density,
+                    context.getTheme().getResources().getDisplayMetrics().scaledDensity);
+        }
+
+        /**
+         * Creates a builder for the given screen density, with the default font scale.
+         *
+         * @param screenDensity <tt>float</tt> : The density of the screen.
+         */
+        public Builder(float screenDensity) {
+            this(screenDensity, screenDensity);
+        }
+
+        /**
+         * Creates a builder for the given screen density and scaled density.
+         *
+         * @param screenDensity <tt>float</tt> : The density of the screen.
+         * @param scaledDensity <tt>float</tt> : The scaled density of the screen, which
+         *                      includes the user's font scale.
+         */
+        public Builder(float screenDensity, float scaledDensity) {
+            this.screenDensity = screenDensity;
+            this.scaledDensity = scaledDensity;
+        }
+
+        /**
+         * Sets the names of the modes. Defaults to {@link SelectorSwitch#DEFAULT_MODES}.
+         *
+         * @param modes <tt>List<String></tt> : The names of the modes.
+         * @return this builder.
+         */
+        public Builder setModes(@NonNull List<String> modes) {
+            this.modes = new ArrayList<>(modes);
+            return this;
+        }
+
+        /**
+         * Sets a color for every mode. There must be exactly one color per mode.
+         *
+         * @param colors <tt>List<Integer></tt> : The colors of the modes.
+         * @return this builder.
+         */
+        public Builder setDialColors(@NonNull List<Integer> colors) {
+            this.colors = new ArrayList<>(colors);
+            this.blendColors = false;
+            return this;
+        }
+
+        /**
+         * Sets the colors of the modes by blending from a starting to an ending color.
+         *
+         * @param startingColor <tt>int</tt> : The color of the first mode.
+         * @param endingColor   <tt>int</tt> : The color of the last mode.
+         * @return this builder.
+         * @see SelectorUtil#generateBlendingColors(int, int, int)
+         */
+        public Builder setDialColors(int startingColor, int endingColor) {
+            this.startingColor = startingColor;
+            this.endingColor = endingColor;
+            this.blendColors = true;
+            this.colors = null;
+            return this;
+        }
+
+        /**
+         * Sets the mode selected when the switch is reset. Defaults to the first mode.
+         *
+         * @param defaultMode <tt>int</tt> : The index of the default mode.
+         * @return this builder.
+         */
+        public Builder setDefaultMode(int defaultMode) {
+            this.defaultMode = defaultMode;
+            return this;
+        }
+
+        /**
+         * Computes the colors, paints, angles, knob path and scene and returns the resulting
+         * spec.
+         *
+         * @return spec The immutable spec.
+         * @throws IllegalSelectorException If the number of modes is out of range, if the
+         *                                  number of modes and colors are not equal or if
+         *                                  there is no such default mode.
+         */
+        public SelectorSpec build() throws IllegalSelectorException {
+
+            int modeCount = modes.size();
+            if (modeCount < SelectorGeometry.MIN_MODES) {
+                throw new IllegalSelectorException("Not enough modes in the selector dial!");
+            } else if (modeCount > SelectorGeometry.MAX_MODES) {
+                throw new IllegalSelectorException("Too many modes to accommodate in the selector dial!");
+            }
+            if (defaultMode < 0 || defaultMode >= modeCount) {
+                throw new IllegalSelectorException("No mode " + defaultMode + " in the selector dial!");
+            }
+
+            // Colors and paints of the dial.
+            if (blendColors) {
+                dialColors = SelectorUtil.generateBlendingColors(modeCount, startingColor, endingColor);
+            } else if (colors == null && modes == SelectorSwitch.DEFAULT_MODES) {
+                dialColors = new ArrayList<>(SelectorSwitch.DEFAULT_DIAL_COLORS);
+            } else if (colors != null && colors.size() == modeCount) {
+                dialColors = colors;
+            } else {
+                throw new IllegalSelectorException("Unequal number of modes and colors.");
+            }
+            dialPaints = SelectorUtil.generateDialPaints(modeCount, dialColors);
+
+            // Angles of the dial.
+            modeSweepingAngle = SelectorUtil.getSweepingAngle(modeCount);
+            modeStartingAngles = SelectorUtil.generateStartingAngles(modeCount, modeSweepingAngle);
+
+            // The center of the switch.
+            center = SelectorUtil.getPixelsFromDips(SelectorGeometry.SPACE_DIP, screenDensity)
+                    + SelectorUtil.getPixelsFromDips(SelectorGeometry.BASE_RADIUS_DIP,
+                    screenDensity);
+
+            // The scene the switch is drawn from, which lays out the rest.
+            scene = new SelectorScene(screenDensity, scaledDensity, modes, dialColors);
+
+            // And the knob.
+            knobPath = new Path();
+            SelectorKnob.buildKnobPath(knobPath, center, center, screenDensity);
+
+            return new SelectorSpec(this);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package adk.selectorswitch;
+
+import java.util.List;
+
+/**
+ * SelectorSpecCache keeps the most recently built {@link SelectorSpec} instances, keyed by
+ * their modes, colors and densities, so that a switch being initialised with the same
+ * configuration can take the precomputed dial and knob path instead of computing them
+ * again. Specs are immutable, so they are shared freely between threads and
+ * switches. The specs are kept by the {@link SelectorCacheManager}, within its budget.
+ *
+ * @see SelectorWarmUp
+ * @see SelectorSwitch
+ */
+
+final class SelectorSpecCache {
+
+    /**
+     * A rough estimate of the bytes retained by a spec regardless of its modes: the scene,
+     * the knob's path and the spec itself.
+     */
+    private static final int SPEC_BYTES = 2048;
+
+    /**
+     * A rough estimate of the bytes retained by a spec for each of its modes: the name, the
+     * color, the paint and the angle.
+     */
+    private static final int MODE_BYTES = 256;
+
+    private SelectorSpecCache() {
+    }
+
+    /**
+     * Adds a spec to the cache, replacing any spec of the same configuration.
+     *
+     * @param spec <tt>SelectorSpec</tt> : The spec to keep.
+     */
+    static void put(SelectorSpec spec) {
+        Key key = new Key(spec.getScreenDensity(), spec.getScaledDensity(), spec.getModes(),
+                spec.getDialColors());
+        SelectorCacheManager.getInstance().put(key, spec,
+                SPEC_BYTES + MODE_BYTES * spec.getModeCount());
+    }
+
+    /**
+     * Returns the cached spec of a configuration, if there is one.
+     *
+     * @param screenDensity <tt>float</tt> : The density of the screen.
+     * @param scaledDensity <tt>float</tt> : The scaled density of the screen.
+     * @param modes         <tt>List<String></tt> : The names of the modes.
+     * @param dialColors    <tt>List<Integer></tt> : The color of each mode.
+     * @return spec The cached spec, or null.
+     */
+    static SelectorSpec get(float screenDensity, float scaledDensity, List<String> modes,
+                            List<Integer> dialColors) {
+        Key key = new Key(screenDensity, scaledDensity, modes, dialColors);
+        return (SelectorSpec) SelectorCacheManager.getInstance().get(key);
+    }
+
+    /**
+     * Empties the cache, along with every other cached resource that isn't backed by a
+     * bitmap.
+     *
+     * @see SelectorCacheManager
+     */
+    static void clear() {
+        SelectorCacheManager.getInstance().clearObjects();
+    }
+
+    /**
+     * Identifies the configuration of a spec.
+     */
+    private static final class Key {
+
+        private final float screenDensity;
+        private final float scaledDensity;
+        private final List<String> modes;
+        private final List<Integer> dialColors;
+        private final int hashCode;
+
+        Key(float screenDensity, float scaledDensity, List<String> modes,
+            List<Integer> dialColors) {
+            this.screenDensity = screenDensity;
+            this.scaledDensity = scaledDensity;
+            this.modes = modes;
+            this.dialColors = dialColors;
+            this.hashCode = 31 * (31 * (31 * Float.floatToIntBits(screenDensity)
+                    + Float.floatToIntBits(scaledDensity)) + modes.hashCode())
+                    + dialColors.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return screenDensity == that.screenDensity && scaledDensity == that.scaledDensity
+                    && modes.equals(that.modes) && dialColors.equals(that.dialColors);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package adk.selectorswitch;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+import android.util.DisplayMetrics;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SelectorSpecReader streams switch definitions out of a JSON document with a pull parser
+ * and turns them into {@link SelectorSpec}s one at a time, as they are asked for. Only the
+ * definition being read is held in memory, so a panel of hundreds of switches loads in
+ * bounded memory, and reading can stop at any point.
+ * <p>
+ * The document is either an array of definitions or an object whose <tt>"switches"</tt>
+ * member is one. Each definition is an object with these members, all optional:
+ * <pre>
+ *   {
+ *     "modes":       ["OFF", "LOW", "HIGH"],        // the names of the modes
+ *     "count":       3,                             // the number of modes
+ *     "colors":      ["#FF0000", "#00FF00", ...],   // a color for every mode, or
+ *     "startColor":  "#FF0000",                     // colors blended from a starting
+ *     "endColor":    "#0000FF",                     // to an ending color
+ *     "defaultMode": 0                              // the mode selected on reset
+ *   }
+ * </pre>
+ * Colors are either strings understood by {@link Color#parseColor(String)} or integers.
+ * Without <tt>"modes"</tt>, the <tt>"count"</tt> modes are named after their numbers,
+ * starting from 1; without either, the {@link SelectorSwitch#DEFAULT_MODES} are used.
+ * Unknown members are skipped, so newer documents can be read by older readers.
+ * <p>
+ * An invalid definition is read to its end before {@link #next()} reports it, so the
+ * remaining definitions can still be read. Reading touches the disk or the network; do it
+ * off the UI thread and hand the specs over with
+ * {@link SelectorSwitch#applySpec(SelectorSpec)}.
+ *
+ * @see SelectorSpec.Builder
+ * @see SelectorWarmUp
+ */
+public final class SelectorSpecReader implements Closeable {
+
+    /**
+     * The name of the member holding the definitions when the document is an object.
+     */
+    public static final String SWITCHES = "switches";
+
+    private static final String MODES = "modes";
+    private static final String COUNT = "count";
+    private static final String COLORS = "colors";
+    private static final String START_COLOR = "startColor";
+    private static final String END_COLOR = "endColor";
+    private static final String DEFAULT_MODE = "defaultMode";
+
+    private static final int STATE_NOT_STARTED = 0;
+    private static final int STATE_IN_ARRAY = 1;
+    private static final int STATE_DONE = 2;
+
+    private final JsonReader reader;
+    private final float screenDensity;
+    private final float scaledDensity;
+    private int state = STATE_NOT_STARTED;
+
+    /**
+     * Creates a reader of definitions for the density of the screen of the given context.
+     *
+     * @param context <tt>Context</tt> : The context used to get the screen's density.
+     * @param input   <tt>Reader</tt> : The JSON document.
+     */
+    public SelectorSpecReader(@NonNull Context context, @NonNull Reader input) {
+        this(input, context.getTheme().getResources().getDisplayMetrics());
+    }
+
+    /**
+     * Creates a reader of definitions for the given screen density and scaled density.
+     *
+     * @param input         <tt>Reader</tt> : The JSON document.
+     * @param screenDensity <tt>float</tt> : The density of the screen.
+     * @param scaledDensity <tt>float</tt> : The scaled density of the screen, which
+     *                      includes the user's font scale.
+     */
+    public SelectorSpecReader(@NonNull Reader input, float screenDensity, float scaledDensity) {
+        this.reader = new JsonReader(input);
+        this.screenDensity = screenDensity;
+        this.scaledDensity = scaledDensity;
+    }
+
+    private SelectorSpecReader(Reader input, DisplayMetrics displayMetrics) {
+        this(input, displayMetrics.density, displayMetrics.scaledDensity);
+    }
+
+    /**
+     * Opens a reader of the definitions in a JSON file of the app's assets.
+     *
+     * @param context   <tt>Context</tt> : The context used to open the asset and to get
+     *                  the screen's density.
+     * @param assetName <tt>String</tt> : The path of the file within the assets.
+     * @return reader A reader that must be closed once done with.
+     * @throws IOException If the asset can't be opened.
+     */
+    @WorkerThread
+    public static SelectorSpecReader openAsset(@NonNull Context context,
+                                               @NonNull String assetName) throws IOException {
+        Reader input = new BufferedReader(
+                new InputStreamReader(context.getAssets().open(assetName), "UTF-8"));
+        return new SelectorSpecReader(context, input);
+    }
+
+    /**
+     * Returns whether there is another definition to read.
+     *
+     * @return hasNext True if {@link #next()} will return a definition.
+     * @throws IOException If the document can't be read or isn't valid JSON.
+     */
+    @WorkerThread
+    public boolean hasNext() throws IOException {
+        if (state == STATE_NOT_STARTED) {
+            begin();
+        }
+        if (state == STATE_IN_ARRAY && !reader.hasNext()) {
+            state = STATE_DONE;
+        }
+        return state == STATE_IN_ARRAY;
+    }
+
+    /**
+     * Reads the next definition and builds its spec.
+     *
+     * @return spec The spec of the switch.
+     * @throws IOException              If the document can't be read or isn't valid JSON,
+     *                                  or if there are no more definitions.
+     * @throws IllegalSelectorException If the definition isn't a valid switch. The reader
+     *                                  can still be used to read the next definition.
+     */
+    @WorkerThread
+    public SelectorSpec next() throws IOException, IllegalSelectorException {
+        return nextBuilder().build();
+    }
+
+    /**
+     * Reads the next definition into a builder without building the spec, for example to
+     * pre-build it later with {@link SelectorWarmUp}.
+     *
+     * @return builder A builder configured with the definition.
+     * @throws IOException              If the document can't be read or isn't valid JSON,
+     *                                  or if there are no more definitions.
+     * @throws IllegalSelectorException If the definition isn't a valid switch. The reader
+     *                                  can still be used to read the next definition.
+     */
+    @WorkerThread
+    public SelectorSpec.Builder nextBuilder() throws IOException, IllegalSelectorException {
+        if (!hasNext()) {
+            throw new IOException("No more switch definitions.");
+        }
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            throw new IllegalSelectorException("A switch definition must be an object.");
+        }
+
+        List<String> modes = null;
+        int count = -1;
+        List<Integer> colors = null;
+        Integer startColor = null;
+        Integer endColor = null;
+        int defaultMode = 0;
+        String error = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+            if (MODES.equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                modes = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() == JsonToken.STRING) {
+                        modes.add(reader.nextString());
+                    } else {
+                        reader.skipValue();
+                        error = "The names of the modes must be strings.";
+                    }
+                }
+                reader.endArray();
+            } else if (COUNT.equals(name) && token == JsonToken.NUMBER) {
+                Long value = nextInteger();
+                if (value == null || value < 0 || value > Integer.MAX_VALUE) {
+                    error = "The number of modes must be a whole number of at least 0.";
+                } else {
+                    count = value.intValue();
+                }
+            } else if (COLORS.equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                colors = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Integer color = nextColor();
+                    if (color != null) {
+                        colors.add(color);
+                    } else {
+                        error = "Invalid color in the switch definition.";
+                    }
+                }
+                reader.endArray();
+            } else if (START_COLOR.equals(name)) {
+                startColor = nextColor();
+                if (startColor == null) {
+                    error = "Invalid starting color in the switch definition.";
+                }
+            } else if (END_COLOR.equals(name)) {
+                endColor = nextColor();
+                if (endColor == null) {
+                    error = "Invalid ending color in the switch definition.";
+                }
+            } else if (DEFAULT_MODE.equals(name) && token == JsonToken.NUMBER) {
+                Long value = nextInteger();
+                if (value == null || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    error = "The default mode must be a whole number.";
+                } else {
+                    defaultMode = value.intValue();
+                }
+            } else {
+                if (MODES.equals(name) || COUNT.equals(name) || COLORS.equals(name)
+                        || DEFAULT_MODE.equals(name)) {
+                    error = "Invalid \"" + name + "\" in the switch definition.";
+                }
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Only now that the whole definition has been consumed can it be rejected.
+        if (error != null) {
+            throw new IllegalSelectorException(error);
+        }
+        if (modes == null && count >= 0) {
+            modes = new ArrayList<>(count);
+            for (int mode = 1; mode <= count; mode++) {
+                modes.add(String.valueOf(mode));
+            }
+        } else if (modes != null && count >= 0 && count != modes.size()) {
+            throw new IllegalSelectorException("Unequal number of modes and count.");
+        }
+
+        SelectorSpec.Builder builder = new SelectorSpec.Builder(screenDensity, scaledDensity);
+        if (modes != null) {
+            builder.setModes(modes);
+        }
+        if (colors != null) {
+            builder.setDialColors(colors);
+        } else if (startColor != null && endColor != null) {
+            builder.setDialColors(startColor, endColor);
+        } else if (startColor != null || endColor != null) {
+            throw new IllegalSelectorException("Both a starting and an ending color are needed.");
+        }
+        builder.setDefaultMode(defaultMode);
+        return builder;
+    }
+
+    /**
+     * Closes the document.
+     *
+     * @throws IOException If the document can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Steps into the array of definitions, whether it is the document itself or the
+     * {@value #SWITCHES} member of the document.
+     *
+     * @throws IOException If the document can't be read or isn't valid JSON.
+     */
+    private void begin() throws IOException {
+        state = STATE_DONE;
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (SWITCHES.equals(reader.nextName())
+                        && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    state = STATE_IN_ARRAY;
+                    return;
+                }
+                reader.skipValue();
+            }
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            state = STATE_IN_ARRAY;
+        }
+    }
+
+    /**
+     * Reads a color, given either as a string or as an integer.
+     *
+     * @return color The color, or null if the value isn't a valid color.
+     * @throws IOException If the document can't be read or isn't valid JSON.
+     */
+    private Integer nextColor() throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER) {
+            // Read as a long, since opaque colors written in decimal overflow an int.
+            Long color = nextInteger();
+            return color != null ? (int) color.longValue() : null;
+        } else if (token == JsonToken.STRING) {
+            try {
+                return Color.parseColor(reader.nextString());
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    /**
+     * Reads a number that has to be a whole number. The number is consumed whether or not
+     * it is one, so that a definition with a fraction such as <tt>3.5</tt> can still be read
+     * to its end.
+     *
+     * @return value The number, or null if it isn't a whole number that fits in a long.
+     * @throws IOException If the document can't be read or isn't valid JSON.
+     */
+    private Long nextInteger() throws IOException {
+        String number = reader.nextString();
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
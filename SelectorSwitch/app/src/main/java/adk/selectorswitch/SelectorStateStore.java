@@ -0,0 +1,366 @@
+package adk.selectorswitch;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * SelectorStateStore keeps the modes of many switches, for example of a control panel fed
+ * with snapshots from a backend, packed into a long[]. Each switch takes between
+ * {@value #MIN_BITS_PER_SWITCH} and {@value #MAX_BITS_PER_SWITCH} bits, and a word holds
+ * as many whole switches as fit in its 64 bits, so a switch never straddles two words.
+ * <p>
+ * Switches on screen are bound to their index with {@link #bind(int, SelectorSwitch)}. When
+ * a new snapshot is applied, whole words of the old and the new snapshot are compared with
+ * XOR, so unchanged runs of switches are skipped 64 bits at a time, and only the switches
+ * whose mode actually changed are updated. Unchanged switches are not touched and not
+ * invalidated.
+ * <p>
+ * The store never holds a mode a bound switch can't show: a mode past the switch's number of
+ * modes is not stored. A bound switch in turn reports every change of its mode back to the
+ * store, whether it comes from a tap, rotary input, a long click or a call on the switch,
+ * such as {@link SelectorSwitch#selectMode(int)} or {@link SelectorSwitch#setModeCount(int)},
+ * so the next snapshot is diffed against what the switch shows. The one exception is a
+ * switch given more modes than its bits can hold: a mode that doesn't fit isn't stored, and
+ * the store keeps the last mode that did.
+ * <p>
+ * The store is not thread safe; update it and apply snapshots on the UI thread.
+ *
+ * @see SelectorSwitch#setMode(int, boolean)
+ */
+public final class SelectorStateStore {
+
+    /**
+     * The fewest bits a switch can take, which is enough for
+     * {@link SelectorGeometry#MAX_MODES} modes.
+     */
+    public static final int MIN_BITS_PER_SWITCH = 3;
+
+    /**
+     * The most bits a switch can take.
+     */
+    public static final int MAX_BITS_PER_SWITCH = 6;
+
+    private final int switchCount;
+    private final int bitsPerSwitch;
+    private final int switchesPerWord;
+    private final long switchMask;
+
+    /**
+     * The bits of a word that hold switches; the rest are always zero.
+     */
+    private final long wordMask;
+
+    /**
+     * The bits of the last word that hold switches, which may be fewer than
+     * {@link #wordMask} when the switches don't fill it.
+     */
+    private final long lastWordMask;
+
+    /**
+     * The packed modes, {@link #switchesPerWord} switches per word, lowest bits first.
+     */
+    private final long[] words;
+
+    /**
+     * The switch bound to each index, or null.
+     */
+    private final SelectorSwitch[] bindings;
+
+    /**
+     * Whether changed switches are animated to their new mode.
+     */
+    private boolean animateChanges;
+
+    /**
+     * Creates a store for the given number of switches, all at mode 0, with
+     * {@value #MIN_BITS_PER_SWITCH} bits per switch.
+     *
+     * @param switchCount <tt>int</tt> : The number of switches.
+     * @throws IllegalSelectorException If the number of switches is negative.
+     */
+    public SelectorStateStore(int switchCount) throws IllegalSelectorException {
+        this(switchCount, MIN_BITS_PER_SWITCH);
+    }
+
+    /**
+     * Creates a store for the given number of switches, all at mode 0.
+     *
+     * @param switchCount   <tt>int</tt> : The number of switches.
+     * @param bitsPerSwitch <tt>int</tt> : The bits each switch takes, from
+     *                      {@value #MIN_BITS_PER_SWITCH} to {@value #MAX_BITS_PER_SWITCH}.
+     * @throws IllegalSelectorException If the number of switches is negative or the number
+     *                                  of bits is out of range.
+     */
+    public SelectorStateStore(int switchCount, int bitsPerSwitch)
+            throws IllegalSelectorException {
+        if (switchCount < 0) {
+            throw new IllegalSelectorException("The number of switches can't be negative.");
+        }
+        if (bitsPerSwitch < MIN_BITS_PER_SWITCH || bitsPerSwitch > MAX_BITS_PER_SWITCH) {
+            throw new IllegalSelectorException("A switch must take between "
+                    + MIN_BITS_PER_SWITCH + " and " + MAX_BITS_PER_SWITCH + " bits.");
+        }
+        this.switchCount = switchCount;
+        this.bitsPerSwitch = bitsPerSwitch;
+        this.switchesPerWord = Long.SIZE / bitsPerSwitch;
+        this.switchMask = (1L << bitsPerSwitch) - 1;
+        int usedBits = switchesPerWord * bitsPerSwitch;
+        this.wordMask = usedBits == Long.SIZE ? -1L : (1L << usedBits) - 1;
+        this.words = new long[getWordCount(switchCount, bitsPerSwitch)];
+        int lastWordBits = (switchCount - (words.length - 1) * switchesPerWord) * bitsPerSwitch;
+        this.lastWordMask = words.length == 0 ? 0
+                : lastWordBits == Long.SIZE ? -1L : (1L << lastWordBits) - 1;
+        this.bindings = new SelectorSwitch[switchCount];
+    }
+
+    /**
+     * Returns the length of the long[] holding a snapshot of the given number of switches.
+     *
+     * @param switchCount   <tt>int</tt> : The number of switches.
+     * @param bitsPerSwitch <tt>int</tt> : The bits each switch takes.
+     * @return wordCount The number of words in a snapshot.
+     */
+    public static int getWordCount(int switchCount, int bitsPerSwitch) {
+        int switchesPerWord = Long.SIZE / bitsPerSwitch;
+        return (switchCount + switchesPerWord - 1) / switchesPerWord;
+    }
+
+    /**
+     * Packs the given modes into a snapshot that can be passed to
+     * {@link #applySnapshot(long[])}.
+     *
+     * @param modes         <tt>int[]</tt> : The mode of each switch.
+     * @param bitsPerSwitch <tt>int</tt> : The bits each switch takes.
+     * @return snapshot The packed modes.
+     */
+    public static long[] pack(int[] modes, int bitsPerSwitch) {
+        int switchesPerWord = Long.SIZE / bitsPerSwitch;
+        long switchMask = (1L << bitsPerSwitch) - 1;
+        long[] snapshot = new long[getWordCount(modes.length, bitsPerSwitch)];
+        for (int i = 0; i < modes.length; i++) {
+            snapshot[i / switchesPerWord] |=
+                    (modes[i] & switchMask) << ((i % switchesPerWord) * bitsPerSwitch);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the number of switches in the store.
+     *
+     * @return {@link #switchCount}
+     */
+    public int getSwitchCount() {
+        return switchCount;
+    }
+
+    /**
+     * Returns the number of bits each switch takes.
+     *
+     * @return {@link #bitsPerSwitch}
+     */
+    public int getBitsPerSwitch() {
+        return bitsPerSwitch;
+    }
+
+    /**
+     * Animates switches to their new mode when a snapshot changes them. Off by default, so
+     * a bulk update jumps every changed knob straight to its mode.
+     *
+     * @param animateChanges <tt>boolean</tt> : Animates the changed switches if true.
+     */
+    public void setAnimateChanges(boolean animateChanges) {
+        this.animateChanges = animateChanges;
+    }
+
+    /**
+     * Returns the stored mode of a switch.
+     *
+     * @param index <tt>int</tt> : The index of the switch.
+     * @return mode The stored mode.
+     */
+    public int getMode(int index) {
+        return (int) ((words[index / switchesPerWord] >>> shiftOf(index)) & switchMask);
+    }
+
+    /**
+     * Stores the mode of a single switch, and updates the switch bound to the index if the
+     * mode has changed. The mode is not stored if it doesn't fit in the switch's bits, or if
+     * a switch is bound to the index and doesn't have that many modes.
+     *
+     * @param index <tt>int</tt> : The index of the switch.
+     * @param mode  <tt>int</tt> : The new mode.
+     * @return stored True if the store now holds the mode.
+     */
+    public boolean setMode(int index, int mode) {
+        if (mode < 0 || mode > switchMask) {
+            return false;
+        }
+        if (getMode(index) == mode) {
+            return true;
+        }
+        if (!applyToBinding(index, mode)) {
+            return false;
+        }
+        store(index, mode);
+        return true;
+    }
+
+    /**
+     * Binds a switch to an index and places its knob at the stored mode without animating.
+     * The switch isn't touched if it already shows the stored mode. If the switch doesn't
+     * have the stored mode, its current mode is stored instead. From then on the switch
+     * reports every change of its mode to the store. The switch previously bound to the
+     * index is unbound, and so is the switch from any index or store it was bound to, so a
+     * recycled switch can be bound straight to its new index.
+     *
+     * @param index          <tt>int</tt> : The index of the switch.
+     * @param selectorSwitch <tt>SelectorSwitch</tt> : The switch to bind, or null to unbind.
+     */
+    public void bind(int index, @Nullable SelectorSwitch selectorSwitch) {
+        unbind(index);
+        if (selectorSwitch == null) {
+            return;
+        }
+        SelectorStateStore previousStore = selectorSwitch.getStateStore();
+        if (previousStore != null) {
+            previousStore.unbind(selectorSwitch.getStateStoreIndex());
+        }
+        bindings[index] = selectorSwitch;
+        selectorSwitch.setStateStore(this, index);
+
+        int mode = getMode(index);
+        int currentMode = selectorSwitch.getCurrentMode();
+        if (mode >= selectorSwitch.getModeCount()) {
+            store(index, currentMode);
+        } else if (currentMode != mode) {
+            selectorSwitch.setMode(mode, false, SelectorTransitionRecorder.SOURCE_SNAPSHOT);
+        }
+    }
+
+    /**
+     * Unbinds the switch bound to an index, if any, which stops it reporting its mode to
+     * the store.
+     *
+     * @param index <tt>int</tt> : The index of the switch.
+     */
+    public void unbind(int index) {
+        SelectorSwitch selectorSwitch = bindings[index];
+        if (selectorSwitch != null) {
+            bindings[index] = null;
+            selectorSwitch.setStateStore(null, -1);
+        }
+    }
+
+    /**
+     * Stores the mode a bound switch has changed to on its own, without touching the
+     * switch. Ignored if the switch is no longer bound to the index or the mode doesn't fit
+     * in the switch's bits.
+     *
+     * @param selectorSwitch <tt>SelectorSwitch</tt> : The switch whose mode changed.
+     * @param index          <tt>int</tt> : The index the switch is bound to.
+     * @param mode           <tt>int</tt> : The switch's new mode.
+     * @see SelectorSwitch#setStateStore(SelectorStateStore, int)
+     */
+    void onSwitchModeChanged(SelectorSwitch selectorSwitch, int index, int mode) {
+        if (index < 0 || index >= switchCount || bindings[index] != selectorSwitch
+                || mode < 0 || mode > switchMask) {
+            return;
+        }
+        store(index, mode);
+    }
+
+    /**
+     * Replaces the stored modes with a snapshot in the store's packed layout and updates
+     * only the bound switches whose mode changed. Bits past the last switch are ignored. A
+     * bound switch that doesn't have its new mode keeps its current one, in the store too.
+     *
+     * @param snapshot <tt>long[]</tt> : The packed modes, as made by
+     *                 {@link #pack(int[], int)}.
+     * @return changed The number of switches whose mode changed, bound or not.
+     * @throws IllegalSelectorException If the snapshot has the wrong number of words.
+     */
+    public int applySnapshot(@NonNull long[] snapshot) throws IllegalSelectorException {
+        if (snapshot.length != words.length) {
+            throw new IllegalSelectorException("The snapshot doesn't match the store's layout.");
+        }
+
+        int changedCount = 0;
+        int lastWord = words.length - 1;
+        for (int word = 0; word < words.length; word++) {
+            long changed = (words[word] ^ snapshot[word])
+                    & (word == lastWord ? lastWordMask : wordMask);
+            if (changed == 0) {
+                continue;
+            }
+            words[word] ^= changed;
+
+            // Visit only the switches of the word that have a changed bit.
+            while (changed != 0) {
+                int slot = Long.numberOfTrailingZeros(changed) / bitsPerSwitch;
+                int shift = slot * bitsPerSwitch;
+                long slotChanged = changed & (switchMask << shift);
+                changed ^= slotChanged;
+                int index = word * switchesPerWord + slot;
+                if (applyToBinding(index, (int) ((words[word] >>> shift) & switchMask))) {
+                    changedCount++;
+                } else {
+                    // The bound switch refused the mode, so keep the one it shows.
+                    words[word] ^= slotChanged;
+                }
+            }
+        }
+        return changedCount;
+    }
+
+    /**
+     * Copies the stored modes out in the store's packed layout.
+     *
+     * @return snapshot The packed modes.
+     */
+    public long[] getSnapshot() {
+        return Arrays.copyOf(words, words.length);
+    }
+
+    /**
+     * Returns how far the bits of a switch are shifted within its word.
+     *
+     * @param index <tt>int</tt> : The index of the switch.
+     * @return shift The shift in bits.
+     */
+    private int shiftOf(int index) {
+        return (index % switchesPerWord) * bitsPerSwitch;
+    }
+
+    /**
+     * Writes the mode of a switch into its word, whatever was there before.
+     *
+     * @param index <tt>int</tt> : The index of the switch.
+     * @param mode  <tt>int</tt> : The mode, which fits in the switch's bits.
+     */
+    private void store(int index, int mode) {
+        int word = index / switchesPerWord;
+        int shift = shiftOf(index);
+        words[word] = (words[word] & ~(switchMask << shift)) | ((long) mode << shift);
+    }
+
+    /**
+     * Selects the mode on the switch bound to an index, if any.
+     *
+     * @param index <tt>int</tt> : The index of the switch.
+     * @param mode  <tt>int</tt> : The new mode.
+     * @return accepted False if a switch is bound and doesn't have the mode.
+     */
+    private boolean applyToBinding(int index, int mode) {
+        SelectorSwitch selectorSwitch = bindings[index];
+        if (selectorSwitch == null) {
+            return true;
+        }
+        if (mode >= selectorSwitch.getModeCount()) {
+            return false;
+        }
+        selectorSwitch.setMode(mode, animateChanges, SelectorTransitionRecorder.SOURCE_SNAPSHOT);
+        return true;
+    }
+}
@@ -1,19 +1,40 @@
 package adk.selectorswitch;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Matrix;
 import android.graphics.Color;
-import android.graphics.Paint;
 import android.graphics.RectF;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.provider.Settings;
+import android.support.annotation.AnyThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.content.ContextCompat;
 import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.view.Display;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * SelectorSwitch is a UI component for android (5.0+) inspired by the
@@ -39,7 +60,7 @@ public class SelectorSwitch extends View {
     /**
      * The default colors for the dial of the selector.
      */
-    private static final List<Integer> DEFAULT_DIAL_COLORS =
+    static final List<Integer> DEFAULT_DIAL_COLORS =
             SelectorUtil.arrayToList(new int[]{Color.HSVToColor(new float[]{29f, 23.1f, 94.9f}),
                     Color.HSVToColor(new float[]{59f, 26.3f, 89.4f}),
                     Color.HSVToColor(new float[]{129f, 21.7f, 77.6f})});
@@ -47,88 +68,100 @@ public class SelectorSwitch extends View {
     /**
      * The default modes for the selector switch.
      */
-    private static final List<String> DEFAULT_MODES =
+    static final List<String> DEFAULT_MODES =
             Arrays.asList("LOW", "MID", "HIGH");
 
+    /**
+     * The prefix of the names given to modes added by {@link #setModeCount(int)}, followed
+     * by the mode's number.
+     */
+    private static final String ADDED_MODE_NAME = "MODE ";
+
     /**
      * The default mode is 0.
      */
     private static final int DEFAULT_MODE = 0;
 
     /**
-     * The default step angle used while animating the rotation of the selector knob.
+     * The speed, in degrees per second, at which the knob is animated before the system's
+     * animator duration scale is applied.
      */
-    private static final float STEP_ANGLE = 0.1f;
+    private static final float KNOB_DEGREES_PER_SECOND = 600f;
 
+    /**
+     * Caps the knob's animation to the display's own refresh rate.
+     */
+    public static final int FRAME_RATE_NATIVE = 0;
 
     /**
-     * The default delay, in nanoseconds, between successive increments in knob rotation.
+     * Caps the knob's animation to 30 frames per second.
      */
-    private static final int STEP_WAIT_NANOS = 400;
+    public static final int FRAME_RATE_30 = 30;
 
     /**
-     * The default space in DP Units used as an additional padding on top of the
-     * padding specified in the layout.
+     * Caps the knob's animation to 60 frames per second.
      */
-    private static final int SPACE_DIP = 6;
+    public static final int FRAME_RATE_60 = 60;
 
     /**
-     * The default radius of the switch's base in DP Units.
+     * The frame rate the knob's animation is capped to while battery saver is on.
      */
-    private static final int BASE_RADIUS_DIP = 16;
+    private static final int LOW_POWER_FRAME_RATE = FRAME_RATE_30;
 
     /**
-     * The default shadow radius of the switch's base in DP Units.
+     * The refresh rate assumed when the view isn't attached to a display.
      */
-    private static final int BASE_SHADOW_RADIUS = 1;
+    private static final float DEFAULT_REFRESH_RATE = 60f;
 
     /**
-     * The default shadow radius of the knob's base in DP Units.
+     * The default number of modes stepped through per unit of scroll from a rotary encoder
+     * or a scroll wheel.
      */
-    private static final int KNOB_SHADOW_RADIUS = 1;
+    private static final float DEFAULT_ROTARY_SENSITIVITY = 1f;
 
     /**
-     * The default color of the base's shadow.
+     * MotionEvent.AXIS_SCROLL, reported by rotary encoders. The constant is only exposed by
+     * API 26 and later, but older devices simply report zero on it.
      */
-    private static final int BASE_SHADOW_COLOR = Color.DKGRAY;
+    private static final int AXIS_SCROLL = 26;
 
     /**
-     * The default color of the knob's shadow.
+     * Picks the level of detail automatically from the switch's size on screen.
      */
-    private static final int KNOB_SHADOW_COLOR = Color.DKGRAY;
+    public static final int LOD_AUTO = 0;
 
     /**
-     * The default top and bottom margin of the
-     * mode's base in DP units.
+     * Draws the switch with full fidelity: shadows, anti-aliasing and the mode's name.
      */
-    private static final int MODE_BASE_MARGIN_DP = 4;
+    public static final int LOD_FULL = SelectorScene.LOD_FULL;
 
     /**
-     * The default top and bottom padding for
-     * the mode's base in DP units.
+     * Draws the switch without shadows, so it doesn't need a software layer.
      */
-    private static final int MODE_BASE_PADDING_V_DP = 2;
+    public static final int LOD_REDUCED = SelectorScene.LOD_REDUCED;
 
     /**
-     * The default left and right padding for
-     * the mode's base in DP units.
+     * Draws only the base, the dial and a simple line for the knob, without shadows,
+     * anti-aliasing or the mode's name.
      */
-    private static final int MODE_BASE_PADDING_H_DP = 4;
+    public static final int LOD_MINIMAL = SelectorScene.LOD_MINIMAL;
 
     /**
-     * The default height of the mode's base in DP units.
+     * Switches narrower than this on screen, in DP units, are drawn with {@link #LOD_MINIMAL}
+     * when the level of detail is picked automatically.
      */
-    private static final int MODE_BASE_HEIGHT_DP = 8;
+    private static final int LOD_MINIMAL_WIDTH_DP = 40;
 
     /**
-     * The default text size for the mode's name.
+     * Switches narrower than this on screen, in DP units, are drawn with {@link #LOD_REDUCED}
+     * when the level of detail is picked automatically.
      */
-    private static final int MODE_TEXT_SIZE = 6;
+    private static final int LOD_REDUCED_WIDTH_DP = 72;
 
     /**
-     * The default text color for the mode's name.
+     * Marks that no mode has been requested through {@link #requestMode(int)}.
      */
-    private static final int MODE_TEXT_COLOR = Color.BLACK;
+    private static final int NO_REQUESTED_MODE = -1;
 
     /**
      * Stores a context to get the screen's density for conversion of DP
@@ -141,6 +174,20 @@ public class SelectorSwitch extends View {
      */
     float screenDensity;
 
+    /**
+     * Stores the scaled density of the screen, which includes the user's font scale, used
+     * for the size of the mode's name.
+     */
+    float scaledDensity;
+
+    /**
+     * Stores the night mode bits of the configuration the colors of the switch were last
+     * resolved for.
+     *
+     * @see Configuration#UI_MODE_NIGHT_MASK
+     */
+    private int nightMode;
+
 
     /* Switch Properties */
 
@@ -167,9 +214,18 @@ public class SelectorSwitch extends View {
 
     /**
      * Stores the mode the selector switch is currently in, i.e, the mode currently
-     * selected.
+     * selected. Only written on the UI thread, but volatile so that it can be read from
+     * any thread.
+     */
+    private volatile int currentMode;
+
+    /**
+     * Stores the mode selected when the switch is reset, which is {@link #DEFAULT_MODE}
+     * unless a spec sets another one.
+     *
+     * @see SelectorSpec#getDefaultMode()
      */
-    private int currentMode;
+    private int defaultMode = DEFAULT_MODE;
 
     /**
      * Stores the total number of modes in the switch.
@@ -182,11 +238,6 @@ public class SelectorSwitch extends View {
      */
     private int baseRadius;
 
-    /**
-     * Stores the paint used to draw the switch's base on the canvas.
-     */
-    private Paint basePaint;
-
     /* Dial Properties. */
     /**
      * Stores the selector dial used in the selector switch. This has all the data
@@ -220,9 +271,17 @@ public class SelectorSwitch extends View {
     private SelectorKnob selectorKnob;
 
     /**
-     * Stores the paint used to draw the knob on the canvas.
+     * Stores the SVG path data of a custom knob, or null for the default knob.
+     *
+     * @see #setKnobPathData(String)
+     */
+    private String knobPathData;
+
+    /**
+     * Stores the outline of the custom knob in DP units, shared with every switch using the
+     * same path data, or null for the default knob.
      */
-    private Paint knobPaint;
+    private SelectorKnobShape knobShape;
 
     /**
      * Stores the angle needed to rotate by the knob between two successive modes of
@@ -231,52 +290,341 @@ public class SelectorSwitch extends View {
     private float knobSweepAngle;
 
     /**
-     * Stores the boundaries of the mode base.
+     * Stores the animator rotating the knob, reused for every animation, so that it can be
+     * cancelled when the knob has to be placed somewhere else.
+     *
+     * @see SelectorKnobAnimator
      */
-    private RectF modeBaseRectF;
+    private SelectorKnobAnimator knobAnimator;
 
     /**
-     * Stores the Paint used to draw the mode's base.
+     * Stores the frame rate the knob's animation is capped to.
+     *
+     * @see #setFrameRateCap(int)
      */
-    private Paint modeBasePaint;
+    private int frameRateCap = FRAME_RATE_NATIVE;
 
     /**
-     * Stores the top & bottom padding of the mode's base in pixels.
+     * Stores the system's animator duration scale and whether battery saver is on. They
+     * are read when the switch is attached, the scale again on every configuration change,
+     * and battery saver whenever it is turned on or off, so that starting an animation
+     * doesn't query the system.
+     *
+     * @see #systemSettingsCached
      */
-    private int modeBasePaddingV;
+    private float animatorDurationScale = 1f;
+    private boolean powerSaveMode;
 
     /**
-     * Stores the height of the mode's base in pixels.
+     * Stores whether {@link #animatorDurationScale} and {@link #powerSaveMode} are being
+     * kept up to date, which they are only while the switch is attached to a window.
      */
-    private int modeBaseHeight;
+    private boolean systemSettingsCached;
+
+    /**
+     * Updates {@link #powerSaveMode} when battery saver is turned on or off.
+     */
+    private final BroadcastReceiver powerSaveReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            powerSaveMode = readPowerSaveMode();
+        }
+    };
+
+    /**
+     * Stores the level of detail requested for the switch, which may be {@link #LOD_AUTO}.
+     *
+     * @see #setLevelOfDetail(int)
+     */
+    private int requestedLevelOfDetail = LOD_AUTO;
+
+    /**
+     * Stores the level of detail the switch is drawn at and its layer is set up for.
+     */
+    private int levelOfDetail = LOD_FULL;
+
+    /**
+     * Stores the values of the switch's transformation matrix, read to find its scale on
+     * screen without allocating.
+     */
+    private final float[] matrixValues = new float[9];
+
+    /**
+     * Picks the level of detail again before every frame while the switch is attached, so
+     * that scales the switch isn't told about, such as those animated with
+     * {@link View#animate()} or set on one of its ancestors, are taken into account.
+     * Nothing is changed unless the level does.
+     */
+    private final ViewTreeObserver.OnPreDrawListener levelOfDetailUpdater =
+            new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    updateLevelOfDetail();
+                    return true;
+                }
+            };
+
+    /**
+     * Stores the colors of the base, the knob and the mode's base, of the shadows and of the
+     * mode's name, resolved from the resources for the current night mode.
+     */
+    private int baseColor, shadowColor, modeTextColor;
+
+    /**
+     * Stores the layout of the switch that {@link #onDraw(Canvas)} draws, built from the
+     * modes, the colors, the knob and the densities on the first frame after one of them
+     * changes, or null until then.
+     *
+     * @see SelectorScene
+     */
+    private SelectorScene scene;
+
+    /**
+     * Stores the renderer, holding every paint the switch is drawn with, and the parameters
+     * of the frame being drawn, both reused on every frame.
+     */
+    private final CanvasSelectorRenderer renderer = new CanvasSelectorRenderer();
+    private final SelectorScene.Frame sceneFrame = new SelectorScene.Frame();
+
+    /**
+     * Stores the cache the base and the dial are taken from at {@link #LOD_FULL}, and the
+     * executor their layers are loaded on, or null to always draw them.
+     *
+     * @see #setAssetCache(SelectorAssetCache, Executor)
+     */
+    private SelectorAssetCache assetCache;
+    private Executor assetExecutor;
+
+    /**
+     * Stores the dial layer of the current {@link #scene}, or null until it has been
+     * loaded, and whether it is being loaded.
+     */
+    private Bitmap dialLayer;
+    private boolean dialLayerLoading;
+
+    /**
+     * Hands the sectors of {@link #selectorDial} to the scene, so that the dial is drawn as
+     * it is now while its colors fade or its number of modes changes.
+     */
+    private final SelectorScene.Dial sceneDial = new SelectorScene.Dial() {
+        @Override
+        public int getSectorCount() {
+            return selectorDial.getSectorCount();
+        }
+
+        @Override
+        public float getSectorStartingAngle(int sector) {
+            return selectorDial.getSectorStartingAngle(sector);
+        }
+
+        @Override
+        public float getSectorSweepingAngle(int sector) {
+            return selectorDial.getSectorSweepingAngle(sector);
+        }
+
+        @Override
+        public int getSectorColor(int sector) {
+            return selectorDial.getSectorPaint(sector).getColor();
+        }
+    };
+
+    /**
+     * Stores whether the knob is drawn from a pre-rasterized sprite rather than its path.
+     *
+     * @see #setKnobSpriteEnabled(boolean)
+     */
+    private boolean knobSpriteEnabled;
+
+    /**
+     * Stores the latest mode requested from any thread through {@link #requestMode(int)},
+     * or {@link #NO_REQUESTED_MODE} if there is none waiting to be applied.
+     */
+    private final AtomicInteger requestedMode = new AtomicInteger(NO_REQUESTED_MODE);
+
+    /**
+     * Stores whether {@link #applyRequestedMode} has been posted for the next frame.
+     */
+    private final AtomicBoolean modeRequestPosted = new AtomicBoolean(false);
+
+    /**
+     * Applies the latest requested mode on the UI thread, once per frame at most.
+     */
+    private final Runnable applyRequestedMode = new Runnable() {
+        @Override
+        public void run() {
+            // Clear the flag first, so that a request arriving from now on posts again.
+            modeRequestPosted.set(false);
+            int mode = requestedMode.getAndSet(NO_REQUESTED_MODE);
+            if (mode != NO_REQUESTED_MODE) {
+                setMode(mode, true, SelectorTransitionRecorder.SOURCE_REQUEST);
+            }
+        }
+    };
+
+    /**
+     * Stores the recorder the switch's mode transitions are logged to, if it has one of its
+     * own.
+     *
+     * @see SelectorTransitionRecorder#setGlobal(SelectorTransitionRecorder)
+     */
+    private SelectorTransitionRecorder transitionRecorder;
+
+    /**
+     * Stores the state store the switch is bound to, which is told about every change of
+     * the mode, or null.
+     *
+     * @see SelectorStateStore#bind(int, SelectorSwitch)
+     */
+    private SelectorStateStore stateStore;
+
+    /**
+     * Stores the index the switch is bound to in its state store, or -1.
+     */
+    private int stateStoreIndex = -1;
+
+    /**
+     * Stores the number of frames the dial's current color transition has run for, and
+     * the number of frames it runs for in total. Zero frames in total means no transition
+     * is running.
+     *
+     * @see #animateDialColors(List, int)
+     */
+    private int colorFadeFrame, colorFadeFrameCount;
+
+    /**
+     * Steps the dial's color transition once per frame from the
+     * {@link SelectorAnimationScheduler}, updating the dial's paints in place and redrawing
+     * only the dial.
+     */
+    private final SelectorAnimationScheduler.Animation colorFadeAnimation =
+            new SelectorAnimationScheduler.Animation() {
+                @Override
+                boolean doFrame(long frameTimeNanos) {
+                    if (colorFadeFrameCount == 0) {
+                        return false;
+                    }
+                    colorFadeFrame++;
+                    selectorDial.setColorTransitionFraction(
+                            (float) colorFadeFrame / colorFadeFrameCount);
+                    invalidateDial();
+                    if (colorFadeFrame < colorFadeFrameCount) {
+                        return true;
+                    }
+                    colorFadeFrameCount = 0;
+                    return false;
+                }
+            };
+
+    /**
+     * Stores the number of frames the current change of the mode count has run for, and
+     * the number of frames it runs for in total. Zero frames in total means no change is
+     * running.
+     *
+     * @see #animateModeCount(int, int)
+     */
+    private int modeCountFrame, modeCountFrameCount;
+
+    /**
+     * Stores the angle the knob is re-seated from during a change of the mode count, and
+     * the angle it turns by to reach the current mode's new angle.
+     */
+    private float reseatFromAngle, reseatByAngle;
+
+    /**
+     * Stores whether the knob is still being re-seated, which stops as soon as the knob is
+     * rotated for any other reason.
+     */
+    private boolean reseatingKnob;
+
+    /**
+     * Steps the change of the mode count once per frame from the
+     * {@link SelectorAnimationScheduler}, interpolating the dial's sectors and the knob's
+     * angle in place.
+     */
+    private final SelectorAnimationScheduler.Animation modeCountAnimation =
+            new SelectorAnimationScheduler.Animation() {
+                @Override
+                boolean doFrame(long frameTimeNanos) {
+                    if (modeCountFrameCount == 0) {
+                        return false;
+                    }
+                    modeCountFrame++;
+                    setModeCountFraction((float) modeCountFrame / modeCountFrameCount);
+                    invalidate();
+                    if (modeCountFrame < modeCountFrameCount) {
+                        return true;
+                    }
+                    modeCountFrameCount = 0;
+                    selectorDial.endModeCountTransition();
+                    return false;
+                }
+            };
+
+    /**
+     * Stores the debug overlay drawn over the switch, or null if it is turned off.
+     *
+     * @see #setDebugOverlayEnabled(boolean)
+     */
+    private SelectorDebugOverlay debugOverlay;
+
+    /**
+     * Stores whether the colors or the number of modes have been changed at runtime, in
+     * which case they are saved along with the mode in {@link #onSaveInstanceState()}.
+     */
+    private boolean dialCustomized;
 
     /**
-     * Stores the mode base's left coordinates for the various
-     * modes.
+     * Stores the number of modes stepped through per unit of scroll.
+     *
+     * @see #setRotarySensitivity(float)
+     */
+    private float rotarySensitivity = DEFAULT_ROTARY_SENSITIVITY;
+
+    /**
+     * Stores the fraction of a step accumulated from scroll events that hasn't been turned
+     * into a whole step yet.
+     */
+    private float rotaryAccumulator;
+
+    /**
+     * Stores the mode, not yet wrapped around the dial, that the accumulated rotary steps
+     * point at. Applied to the switch on the next frame.
+     */
+    private int rotaryTarget;
+
+    /**
+     * Stores whether {@link #applyRotaryTarget} has been posted for the next frame.
      */
-    private List<Float> modeBaseLefts;
+    private boolean rotaryUpdatePosted;
 
     /**
-     * Stores the mode base's right coordinates for the various
-     * modes.
+     * Applies the latest {@link #rotaryTarget} once per frame, however many scroll events
+     * arrived in between.
      */
-    private List<Float> modeBaseRights;
+    private final Runnable applyRotaryTarget = new Runnable() {
+        @Override
+        public void run() {
+            rotaryUpdatePosted = false;
+            setMode(((rotaryTarget % totalModes) + totalModes) % totalModes, false,
+                    SelectorTransitionRecorder.SOURCE_ROTARY);
+        }
+    };
 
     /**
-     * Stores the top coordinate of the mode name's base.
+     * Stores where the last touch on the switch went down, so that a click can select
+     * the mode that was tapped. Not a number when the click didn't come from a touch.
      */
-    private float modeNameTop;
+    private float touchDownX = Float.NaN, touchDownY = Float.NaN;
 
     /**
-     * Stores the left coordinates of the mode names when drawn on
-     * the canvas.
+     * Stores the top & bottom padding of the mode's base in pixels.
      */
-    private List<Float> modeNameLefts;
+    private int modeBasePaddingV;
 
     /**
-     * Paint used to write the name of the mode onto the canvas.
+     * Stores the height of the mode's base in pixels.
      */
-    private Paint modeNamePaint;
+    private int modeBaseHeight;
 
     /**
      * Initialises all the parameters of the selector switch. First obtains a screen density
@@ -291,11 +639,19 @@ public class SelectorSwitch extends View {
     public SelectorSwitch(Context context) throws IllegalSelectorException {
         super(context);
 
+        SelectorInitProfiler.Sample profile = SelectorInitProfiler.start();
+
         this.context = context;
-        this.screenDensity = context.getTheme().getResources().getDisplayMetrics().density;
+        DisplayMetrics displayMetrics = context.getTheme().getResources().getDisplayMetrics();
+        this.screenDensity = displayMetrics.density;
+        this.scaledDensity = displayMetrics.scaledDensity;
         initModesAndColors(null);
+        profile.endPhase(SelectorInitProfiler.PHASE_MODES_AND_COLORS);
         initComponents();
+        profile.endPhase(SelectorInitProfiler.PHASE_COMPONENTS);
         initListeners();
+        profile.endPhase(SelectorInitProfiler.PHASE_LISTENERS);
+        profile.end();
     }
 
     /**
@@ -313,11 +669,19 @@ public class SelectorSwitch extends View {
     public SelectorSwitch(Context context, @Nullable AttributeSet attrs) throws IllegalSelectorException {
         super(context, attrs);
 
+        SelectorInitProfiler.Sample profile = SelectorInitProfiler.start();
+
         this.context = context;
-        this.screenDensity = context.getTheme().getResources().getDisplayMetrics().density;
+        DisplayMetrics displayMetrics = context.getTheme().getResources().getDisplayMetrics();
+        this.screenDensity = displayMetrics.density;
+        this.scaledDensity = displayMetrics.scaledDensity;
         initModesAndColors(attrs);
+        profile.endPhase(SelectorInitProfiler.PHASE_MODES_AND_COLORS);
         initComponents();
+        profile.endPhase(SelectorInitProfiler.PHASE_COMPONENTS);
         initListeners();
+        profile.endPhase(SelectorInitProfiler.PHASE_LISTENERS);
+        profile.end();
     }
 
     /**
@@ -349,6 +713,18 @@ public class SelectorSwitch extends View {
             return;
 
         try {
+            // The debug overlay.
+            if (xmlCode.getBoolean(R.styleable.SelectorSwitch_debugOverlay, false)) {
+                this.debugOverlay = new SelectorDebugOverlay(scaledDensity);
+            }
+
+            // A custom knob, given as SVG path data.
+            String pathData = xmlCode.getString(R.styleable.SelectorSwitch_knobShape);
+            if (pathData != null) {
+                this.knobShape = SelectorKnobShapeCache.parse(pathData);
+                this.knobPathData = pathData;
+            }
+
             // Check if any reference to XML having the modes and their colors
             // has been provided in the component's layout xml.
             refColors = xmlCode.getResourceId(R.styleable.SelectorSwitch_colors, 0);
@@ -375,8 +751,8 @@ public class SelectorSwitch extends View {
 
     /**
      * Initialises the structural properties of various parts of the selector switch which
-     * include the base, the dial and the knob. Also initialises the paints used to draw
-     * these parts on the canvas.
+     * include the base, the dial and the knob. Also resolves the colors these parts are
+     * drawn with.
      * <p>
      * Uses a few utility static methods provided in {@link SelectorUtil} class.
      *
@@ -393,210 +769,1078 @@ public class SelectorSwitch extends View {
         this.totalModes = this.modes.size();
 
         // Then the footprint of the component.
-        space = SelectorUtil.getPixelsFromDips(SPACE_DIP, screenDensity);
-        baseRadius = SelectorUtil.getPixelsFromDips(BASE_RADIUS_DIP, screenDensity);
-        centerX = space + baseRadius;
-        centerY = space + baseRadius;
+        updateFootprint();
+
+        // The shared caches have to hear about memory pressure.
+        SelectorCacheManager.getInstance().register(context);
+
+        // Take the dial and the knob from a spec pre-built for this configuration, if there
+        // is one.
+        SelectorSpec prebuilt = SelectorSpecCache.get(screenDensity, scaledDensity,
+                this.modes, selectorDialColors);
+        if (prebuilt != null && prebuilt.getCenter() != centerX) {
+            prebuilt = null;
+        }
 
         // Next, the dial.
-        selectorDial = new SelectorDial(context, this.modes.size(), selectorDialColors);
-        selectorDial.setDialColors(selectorDialColors);
-        int selectorDialRadius = selectorDial.getDialRadius();
-        selectorDialRectF = new RectF(centerX - selectorDialRadius,
-                centerY - selectorDialRadius,
-                centerX + selectorDialRadius,
-                centerY + selectorDialRadius);
+        if (prebuilt != null) {
+            selectorDial = new SelectorDial(prebuilt);
+        } else {
+            selectorDial = new SelectorDial(context, this.modes.size(), selectorDialColors);
+            selectorDial.setDialColors(selectorDialColors);
+        }
+        selectorDialRectF = new RectF();
 
         // After that the knob.
-        selectorKnob = new SelectorKnob(context, centerX, centerY);
+        if (prebuilt != null && knobShape == null) {
+            selectorKnob = new SelectorKnob(screenDensity, centerX, centerY,
+                    prebuilt.getKnobPath());
+        } else {
+            selectorKnob = new SelectorKnob(context, centerX, centerY, knobShape);
+        }
+        knobAnimator = new SelectorKnobAnimator(this, selectorKnob);
         knobSweepAngle = SelectorUtil.getSweepingAngle(totalModes);
 
-        // Now the paints.
-        basePaint = SelectorUtil.createPaintFromColor(Color.WHITE, Paint.Style.FILL, true,
-                BASE_SHADOW_COLOR, SelectorUtil.getPixelsFromDips(BASE_SHADOW_RADIUS, screenDensity));
-        setLayerType(LAYER_TYPE_SOFTWARE, basePaint);
-
-        knobPaint = SelectorUtil.createPaintFromColor(Color.WHITE, Paint.Style.FILL, true,
-                KNOB_SHADOW_COLOR, SelectorUtil.getPixelsFromDips(KNOB_SHADOW_RADIUS, screenDensity));
-        setLayerType(LAYER_TYPE_SOFTWARE, knobPaint);
-
-        // Next, the mode base.
-
-        int modeBaseMargin = SelectorUtil.getPixelsFromDips(MODE_BASE_MARGIN_DP, screenDensity);
-        modeBasePaddingV = SelectorUtil.getPixelsFromDips(MODE_BASE_PADDING_V_DP, screenDensity);
-
-        int modeBasePaddingH = SelectorUtil.getPixelsFromDips(MODE_BASE_PADDING_H_DP, screenDensity);
-        modeBaseLefts = new ArrayList<>(totalModes);
-        modeBaseRights = new ArrayList<>(totalModes);
-        modeBaseHeight = SelectorUtil.getPixelsFromDips(MODE_BASE_HEIGHT_DP, screenDensity);
-        modeBaseRectF = new RectF(0, centerY + baseRadius + modeBaseMargin,
-                0, centerY + baseRadius + modeBaseMargin + modeBaseHeight);
-        modeBasePaint = SelectorUtil.createPaintFromColor(Color.WHITE, Paint.Style.FILL, true,
-                BASE_SHADOW_COLOR, SelectorUtil.getPixelsFromDips(BASE_SHADOW_RADIUS, screenDensity));
-
-
-        // Finally the mode's name's properties.
-        modeNameTop = modeBaseRectF.top + modeBasePaddingV + modeBaseHeight / 2;
+        // Now the colors, drawn with shadows, which need a software layer.
+        setLayerType(LAYER_TYPE_SOFTWARE, null);
+        nightMode = context.getResources().getConfiguration().uiMode
+                & Configuration.UI_MODE_NIGHT_MASK;
+        updateThemeColors();
 
-        modeNamePaint = SelectorUtil.createPaintFromColor(MODE_TEXT_COLOR, Paint.Style.FILL,
-                false, 0, 0);
-        modeNamePaint.setTextSize(SelectorUtil.getPixelsFromDips(MODE_TEXT_SIZE, screenDensity));
-
-        modeNameLefts = new ArrayList<>(totalModes);
-        Float wid;
-        for (String mode : modes) {
-            wid = modeNamePaint.measureText(mode) / 2;
-            modeBaseLefts.add(centerX - wid - modeBasePaddingH);
-            modeBaseRights.add(centerX + wid + modeBasePaddingH);
-            modeNameLefts.add(centerX - wid);
-        }
+        // Finally, the dial's bounds and the mode's base.
+        updateDimensions();
     }
 
     /**
-     * Sets the default onClick and onLongClick listeners to this view. The
-     * {@link #getDefaultOnClickListener()} provides an onClickListener that
-     * selects the next mode upon clicking, and the {@link #getDefaultOnLongClickListener()}
-     * selects the {@link #DEFAULT_MODE} of the mode upon a long click. However,
-     * both these listeners can be changed by the developer of the app.
+     * Calculates the additional padding, the radius of the base and the center of the
+     * switch from the current {@link #screenDensity}.
      */
-    private void initListeners() {
-        this.setOnClickListener(getDefaultOnClickListener());
-        this.setOnLongClickListener(getDefaultOnLongClickListener());
+    private void updateFootprint() {
+        space = SelectorUtil.getPixelsFromDips(SelectorGeometry.SPACE_DIP, screenDensity);
+        baseRadius = SelectorUtil.getPixelsFromDips(SelectorGeometry.BASE_RADIUS_DIP,
+                screenDensity);
+        centerX = space + baseRadius;
+        centerY = space + baseRadius;
     }
 
     /**
-     * Calculates and sets the dimensions of the view. The component is padded by
-     * an additional padding {@link #space} on top of the padding specified in the
-     * component's XML code in the layout.
-     *
-     * @param widthMeasureSpec  <tt>int</tt> : Width
-     * @param heightMeasureSpec <tt>int</tt> : Height
+     * Measures the bounds of the dial around the current center of the switch and the
+     * height of the mode's base, and has the {@link #scene} laid out again on the next frame
+     * for the current modes and densities. Updates the existing rect in place.
      */
-    @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    private void updateDimensions() {
 
-        int width = getSuggestedMinimumWidth();
-        int height = getSuggestedMinimumHeight();
-
-        int paddingTop = getPaddingTop();
-        int paddingRight = getPaddingRight();
-        int paddingBottom = getPaddingBottom();
-        int paddingLeft = getPaddingLeft();
+        int selectorDialRadius = selectorDial.getDialRadius();
+        selectorDialRectF.set(centerX - selectorDialRadius,
+                centerY - selectorDialRadius,
+                centerX + selectorDialRadius,
+                centerY + selectorDialRadius);
 
-        width += paddingLeft + space + (2 * baseRadius) + space + paddingRight;
-        height += paddingTop + space + (2 * baseRadius) +
-                modeBasePaddingV + modeBaseHeight + modeBasePaddingV + space + paddingBottom;
+        modeBasePaddingV = SelectorUtil.getPixelsFromDips(SelectorGeometry.MODE_BASE_PADDING_V_DP,
+                screenDensity);
+        modeBaseHeight = SelectorUtil.getPixelsFromDips(SelectorGeometry.MODE_BASE_HEIGHT_DP,
+                screenDensity);
+        scene = null;
+    }
 
-        setMeasuredDimension(width, height);
+    /**
+     * Resolves the colors of the base, the knob, the shadows and the mode's name from the
+     * resources, which have night variants, and has the {@link #scene} laid out again with
+     * them on the next frame.
+     */
+    private void updateThemeColors() {
+        baseColor = ContextCompat.getColor(context, R.color.selectorBaseColor);
+        shadowColor = ContextCompat.getColor(context, R.color.selectorShadowColor);
+        modeTextColor = ContextCompat.getColor(context, R.color.selectorModeTextColor);
+        scene = null;
     }
 
     /**
-     * Draws the 3 main selector components onto the canvas. Gets the required
-     * parameters and angles from the respective components.
+     * Returns the level of detail the switch should be drawn with. Unless a level has been
+     * requested with {@link #setLevelOfDetail(int)}, it is picked from the width of the
+     * switch on screen: its width, scaled by the smaller of its horizontal and vertical
+     * scales on screen.
      *
-     * @param canvas <tt>Canvas</tt> : The canvas to be drawn upon.
-     * @see SelectorKnob
-     * @see SelectorDial
+     * @return levelOfDetail One of {@link #LOD_FULL}, {@link #LOD_REDUCED} or
+     * {@link #LOD_MINIMAL}.
      */
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
-        // Draw the base with shadow.
-        canvas.drawCircle(centerX, centerY, baseRadius, basePaint);
-
-        // Draw the selector dial.
-        for (int mode = 0; mode < selectorDial.getDialModeCount(); mode++) {
-            canvas.drawArc(selectorDialRectF,
-                    selectorDial.getModeStartingAngle(mode),
-                    selectorDial.getModeSweepingAngle(),
-                    true, selectorDial.getDialPaintForMode(mode));
+    private int resolveLevelOfDetail() {
+        if (requestedLevelOfDetail != LOD_AUTO) {
+            return requestedLevelOfDetail;
         }
 
-        // Draw the knob and the notch.
-        canvas.drawPath(selectorKnob.getKnobPath(), knobPaint);
-
-        // Draw the mode's base and show the current mode.
-        canvas.drawRoundRect(modeBaseLefts.get(currentMode), modeBaseRectF.top,
-                modeBaseRights.get(currentMode), modeBaseRectF.bottom,
-                modeBaseHeight / 2, modeBaseHeight / 2, modeBasePaint);
-
-        // Show the current mode name.
-        canvas.drawText(modes.get(currentMode), modeNameLefts.get(currentMode),
-                modeNameTop, modeNamePaint);
-
+        float widthDp = getWidth() * getScaleOnScreen() / screenDensity;
+        if (widthDp <= 0) {
+            // Not laid out yet.
+            return levelOfDetail;
+        } else if (widthDp < LOD_MINIMAL_WIDTH_DP) {
+            return LOD_MINIMAL;
+        } else if (widthDp < LOD_REDUCED_WIDTH_DP) {
+            return LOD_REDUCED;
+        }
+        return LOD_FULL;
     }
 
     /**
-     * Updates the colors used for the modes and re-initialises the paints which will
-     * be used to draw the modes. Finally redraws the view.
+     * Returns how much the switch is scaled on screen: the smaller of the horizontal and
+     * vertical scales of its own transformation, which includes any rotation, times the
+     * scales of each of its ancestors.
+     * <p>
+     * This leaves out the rotation and skew of the ancestors, so an ancestor that is both
+     * rotated and scaled unevenly is taken as scaled along its own axes. Scaling that isn't
+     * a property of a view, such as a canvas scaled by a parent's own drawing code or a
+     * magnified window, isn't seen at all.
      *
-     * @param startingColor <tt>int</tt> : The starting color for the first mode.
-     * @param endingColor   <tt>int</tt> : The ending color for the mode.
+     * @return scale The scale of the switch on screen.
      */
-    public void setDialColors(int startingColor, int endingColor) {
-        this.selectorDialColors = SelectorUtil.generateBlendingColors(totalModes,
-                startingColor, endingColor);
-        selectorDial.setDialColors(startingColor, endingColor);
-        invalidate();
+    private float getScaleOnScreen() {
+        getMatrix().getValues(matrixValues);
+        float scaleX = (float) Math.hypot(matrixValues[Matrix.MSCALE_X],
+                matrixValues[Matrix.MSKEW_Y]);
+        float scaleY = (float) Math.hypot(matrixValues[Matrix.MSKEW_X],
+                matrixValues[Matrix.MSCALE_Y]);
+
+        ViewParent parent = getParent();
+        while (parent instanceof View) {
+            View ancestor = (View) parent;
+            scaleX *= Math.abs(ancestor.getScaleX());
+            scaleY *= Math.abs(ancestor.getScaleY());
+            parent = ancestor.getParent();
+        }
+        return Math.min(scaleX, scaleY);
     }
 
     /**
-     * Updates the color and the paint for an individual mode in the dial,
-     * indicated by its index, and redraws the view. Does nothing if the
-     * index of the mode is not valid.
-     *
-     * @param modeIndex <tt>int</tt> : The index of the mode whose color has to be updated.
-     * @param color     <tt>int</tt> : The new color of the mode.
+     * Resolves the level of detail and sets the layer of the switch up for it, if it isn't
+     * already. Called whenever the size, the scale or the requested level
+     * changes and before every frame, never while drawing, so {@link #onDraw(Canvas)} only
+     * reads the level.
      */
-    public void setColorForDialMode(int modeIndex, int color) {
-
-        if (modeIndex > selectorDial.getDialModeCount()) {
+    private void updateLevelOfDetail() {
+        if (selectorDial == null) {
+            // Scaled from XML by View's constructor, before the components exist.
             return;
         }
-
-        selectorDial.setModeColor(modeIndex, color);
+        int newLevelOfDetail = resolveLevelOfDetail();
+        if (newLevelOfDetail == levelOfDetail) {
+            return;
+        }
+        levelOfDetail = newLevelOfDetail;
+        if (levelOfDetail == LOD_FULL) {
+            setLayerType(LAYER_TYPE_SOFTWARE, null);
+        } else {
+            setLayerType(LAYER_TYPE_NONE, null);
+        }
         invalidate();
-
     }
 
     /**
-     * Returns the list of colors used for the modes in the dial.
+     * Picks the level of detail for the new size of the switch.
      *
-     * @return {@link #selectorDialColors}
+     * @param w    <tt>int</tt> : The new width.
+     * @param h    <tt>int</tt> : The new height.
+     * @param oldw <tt>int</tt> : The old width.
+     * @param oldh <tt>int</tt> : The old height.
      */
-    public List<Integer> getDialColors() {
-        return this.selectorDial.getDialColors();
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateLevelOfDetail();
     }
 
     /**
-     * Updates {@link #selectorDialColors} for the selector dial and redraws the
-     * view.
+     * Picks the level of detail for the new horizontal scale of the switch, which is part of
+     * its size on screen.
      *
-     * @param dialColors <tt>List<Integer></tt> : The new list of colors.
+     * @param scaleX <tt>float</tt> : The new horizontal scale.
      */
-    public void setDialColors(@NonNull List<Integer> dialColors) {
-        this.selectorDialColors = dialColors;
+    @Override
+    public void setScaleX(float scaleX) {
+        super.setScaleX(scaleX);
+        updateLevelOfDetail();
+    }
+
+    /**
+     * Picks the level of detail for the new vertical scale of the switch, which is part of
+     * its size on screen.
+     *
+     * @param scaleY <tt>float</tt> : The new vertical scale.
+     */
+    @Override
+    public void setScaleY(float scaleY) {
+        super.setScaleY(scaleY);
+        updateLevelOfDetail();
+    }
+
+    /**
+     * Requests a level of detail for the switch. With {@link #LOD_AUTO}, the default, the
+     * level is picked from the switch's size on screen, so small switches in dense grids
+     * drop their shadows and details without any tuning. The size is checked again before
+     * every frame, so animated scales and scaled ancestors are followed; see
+     * {@link #getScaleOnScreen()} for what isn't.
+     *
+     * @param levelOfDetail <tt>int</tt> : One of {@link #LOD_AUTO}, {@link #LOD_FULL},
+     *                      {@link #LOD_REDUCED} or {@link #LOD_MINIMAL}.
+     */
+    public void setLevelOfDetail(int levelOfDetail) {
+        this.requestedLevelOfDetail = levelOfDetail;
+        updateLevelOfDetail();
+    }
+
+    /**
+     * Returns the level of detail the switch is currently drawn with.
+     *
+     * @return levelOfDetail One of {@link #LOD_FULL}, {@link #LOD_REDUCED} or
+     * {@link #LOD_MINIMAL}.
+     */
+    public int getLevelOfDetail() {
+        return levelOfDetail;
+    }
+
+    /**
+     * Handles changes of the screen's density, the font scale and the night mode in place,
+     * so the activity doesn't have to be recreated. Only the parts affected by the change
+     * are recomputed: the geometry for a new density, the text metrics for a new font scale
+     * and the colors for a new night mode. None of the switch's components are reallocated.
+     *
+     * @param newConfig <tt>Configuration</tt> : The new configuration.
+     */
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+
+        DisplayMetrics displayMetrics = context.getResources().getDisplayMetrics();
+        int newNightMode = newConfig.uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        boolean densityChanged = displayMetrics.density != screenDensity;
+        boolean fontScaleChanged = displayMetrics.scaledDensity != scaledDensity;
+
+        if (densityChanged) {
+            screenDensity = displayMetrics.density;
+            updateFootprint();
+            selectorDial.setScreenDensity(screenDensity);
+            selectorKnob.setGeometry(screenDensity, centerX, centerY);
+        }
+        if (fontScaleChanged) {
+            scaledDensity = displayMetrics.scaledDensity;
+        }
+        if (densityChanged || newNightMode != nightMode) {
+            nightMode = newNightMode;
+            updateThemeColors();
+        }
+        if (densityChanged || fontScaleChanged) {
+            updateDimensions();
+            requestLayout();
+        }
+        if (systemSettingsCached) {
+            animatorDurationScale = readAnimatorDurationScale();
+        }
+        invalidate();
+    }
+
+    /**
+     * Reads the animator duration scale and starts listening for changes of battery saver,
+     * so that they don't have to be queried every time an animation starts. Also starts
+     * picking the level of detail before every frame.
+     */
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(levelOfDetailUpdater);
+        animatorDurationScale = readAnimatorDurationScale();
+        powerSaveMode = readPowerSaveMode();
+        context.registerReceiver(powerSaveReceiver,
+                new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        systemSettingsCached = true;
+    }
+
+    /**
+     * Stops listening for changes of battery saver and for frames.
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getViewTreeObserver().removeOnPreDrawListener(levelOfDetailUpdater);
+        context.unregisterReceiver(powerSaveReceiver);
+        systemSettingsCached = false;
+    }
+
+    /**
+     * Sets the default onClick and onLongClick listeners to this view. The
+     * {@link #getDefaultOnClickListener()} provides an onClickListener that
+     * selects the next mode upon clicking, and the {@link #getDefaultOnLongClickListener()}
+     * selects the {@link #defaultMode} of the mode upon a long click. However,
+     * both these listeners can be changed by the developer of the app.
+     */
+    private void initListeners() {
+        this.setOnClickListener(getDefaultOnClickListener());
+        this.setOnLongClickListener(getDefaultOnLongClickListener());
+
+        // Rotary encoders deliver their events to the focused view.
+        this.setFocusable(true);
+    }
+
+    /**
+     * Turns the switch with scroll events from rotary encoders and scroll wheels. Fine
+     * deltas are accumulated into whole steps using the {@link #rotarySensitivity}, and the
+     * knob is moved straight to the latest target at most once per frame, so bursts of
+     * encoder events never queue up animations.
+     *
+     * @param event <tt>MotionEvent</tt> : The generic motion event.
+     * @return handled True if the event was a scroll event.
+     */
+    @Override
+    public boolean onGenericMotionEvent(MotionEvent event) {
+        if (event.getActionMasked() != MotionEvent.ACTION_SCROLL) {
+            return super.onGenericMotionEvent(event);
+        }
+
+        float delta = event.getAxisValue(AXIS_SCROLL);
+        if (delta == 0) {
+            delta = event.getAxisValue(MotionEvent.AXIS_VSCROLL);
+        }
+
+        rotaryAccumulator += delta * rotarySensitivity;
+        int steps = (int) rotaryAccumulator;
+        if (steps != 0) {
+            rotaryAccumulator -= steps;
+            if (!rotaryUpdatePosted) {
+                rotaryTarget = currentMode;
+                rotaryUpdatePosted = true;
+                postOnAnimation(applyRotaryTarget);
+            }
+            rotaryTarget += steps;
+        }
+        return true;
+    }
+
+    /**
+     * Remembers where a touch went down, so that the click that follows can select the
+     * mode that was tapped, and forgets it if the touch is cancelled, for example by a
+     * parent that starts scrolling.
+     *
+     * @param event <tt>MotionEvent</tt> : The touch event.
+     * @return handled Whether the event was handled.
+     * @see #getDefaultOnClickListener()
+     */
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                touchDownX = event.getX();
+                touchDownY = event.getY();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                clearTouchDown();
+                break;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    /**
+     * Forgets where the touch went down once a long click has been handled, since no click
+     * follows it. Otherwise the next click from a keyboard, a D-pad or an accessibility
+     * service would select the sector tapped before instead of the next mode.
+     *
+     * @return handled Whether the long click was handled.
+     */
+    @Override
+    public boolean performLongClick() {
+        boolean handled = super.performLongClick();
+        if (handled) {
+            clearTouchDown();
+        }
+        return handled;
+    }
+
+    /**
+     * Forgets where the last touch went down, so that the next click selects the next mode.
+     */
+    private void clearTouchDown() {
+        touchDownX = Float.NaN;
+        touchDownY = Float.NaN;
+    }
+
+    /**
+     * Returns the mode whose sector of the dial is at the given point. The angle of the
+     * point around the center of the switch is compared with the dial's starting angles,
+     * so no regions or paths are hit tested and nothing is allocated.
+     *
+     * @param x <tt>float</tt> : The X coordinate of the point within the view.
+     * @param y <tt>float</tt> : The Y coordinate of the point within the view.
+     * @return mode The index of the mode at the point, or -1 if the point isn't on the dial.
+     */
+    public int getModeAt(float x, float y) {
+        float dx = x - centerX;
+        float dy = y - centerY;
+        int dialRadius = selectorDial.getDialRadius();
+
+        // NaN coordinates fail this check as well.
+        if (!(dx * dx + dy * dy <= dialRadius * dialRadius)) {
+            return -1;
+        }
+        return selectorDial.getModeAtAngle((float) Math.toDegrees(Math.atan2(dy, dx)));
+    }
+
+    /**
+     * Sets how many modes are stepped through per unit of scroll from a rotary encoder or
+     * a scroll wheel. Positive scroll values select the following modes; a negative
+     * sensitivity inverts the direction.
+     *
+     * @param rotarySensitivity <tt>float</tt> : Modes per unit of scroll.
+     */
+    public void setRotarySensitivity(float rotarySensitivity) {
+        this.rotarySensitivity = rotarySensitivity;
+        this.rotaryAccumulator = 0;
+    }
+
+    /**
+     * Returns how many modes are stepped through per unit of scroll.
+     *
+     * @return {@link #rotarySensitivity}
+     */
+    public float getRotarySensitivity() {
+        return rotarySensitivity;
+    }
+
+    /**
+     * Calculates and sets the dimensions of the view. The component is padded by
+     * an additional padding {@link #space} on top of the padding specified in the
+     * component's XML code in the layout.
+     *
+     * @param widthMeasureSpec  <tt>int</tt> : Width
+     * @param heightMeasureSpec <tt>int</tt> : Height
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+
+        int width = getSuggestedMinimumWidth();
+        int height = getSuggestedMinimumHeight();
+
+        int paddingTop = getPaddingTop();
+        int paddingRight = getPaddingRight();
+        int paddingBottom = getPaddingBottom();
+        int paddingLeft = getPaddingLeft();
+
+        width += paddingLeft + space + (2 * baseRadius) + space + paddingRight;
+        height += paddingTop + space + (2 * baseRadius) +
+                modeBasePaddingV + modeBaseHeight + modeBasePaddingV + space + paddingBottom;
+
+        setMeasuredDimension(width, height);
+    }
+
+    /**
+     * Draws the 3 main selector components onto the canvas. Gets the required
+     * parameters and angles from the respective components.
+     *
+     * @param canvas <tt>Canvas</tt> : The canvas to be drawn upon.
+     * @see SelectorKnob
+     * @see SelectorDial
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        SelectorDebugOverlay overlay = debugOverlay;
+        if (overlay == null) {
+            drawSwitch(canvas);
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        drawSwitch(canvas);
+        overlay.onDraw(startNanos, System.nanoTime(),
+                knobAnimator.isRunning() || colorFadeFrameCount != 0
+                        || modeCountFrameCount != 0);
+        overlay.draw(canvas, getLayerType() == LAYER_TYPE_SOFTWARE);
+    }
+
+    /**
+     * Draws the base, the dial, the knob and the current mode's name at the current level
+     * of detail, through the {@link #scene}, which is laid out first if anything it is
+     * built from has changed.
+     *
+     * @param canvas <tt>Canvas</tt> : The canvas to be drawn upon.
+     * @see SelectorScene#draw(SelectorRenderer, SelectorScene.Frame)
+     */
+    private void drawSwitch(Canvas canvas) {
+        if (scene == null) {
+            try {
+                scene = new SelectorScene(screenDensity, scaledDensity, modes,
+                        selectorDial.getDialColors(), knobShape, baseColor, shadowColor,
+                        modeTextColor);
+            } catch (IllegalSelectorException e) {
+                // The modes and the colors are checked before they are set.
+                throw new IllegalStateException(e);
+            }
+            dialLayer = null;
+        }
+
+        // The cached layer only holds the dial at rest, with its shadow.
+        Bitmap layer = levelOfDetail == LOD_FULL && colorFadeFrameCount == 0
+                && modeCountFrameCount == 0 ? obtainDialLayer() : null;
+        if (layer != null) {
+            canvas.drawBitmap(layer, 0, 0, null);
+        }
+
+        renderer.setCanvas(canvas);
+        scene.draw(renderer, sceneFrame.setMode(currentMode)
+                .setKnobAngle(selectorKnob.getRotation())
+                .setLevelOfDetail(levelOfDetail)
+                .setDial(sceneDial)
+                .setKnobSprite(knobSpriteEnabled)
+                .setLayers(layer != null ? SelectorScene.LAYER_KNOB : SelectorScene.LAYER_ALL));
+    }
+
+    /**
+     * Returns the dial layer of the current {@link #scene} if the {@link #assetCache} has it
+     * in memory. Otherwise has it loaded, or rendered, on the {@link #assetExecutor} and
+     * the switch redrawn once it is ready, and returns null so that the dial is drawn in the
+     * meantime.
+     *
+     * @return layer The dial layer, or null if there is no cache or it isn't ready.
+     * @see SelectorAssetCache
+     */
+    private Bitmap obtainDialLayer() {
+        if (dialLayer != null || assetCache == null) {
+            return dialLayer;
+        }
+        dialLayer = assetCache.peekDialLayer(scene, screenDensity, scaledDensity);
+        if (dialLayer != null || dialLayerLoading) {
+            return dialLayer;
+        }
+
+        dialLayerLoading = true;
+        final SelectorAssetCache cache = assetCache;
+        final SelectorScene loadingScene = scene;
+        final float density = screenDensity;
+        final float fontDensity = scaledDensity;
+        assetExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap layer = cache.getDialLayer(loadingScene, density, fontDensity);
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        dialLayerLoading = false;
+                        if (scene == loadingScene && assetCache == cache) {
+                            dialLayer = layer;
+                        }
+                        // Also asks for the layer of a scene laid out in the meantime.
+                        invalidate();
+                    }
+                });
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Takes the base and the dial from a layer kept by the cache, instead of drawing them
+     * on every frame, whenever the switch is drawn at {@link #LOD_FULL} and neither its
+     * colors nor its number of modes are changing. Layers are kept for each theme, set of
+     * colors and density, and are shared with every switch and
+     * {@link SelectorBitmapRenderer} using the same cache. A layer not yet in memory is
+     * loaded, or rendered and saved, on the executor, and the switch draws the dial itself
+     * until then. Off by default.
+     *
+     * @param assetCache <tt>SelectorAssetCache</tt> : The cache of dial layers, or null to
+     *                   draw the whole switch every time.
+     * @param executor   <tt>Executor</tt> : The executor the layers are loaded on, off the UI
+     *                   thread. Only needed with a cache.
+     */
+    public void setAssetCache(@Nullable SelectorAssetCache assetCache,
+                              @Nullable Executor executor) {
+        this.assetCache = assetCache;
+        this.assetExecutor = executor;
+        this.dialLayer = null;
+        invalidate();
+    }
+
+    /**
+     * Draws the knob from a bitmap rasterized once per knob size, density, color and
+     * shadow, rotated with a matrix and bitmap filtering, instead of rasterizing the
+     * knob's path and its shadow on every frame. Turning this on makes drawing the knob
+     * cheap even in a software layer, at the cost of a small bitmap shared by every switch
+     * with the same knob, and of slightly softer edges. Off by default.
+     *
+     * @param knobSpriteEnabled <tt>boolean</tt> : Draws the knob from a sprite if true.
+     */
+    public void setKnobSpriteEnabled(boolean knobSpriteEnabled) {
+        this.knobSpriteEnabled = knobSpriteEnabled;
+        invalidate();
+    }
+
+    /**
+     * Returns whether the knob is drawn from a pre-rasterized sprite.
+     *
+     * @return {@link #knobSpriteEnabled}
+     */
+    public boolean isKnobSpriteEnabled() {
+        return knobSpriteEnabled;
+    }
+
+    /**
+     * Draws a small overlay over the switch with the time the last frame took to draw, the
+     * frame rate of its animations, the rate at which it is invalidated and whether it
+     * draws into a software layer, to find expensive switches on a real screen without a
+     * profiler. Can also be turned on with the <tt>debugOverlay</tt> XML attribute. Off by
+     * default.
+     *
+     * @param enabled <tt>boolean</tt> : Draws the overlay if true.
+     * @see SelectorDebugOverlay
+     */
+    public void setDebugOverlayEnabled(boolean enabled) {
+        if (enabled == (debugOverlay != null)) {
+            return;
+        }
+        debugOverlay = enabled ? new SelectorDebugOverlay(scaledDensity) : null;
+        invalidate();
+    }
+
+    /**
+     * Returns whether the debug overlay is drawn over the switch.
+     *
+     * @return enabled True if the overlay is drawn.
+     */
+    public boolean isDebugOverlayEnabled() {
+        return debugOverlay != null;
+    }
+
+    /**
+     * Counts the invalidation for the debug overlay, if it is drawn.
+     */
+    @Override
+    public void invalidate() {
+        if (debugOverlay != null) {
+            debugOverlay.onInvalidate();
+        }
+        super.invalidate();
+    }
+
+    /**
+     * Counts the invalidation for the debug overlay, if it is drawn.
+     */
+    @Override
+    public void invalidate(int l, int t, int r, int b) {
+        if (debugOverlay != null) {
+            debugOverlay.onInvalidate();
+        }
+        super.invalidate(l, t, r, b);
+    }
+
+    /**
+     * Replaces the knob with one drawn from SVG path data, in DP units, as used by the
+     * <tt>d</tt> attribute of SVG paths and the <tt>pathData</tt> of vector drawables. The
+     * knob rotates about the origin and, at an angle of zero degrees, points towards
+     * negative X. The path data is parsed and scaled once per density for the whole
+     * process, so any number of switches can share a knob cheaply.
+     *
+     * @param pathData <tt>String</tt> : The SVG path data of the knob, or null for the
+     *                 default knob.
+     * @throws IllegalSelectorException If the path data is not valid.
+     * @see SelectorKnobShapeCache
+     */
+    public void setKnobPathData(@Nullable String pathData) throws IllegalSelectorException {
+        this.knobShape = pathData == null ? null : SelectorKnobShapeCache.parse(pathData);
+        this.knobPathData = pathData;
+        selectorKnob.setCustomShape(knobShape);
+        scene = null;
+        invalidate();
+    }
+
+    /**
+     * Returns the SVG path data of the knob.
+     *
+     * @return {@link #knobPathData}, or null for the default knob.
+     */
+    @Nullable
+    public String getKnobPathData() {
+        return knobPathData;
+    }
+
+    /**
+     * Saves the current mode and the knob's final angle, along with the colors, the
+     * number and the names of the modes if they have been changed at runtime.
+     *
+     * @return state <tt>Parcelable</tt> : The compact saved state of the switch.
+     * @see SavedState
+     */
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.mode = currentMode;
+        state.angle = currentMode * knobSweepAngle;
+        if (dialCustomized) {
+            state.modeCount = totalModes;
+            state.modes = modes.toArray(new String[totalModes]);
+            List<Integer> dialColors = selectorDial.getDialColors();
+            state.colors = new int[dialColors.size()];
+            for (int i = 0; i < state.colors.length; i++) {
+                state.colors[i] = dialColors.get(i);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Restores the state saved by {@link #onSaveInstanceState()}. The knob is placed at its
+     * final angle straight away, so no animation is replayed after a configuration change
+     * or after the process has been recreated.
+     *
+     * @param state <tt>Parcelable</tt> : The saved state of the switch.
+     * @see SavedState
+     */
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+
+        if (savedState.modeCount != SavedState.NOT_CUSTOMIZED && savedState.modeCount != totalModes) {
+            try {
+                setModeCount(savedState.modeCount);
+            } catch (IllegalSelectorException ignored) {
+                // The count was valid when it was saved.
+            }
+        }
+        if (savedState.modes != null && savedState.modes.length == totalModes) {
+            this.modes = Arrays.asList(savedState.modes);
+            updateDimensions();
+        }
+        if (savedState.colors != null) {
+            setDialColors(SelectorUtil.arrayToList(savedState.colors));
+        }
+        if (savedState.mode >= 0 && savedState.mode < totalModes) {
+            cancelKnobAnimation();
+            currentMode = savedState.mode;
+            selectorKnob.rotateTo(savedState.angle);
+            reportModeToStateStore();
+            invalidate();
+        }
+    }
+
+    /**
+     * Updates the colors used for the modes and re-initialises the paints which will
+     * be used to draw the modes. Finally redraws the view.
+     *
+     * @param startingColor <tt>int</tt> : The starting color for the first mode.
+     * @param endingColor   <tt>int</tt> : The ending color for the mode.
+     */
+    public void setDialColors(int startingColor, int endingColor) {
+        finishModeCountChange();
+        finishColorFade();
+        this.dialCustomized = true;
+        this.selectorDialColors = SelectorUtil.generateBlendingColors(totalModes,
+                startingColor, endingColor);
+        selectorDial.setDialColors(startingColor, endingColor);
+        scene = null;
+        invalidate();
+    }
+
+    /**
+     * Updates the color and the paint for an individual mode in the dial,
+     * indicated by its index, and redraws the view. Does nothing if the
+     * index of the mode is not valid.
+     *
+     * @param modeIndex <tt>int</tt> : The index of the mode whose color has to be updated.
+     * @param color     <tt>int</tt> : The new color of the mode.
+     */
+    public void setColorForDialMode(int modeIndex, int color) {
+
+        if (modeIndex < 0 || modeIndex >= totalModes) {
+            return;
+        }
+
+        finishModeCountChange();
+        finishColorFade();
+        this.dialCustomized = true;
+        selectorDial.setModeColor(modeIndex, color);
+        scene = null;
+        invalidate();
+
+    }
+
+    /**
+     * Cross-fades the dial from its current colors to new ones over a number of frames.
+     * The dial's paints are updated in place on every frame and only the dial is redrawn,
+     * so the transition allocates nothing per frame. A transition started while another
+     * is running fades on from wherever the first one got to. The number of frames is
+     * scaled by the system's animator duration scale; with a scale of zero the colors
+     * change straight away. Does nothing if there isn't one color per mode.
+     *
+     * @param dialColors <tt>List<Integer></tt> : The new list of colors.
+     * @param frameCount <tt>int</tt> : The number of frames to fade over.
+     */
+    public void animateDialColors(@NonNull List<Integer> dialColors, int frameCount) {
+
+        if (dialColors.size() != totalModes) {
+            return;
+        }
+
+        int frames = Math.round(frameCount * getAnimatorDurationScale());
+        if (frames <= 0) {
+            setDialColors(dialColors);
+            return;
+        }
+
+        finishModeCountChange();
+        this.dialCustomized = true;
+        this.selectorDialColors = dialColors;
+        selectorDial.beginColorTransition(dialColors);
+        scene = null;
+        colorFadeFrame = 0;
+        colorFadeFrameCount = frames;
+        SelectorAnimationScheduler.getInstance().schedule(colorFadeAnimation);
+    }
+
+    /**
+     * Cross-fades the dial to colors blended from a starting and an ending color over a
+     * number of frames.
+     *
+     * @param startingColor <tt>int</tt> : The starting color for the first mode.
+     * @param endingColor   <tt>int</tt> : The ending color for the last mode.
+     * @param frameCount    <tt>int</tt> : The number of frames to fade over.
+     * @see #animateDialColors(List, int)
+     */
+    public void animateDialColors(int startingColor, int endingColor, int frameCount) {
+        animateDialColors(SelectorUtil.generateBlendingColors(totalModes, startingColor,
+                endingColor), frameCount);
+    }
+
+    /**
+     * Cross-fades the color of a single mode over a number of frames. Does nothing if the
+     * index of the mode is not valid.
+     *
+     * @param modeIndex  <tt>int</tt> : The index of the mode whose color has to be updated.
+     * @param color      <tt>int</tt> : The new color of the mode.
+     * @param frameCount <tt>int</tt> : The number of frames to fade over.
+     * @see #animateDialColors(List, int)
+     */
+    public void animateColorForDialMode(int modeIndex, int color, int frameCount) {
+
+        if (modeIndex < 0 || modeIndex >= totalModes) {
+            return;
+        }
+
+        List<Integer> dialColors = new ArrayList<>(selectorDial.getDialColors());
+        dialColors.set(modeIndex, color);
+        animateDialColors(dialColors, frameCount);
+    }
+
+    /**
+     * Jumps the dial's color transition, if one is running, to its final colors, so that
+     * the dial can be changed without the transition fading on afterwards.
+     */
+    private void finishColorFade() {
+        if (colorFadeFrameCount == 0) {
+            return;
+        }
+        selectorDial.setColorTransitionFraction(1f);
+        colorFadeFrameCount = 0;
+    }
+
+    /**
+     * Redraws only the part of the view covered by the dial.
+     */
+    private void invalidateDial() {
+        invalidate((int) selectorDialRectF.left, (int) selectorDialRectF.top,
+                (int) Math.ceil(selectorDialRectF.right),
+                (int) Math.ceil(selectorDialRectF.bottom));
+    }
+
+    /**
+     * Returns the list of colors used for the modes in the dial.
+     *
+     * @return {@link #selectorDialColors}
+     */
+    public List<Integer> getDialColors() {
+        return this.selectorDial.getDialColors();
+    }
+
+    /**
+     * Updates {@link #selectorDialColors} for the selector dial and redraws the
+     * view.
+     *
+     * @param dialColors <tt>List<Integer></tt> : The new list of colors.
+     */
+    public void setDialColors(@NonNull List<Integer> dialColors) {
+        finishModeCountChange();
+        finishColorFade();
+        this.dialCustomized = true;
+        this.selectorDialColors = dialColors;
         selectorDial.setDialColors(dialColors);
+        scene = null;
         invalidate();
     }
 
     /**
      * Updates the total number of modes in the selector switch and blends in the current
      * starting and ending color to create new colors for the new intermediate modes (if any).
-     * Updates the selector dial's colors redraws the view.
+     * Updates the selector dial's colors and angles, places the knob at the current mode's
+     * new angle and redraws the view. Added modes are named after their number. If the
+     * current mode is removed, the last remaining mode is selected.
      *
      * @param count <tt>int</tt> : The new count of total modes in the switch.
      * @throws IllegalSelectorException
+     * @see #animateModeCount(int, int)
      */
     public void setModeCount(int count) throws IllegalSelectorException {
+        finishColorFade();
+        selectorDial.setDialModeCount(count);
+        modeCountFrameCount = 0;
+        cancelKnobAnimation();
+        updateModeCount(count);
+        selectorKnob.rotateTo(currentMode * knobSweepAngle);
+        invalidate();
+    }
+
+    /**
+     * Changes the total number of modes like {@link #setModeCount(int)}, but animates the
+     * change over a number of frames: the sectors of the dial grow and shrink into their
+     * new angles while their colors fade, and the knob turns to the current mode's new
+     * angle. The angles of every sector before and after the change are computed once
+     * when it starts, and each frame only interpolates between them in place, so the
+     * change allocates nothing per frame. A change started while another one is running
+     * carries on from the sectors as they are drawn. The number of frames is scaled by the
+     * system's animator duration scale; with a scale of zero the count changes straight
+     * away.
+     *
+     * @param count      <tt>int</tt> : The new count of total modes in the switch.
+     * @param frameCount <tt>int</tt> : The number of frames to animate over.
+     * @throws IllegalSelectorException If the count is less than
+     *                                  {@link SelectorGeometry#MIN_MODES} or greater than
+     *                                  {@link SelectorGeometry#MAX_MODES}.
+     */
+    public void animateModeCount(int count, int frameCount) throws IllegalSelectorException {
+
+        int frames = Math.round(frameCount * getAnimatorDurationScale());
+        if (frames <= 0) {
+            setModeCount(count);
+            return;
+        }
+
+        finishColorFade();
+        selectorDial.beginModeCountTransition(count);
+        cancelKnobAnimation();
+        updateModeCount(count);
+
+        // Turn the knob the short way round to the current mode's new angle.
+        reseatFromAngle = selectorKnob.getRotation();
+        reseatByAngle = ((currentMode * knobSweepAngle - reseatFromAngle) % 360 + 540) % 360
+                - 180;
+        reseatingKnob = true;
+
+        modeCountFrame = 0;
+        modeCountFrameCount = frames;
+        SelectorAnimationScheduler.getInstance().schedule(modeCountAnimation);
+    }
+
+    /**
+     * Updates the switch's own state for a new total number of modes, once the dial has
+     * been changed: the colors, the names of the modes, the angle between the modes, and
+     * the default and current modes if they were removed. Added modes are named after their
+     * number, and removed modes take their names with them.
+     *
+     * @param count <tt>int</tt> : The new count of total modes in the switch.
+     */
+    private void updateModeCount(int count) {
+        this.dialCustomized = true;
         this.selectorDialColors = SelectorUtil.generateBlendingColors(count,
                 selectorDialColors.get(0), selectorDialColors.get(totalModes - 1));
+        this.scene = null;
+        if (count != modes.size()) {
+            List<String> names = new ArrayList<>(modes.subList(0, Math.min(count, modes.size())));
+            for (int i = names.size(); i < count; i++) {
+                names.add(ADDED_MODE_NAME + (i + 1));
+            }
+            this.modes = names;
+            updateDimensions();
+        }
         this.totalModes = count;
-        selectorDial.setDialModeCount(count);
+        this.knobSweepAngle = SelectorUtil.getSweepingAngle(count);
+        if (defaultMode >= count) {
+            defaultMode = DEFAULT_MODE;
+        }
+        if (currentMode >= count) {
+            currentMode = count - 1;
+            reportModeToStateStore();
+        }
     }
 
+    /**
+     * Moves the dial's sectors and the knob part of the way through a change of the mode
+     * count.
+     *
+     * @param fraction <tt>float</tt> : How far the change has gone, from 0 to 1.
+     */
+    private void setModeCountFraction(float fraction) {
+        selectorDial.setModeCountTransitionFraction(fraction);
+        if (reseatingKnob) {
+            selectorKnob.rotateTo(reseatFromAngle + reseatByAngle * fraction);
+        }
+    }
+
+    /**
+     * Jumps a change of the mode count, if one is running, to its end, so that the dial
+     * or the knob can be changed without the change carrying on afterwards.
+     */
+    private void finishModeCountChange() {
+        if (modeCountFrameCount == 0) {
+            return;
+        }
+        setModeCountFraction(1f);
+        selectorDial.endModeCountTransition();
+        modeCountFrameCount = 0;
+    }
+
+
+    /**
+     * Swaps in a {@link SelectorSpec} built earlier, possibly on a background thread. All the
+     * colors, angles and the knob's path have already been computed by the spec, so this
+     * only replaces references and redraws the view. The current mode is kept
+     * if the spec still has it, otherwise the spec's default mode is selected, and the
+     * knob is placed at the mode's angle without animating.
+     *
+     * @param spec <tt>SelectorSpec</tt> : The spec to apply.
+     * @throws IllegalSelectorException If the spec was built for a different screen density
+     *                                  or font scale.
+     * @see SelectorSpec.Builder
+     */
+    public void applySpec(@NonNull SelectorSpec spec) throws IllegalSelectorException {
+
+        if (spec.getScreenDensity() != screenDensity || spec.getScaledDensity() != scaledDensity) {
+            throw new IllegalSelectorException("Spec was built for a different screen density.");
+        }
+
+        this.modes = spec.getModes();
+        this.selectorDialColors = spec.getDialColors();
+        this.totalModes = spec.getModeCount();
+        this.knobSweepAngle = spec.getModeSweepingAngle();
+        this.scene = null;
+        this.dialCustomized = true;
+        this.defaultMode = spec.getDefaultMode();
+        if (currentMode >= totalModes) {
+            currentMode = defaultMode;
+            reportModeToStateStore();
+        }
+
+        cancelKnobAnimation();
+        finishColorFade();
+        modeCountFrameCount = 0;
+        selectorDial.applySpec(spec);
+        if (knobShape == null) {
+            selectorKnob.setKnobPath(spec.getKnobPath(), currentMode * knobSweepAngle);
+        } else {
+            // The spec's knob is the default one; a custom knob is kept.
+            selectorKnob.rotateTo(currentMode * knobSweepAngle);
+        }
+        invalidate();
+    }
 
     /**
      * Selects the specified mode in the switch and rotates the knob to point to
@@ -606,42 +1850,308 @@ public class SelectorSwitch extends View {
      * @see #animateKnob(float)
      */
     public void selectMode(int newMode) {
+        selectMode(newMode, SelectorTransitionRecorder.SOURCE_API);
+    }
 
-        float angle;
+    /**
+     * Selects the specified mode in the switch, wrapping around the dial, and records the
+     * transition with the given source.
+     *
+     * @param newMode New mode to select.
+     * @param source  One of the SOURCE_ constants of {@link SelectorTransitionRecorder}.
+     */
+    private void selectMode(int newMode, int source) {
+
+        // Rotate from wherever the knob is, so an interrupted animation doesn't leave
+        // the knob pointing between two modes.
+        cancelKnobAnimation();
+        int previousMode = currentMode;
+        float angle = newMode * knobSweepAngle - selectorKnob.getRotation();
 
         if (newMode > currentMode) {
             // Next mode
-            angle = (newMode - currentMode) * knobSweepAngle;
             currentMode = newMode % totalModes;
         } else {
             // Previous mode
-            angle = (newMode - currentMode) * knobSweepAngle;
             currentMode = (newMode < 0) ? (totalModes - 1) : newMode;
         }
 
-        animateKnob(angle);
+        long duration = animateKnob(angle);
+        recordTransition(previousMode, currentMode, source, duration);
+        reportModeToStateStore();
         invalidate();
 
     }
 
+    /**
+     * Selects the specified mode in the switch and places the knob at the mode's absolute
+     * angle. Any animation still in flight is cancelled first. When animate is false the
+     * knob jumps straight to the mode without allocating or starting an animation, which
+     * makes this the cheap way to rebind a recycled switch, for example from a
+     * RecyclerView adapter. Does nothing if the index of the mode is not valid.
+     *
+     * @param newMode <tt>int</tt> : The index of the mode to select.
+     * @param animate <tt>boolean</tt> : Animates the knob from its current angle if true.
+     * @see #resetForRebind()
+     */
+    public void setMode(int newMode, boolean animate) {
+        setMode(newMode, animate, SelectorTransitionRecorder.SOURCE_API);
+    }
+
+    /**
+     * Selects the specified mode in the switch, places the knob at the mode's absolute
+     * angle and records the transition with the given source.
+     *
+     * @param newMode <tt>int</tt> : The index of the mode to select.
+     * @param animate <tt>boolean</tt> : Animates the knob from its current angle if true.
+     * @param source  <tt>int</tt> : One of the SOURCE_ constants of
+     *                {@link SelectorTransitionRecorder}.
+     */
+    void setMode(int newMode, boolean animate, int source) {
+
+        if (newMode < 0 || newMode >= totalModes) {
+            return;
+        }
+
+        cancelKnobAnimation();
+        int previousMode = currentMode;
+        currentMode = newMode;
+        float angle = newMode * knobSweepAngle;
+        long duration = 0;
+
+        if (animate) {
+            duration = animateKnob(angle - selectorKnob.getRotation());
+        } else {
+            selectorKnob.rotateTo(angle);
+        }
+        recordTransition(previousMode, newMode, source, duration);
+        reportModeToStateStore();
+        invalidate();
+    }
+
+    /**
+     * Logs a mode transition to the switch's own recorder or, failing that, to the global
+     * one. Transitions that don't change the mode are not logged.
+     *
+     * @param fromMode       <tt>int</tt> : The mode before the transition.
+     * @param toMode         <tt>int</tt> : The mode after the transition.
+     * @param source         <tt>int</tt> : One of the SOURCE_ constants of
+     *                       {@link SelectorTransitionRecorder}.
+     * @param durationMillis <tt>long</tt> : The duration of the knob's animation.
+     */
+    private void recordTransition(int fromMode, int toMode, int source, long durationMillis) {
+        SelectorTransitionRecorder recorder = transitionRecorder != null
+                ? transitionRecorder : SelectorTransitionRecorder.getGlobal();
+        if (recorder != null && fromMode != toMode) {
+            recorder.record(getId(), SystemClock.uptimeMillis(), fromMode, toMode, source,
+                    durationMillis);
+        }
+    }
+
+    /**
+     * Sets the recorder the switch's mode transitions are logged to, instead of the global
+     * one.
+     *
+     * @param recorder <tt>SelectorTransitionRecorder</tt> : The recorder, or null to use the
+     *                 global one.
+     * @see SelectorTransitionRecorder#setGlobal(SelectorTransitionRecorder)
+     */
+    public void setTransitionRecorder(@Nullable SelectorTransitionRecorder recorder) {
+        this.transitionRecorder = recorder;
+    }
+
+    /**
+     * Links the switch to the state store it has been bound to, so that it reports every
+     * change of its mode back to the store. Only called by the store.
+     *
+     * @param store <tt>SelectorStateStore</tt> : The store, or null when unbound.
+     * @param index <tt>int</tt> : The index of the switch in the store, or -1.
+     * @see SelectorStateStore#bind(int, SelectorSwitch)
+     */
+    void setStateStore(@Nullable SelectorStateStore store, int index) {
+        this.stateStore = store;
+        this.stateStoreIndex = index;
+    }
+
+    /**
+     * Returns the state store the switch is bound to.
+     *
+     * @return {@link #stateStore}
+     */
+    @Nullable
+    SelectorStateStore getStateStore() {
+        return stateStore;
+    }
+
+    /**
+     * Returns the index the switch is bound to in its state store.
+     *
+     * @return {@link #stateStoreIndex}
+     */
+    int getStateStoreIndex() {
+        return stateStoreIndex;
+    }
+
+    /**
+     * Tells the state store the switch is bound to, if any, about its current mode, so that
+     * taps, rotary input and calls on the switch itself are kept in the store.
+     */
+    private void reportModeToStateStore() {
+        if (stateStore != null) {
+            stateStore.onSwitchModeChanged(this, stateStoreIndex, currentMode);
+        }
+    }
+
+    /**
+     * Requests a mode from any thread. The request is stored atomically and applied on the
+     * UI thread on the next frame with {@link #setMode(int, boolean)}. If more requests
+     * arrive before then, only the latest one is applied, so a producer pushing many
+     * changes per second costs at most one update per frame. Does not lock or block.
+     *
+     * @param newMode <tt>int</tt> : The index of the mode to select.
+     */
+    @AnyThread
+    public void requestMode(int newMode) {
+        requestedMode.set(newMode);
+        if (modeRequestPosted.compareAndSet(false, true)) {
+            postOnAnimation(applyRequestedMode);
+        }
+    }
+
+    /**
+     * Prepares a recycled switch to be bound to new data. Clears any in-flight animation
+     * and places the knob at the current mode's angle, so that a following
+     * {@link #setMode(int, boolean)} starts from a settled state.
+     */
+    public void resetForRebind() {
+        cancelKnobAnimation();
+        selectorKnob.rotateTo(currentMode * knobSweepAngle);
+        invalidate();
+    }
+
     /**
      * Rotates the knob by a specified angle and animates the rotation.
      *
      * @param rotateBy <tt>float</tt> The angle to rotate the knob by.
+     * @return duration The duration of the animation in milliseconds, or 0 if the knob
+     * was rotated without animating.
      * @see SelectorKnobAnimator
      */
-    private void animateKnob(float rotateBy) {
+    private long animateKnob(float rotateBy) {
+
+        // Respect the system's animator duration scale, and shorten the animation and lower
+        // its frame rate while battery saver is on.
+        boolean lowPower = isPowerSaveMode();
+        long duration = (long) (Math.abs(rotateBy) * 1000 / KNOB_DEGREES_PER_SECOND
+                * getAnimatorDurationScale());
+        if (lowPower) {
+            duration /= 2;
+        }
+
+        // Skip the animation altogether if there's nothing to animate.
+        if (duration <= 0) {
+            selectorKnob.rotateBy(rotateBy);
+            invalidate();
+            return 0;
+        }
+
+        int frameRate = frameRateCap == FRAME_RATE_NATIVE ? getDisplayRefreshRate() : frameRateCap;
+        if (lowPower) {
+            frameRate = Math.min(frameRate, LOW_POWER_FRAME_RATE);
+        }
+
+        knobAnimator.start(rotateBy, duration, TimeUnit.SECONDS.toNanos(1) / frameRate);
+        return duration;
+    }
+
+    /**
+     * Returns the system's animator duration scale, set from the developer options or by
+     * accessibility settings. A scale of zero turns animations off. The cached scale is
+     * used while the switch is attached; a detached switch reads it from the system.
+     *
+     * @return scale The animator duration scale.
+     */
+    private float getAnimatorDurationScale() {
+        return systemSettingsCached ? animatorDurationScale : readAnimatorDurationScale();
+    }
+
+    /**
+     * Returns whether battery saver is on, from the cache while the switch is attached.
+     *
+     * @return powerSaveMode True if the device is in power save mode.
+     */
+    private boolean isPowerSaveMode() {
+        return systemSettingsCached ? powerSaveMode : readPowerSaveMode();
+    }
+
+    /**
+     * Reads the animator duration scale from the system's settings.
+     *
+     * @return scale The animator duration scale.
+     */
+    private float readAnimatorDurationScale() {
+        return Settings.Global.getFloat(context.getContentResolver(),
+                Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+    }
+
+    /**
+     * Asks the power manager whether battery saver is on.
+     *
+     * @return powerSaveMode True if the device is in power save mode.
+     */
+    private boolean readPowerSaveMode() {
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.isPowerSaveMode();
+    }
+
+    /**
+     * Returns the refresh rate of the display the switch is on.
+     *
+     * @return refreshRate The refresh rate in frames per second.
+     */
+    private int getDisplayRefreshRate() {
+        Display display = getDisplay();
+        return Math.round(display != null ? display.getRefreshRate() : DEFAULT_REFRESH_RATE);
+    }
+
+    /**
+     * Caps the frame rate of the knob's animation, for example to spare the CPU of low-end
+     * devices. The animation keeps its duration; only fewer frames are drawn.
+     *
+     * @param frameRateCap <tt>int</tt> : Frames per second, such as {@link #FRAME_RATE_30} or
+     *                     {@link #FRAME_RATE_60}, or {@link #FRAME_RATE_NATIVE} for the
+     *                     display's own refresh rate.
+     */
+    public void setFrameRateCap(int frameRateCap) {
+        this.frameRateCap = Math.max(FRAME_RATE_NATIVE, frameRateCap);
+    }
 
-        new SelectorKnobAnimator(this, selectorKnob, rotateBy,
-                STEP_ANGLE, STEP_WAIT_NANOS).execute();
+    /**
+     * Returns the frame rate the knob's animation is capped to.
+     *
+     * @return {@link #frameRateCap}
+     */
+    public int getFrameRateCap() {
+        return frameRateCap;
+    }
 
+    /**
+     * Cancels the animation of the knob, if one is in flight, including its re-seating
+     * during a change of the mode count. The knob is left wherever the animation had
+     * rotated it to.
+     */
+    private void cancelKnobAnimation() {
+        knobAnimator.cancel();
+        reseatingKnob = false;
     }
 
     /**
-     * Returns the mode the switch is currently in.
+     * Returns the mode the switch is currently in. Safe to call from any thread; a mode
+     * requested through {@link #requestMode(int)} is returned once it has been applied.
      *
      * @return {@link #currentMode}
      */
+    @AnyThread
     public int getCurrentMode() {
         return this.currentMode;
     }
@@ -674,27 +2184,55 @@ public class SelectorSwitch extends View {
      * Switches to the default mode.
      */
     public void selectDefaultMode() {
-        selectMode(DEFAULT_MODE);
+        selectMode(defaultMode);
+    }
+
+    /**
+     * Returns the total number of modes in the switch.
+     *
+     * @return {@link #totalModes}
+     * @see #setModeCount(int)
+     */
+    public int getModeCount() {
+        return this.totalModes;
+    }
+
+    /**
+     * Returns the mode selected when the switch is reset.
+     *
+     * @return {@link #defaultMode}
+     */
+    public int getDefaultMode() {
+        return this.defaultMode;
     }
 
     /**
-     * Returns an onClickListener that selects the
-     * next mode upon clicking the switch.
+     * Returns an onClickListener that selects the mode whose sector of the dial was
+     * tapped, or the next mode if the click landed outside the dial or didn't come from
+     * a touch.
      *
      * @return OnClickListener
+     * @see #getModeAt(float, float)
      */
     private OnClickListener getDefaultOnClickListener() {
         return new OnClickListener() {
             @Override
             public void onClick(View v) {
-                selectNextMode();
+                int tappedMode = getModeAt(touchDownX, touchDownY);
+                clearTouchDown();
+
+                if (tappedMode >= 0) {
+                    setMode(tappedMode, true, SelectorTransitionRecorder.SOURCE_TAP);
+                } else {
+                    selectMode(currentMode + 1, SelectorTransitionRecorder.SOURCE_TAP);
+                }
             }
         };
     }
 
     /**
      * Returns an onLongClickListener that selects the
-     * {@link #DEFAULT_MODE} upon long clicking the switch.
+     * {@link #defaultMode} upon long clicking the switch.
      *
      * @return OnLongClickListener
      */
@@ -702,10 +2240,64 @@ public class SelectorSwitch extends View {
         return new OnLongClickListener() {
             @Override
             public boolean onLongClick(View v) {
-                selectDefaultMode();
+                selectMode(defaultMode, SelectorTransitionRecorder.SOURCE_LONG_CLICK);
                 return true;
             }
         };
     }
-}
 
+    /**
+     * SavedState is the compact state of a {@link SelectorSwitch} saved across configuration
+     * changes and process death. It records the mode and the knob's angle and, only if they
+     * were changed at runtime, the number of modes, their names and their colors.
+     */
+    static class SavedState extends BaseSavedState {
+
+        /**
+         * Marks a state whose colors and number of modes were not changed at runtime.
+         */
+        static final int NOT_CUSTOMIZED = -1;
+
+        int mode;
+        float angle;
+        int modeCount = NOT_CUSTOMIZED;
+        String[] modes;
+        int[] colors;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            mode = in.readInt();
+            angle = in.readFloat();
+            modeCount = in.readInt();
+            modes = in.createStringArray();
+            colors = in.createIntArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(mode);
+            out.writeFloat(angle);
+            out.writeInt(modeCount);
+            out.writeStringArray(modes);
+            out.writeIntArray(colors);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR =
+                new Parcelable.Creator<SavedState>() {
+                    @Override
+                    public SavedState createFromParcel(Parcel in) {
+                        return new SavedState(in);
+                    }
+
+                    @Override
+                    public SavedState[] newArray(int size) {
+                        return new SavedState[size];
+                    }
+                };
+    }
+}
@@ -0,0 +1,197 @@
+package adk.selectorswitch;
+
+import android.support.annotation.Nullable;
+
+/**
+ * SelectorTransitionRecorder keeps a log of the mode transitions of one or more
+ * {@link SelectorSwitch} instances, for telemetry. Each transition is stored with its time,
+ * the switch's id, the modes it went from and to, its source and the duration of the knob's
+ * animation in a fixed-size ring buffer made of primitive arrays, so recording a transition
+ * allocates nothing. When the buffer is full the oldest transitions are overwritten.
+ * <p>
+ * The app drains the buffer in batches, for example before uploading, with
+ * {@link #drain(TransitionSink, int)}. A recorder can be set on a single switch with
+ * {@link SelectorSwitch#setTransitionRecorder(SelectorTransitionRecorder)}, or for every
+ * switch with {@link #setGlobal(SelectorTransitionRecorder)}.
+ *
+ * @see SelectorSwitch
+ */
+public final class SelectorTransitionRecorder {
+
+    /**
+     * The mode was changed by a call to one of the switch's methods.
+     */
+    public static final int SOURCE_API = 0;
+
+    /**
+     * The mode was changed by tapping the switch.
+     */
+    public static final int SOURCE_TAP = 1;
+
+    /**
+     * The mode was changed by long clicking the switch.
+     */
+    public static final int SOURCE_LONG_CLICK = 2;
+
+    /**
+     * The mode was changed by a rotary encoder or a scroll wheel.
+     */
+    public static final int SOURCE_ROTARY = 3;
+
+    /**
+     * The mode was changed through {@link SelectorSwitch#requestMode(int)}.
+     */
+    public static final int SOURCE_REQUEST = 4;
+
+    /**
+     * The mode was changed by a snapshot applied to a {@link SelectorStateStore}.
+     */
+    public static final int SOURCE_SNAPSHOT = 5;
+
+    /**
+     * Receives the transitions drained from a recorder.
+     */
+    public interface TransitionSink {
+
+        /**
+         * Called once per drained transition, from the oldest to the newest.
+         *
+         * @param switchId        <tt>int</tt> : The id of the switch.
+         * @param timestampMillis <tt>long</tt> : When the transition happened, in
+         *                        {@link android.os.SystemClock#uptimeMillis()} time.
+         * @param fromMode        <tt>int</tt> : The mode before the transition.
+         * @param toMode          <tt>int</tt> : The mode after the transition.
+         * @param source          <tt>int</tt> : One of the SOURCE_ constants.
+         * @param durationMillis  <tt>long</tt> : The duration of the knob's animation, or 0
+         *                        if the knob wasn't animated.
+         */
+        void onTransition(int switchId, long timestampMillis, int fromMode, int toMode,
+                          int source, long durationMillis);
+    }
+
+    /**
+     * The recorder used by switches that don't have one of their own.
+     */
+    private static volatile SelectorTransitionRecorder global;
+
+    private final int mask;
+    private final long[] timestamps;
+    private final int[] switchIds;
+    private final int[] fromModes;
+    private final int[] toModes;
+    private final int[] sources;
+    private final long[] durations;
+
+    /**
+     * Index the next transition is written at, and number of transitions in the buffer.
+     */
+    private int head, size;
+
+    /**
+     * Number of transitions overwritten before they were drained.
+     */
+    private long droppedCount;
+
+    /**
+     * Creates a recorder.
+     *
+     * @param capacity <tt>int</tt> : The number of transitions kept, rounded up to a power
+     *                 of two.
+     */
+    public SelectorTransitionRecorder(int capacity) {
+        int roundedCapacity = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = roundedCapacity - 1;
+        this.timestamps = new long[roundedCapacity];
+        this.switchIds = new int[roundedCapacity];
+        this.fromModes = new int[roundedCapacity];
+        this.toModes = new int[roundedCapacity];
+        this.sources = new int[roundedCapacity];
+        this.durations = new long[roundedCapacity];
+    }
+
+    /**
+     * Sets the recorder used by every switch that doesn't have one of its own.
+     *
+     * @param recorder <tt>SelectorTransitionRecorder</tt> : The recorder, or null for none.
+     */
+    public static void setGlobal(@Nullable SelectorTransitionRecorder recorder) {
+        global = recorder;
+    }
+
+    /**
+     * Returns the recorder used by every switch that doesn't have one of its own.
+     *
+     * @return {@link #global}
+     */
+    @Nullable
+    public static SelectorTransitionRecorder getGlobal() {
+        return global;
+    }
+
+    /**
+     * Records a transition, overwriting the oldest one if the buffer is full. Allocates
+     * nothing.
+     *
+     * @param switchId        <tt>int</tt> : The id of the switch.
+     * @param timestampMillis <tt>long</tt> : When the transition happened.
+     * @param fromMode        <tt>int</tt> : The mode before the transition.
+     * @param toMode          <tt>int</tt> : The mode after the transition.
+     * @param source          <tt>int</tt> : One of the SOURCE_ constants.
+     * @param durationMillis  <tt>long</tt> : The duration of the knob's animation.
+     */
+    public synchronized void record(int switchId, long timestampMillis, int fromMode, int toMode,
+                                    int source, long durationMillis) {
+        timestamps[head] = timestampMillis;
+        switchIds[head] = switchId;
+        fromModes[head] = fromMode;
+        toModes[head] = toMode;
+        sources[head] = source;
+        durations[head] = durationMillis;
+        head = (head + 1) & mask;
+
+        if (size <= mask) {
+            size++;
+        } else {
+            droppedCount++;
+        }
+    }
+
+    /**
+     * Hands up to maxEvents of the oldest transitions to the sink and removes them from the
+     * buffer. The sink is called while the recorder is locked, so it should only copy the
+     * values out.
+     *
+     * @param sink      <tt>TransitionSink</tt> : Receives the transitions.
+     * @param maxEvents <tt>int</tt> : The maximum number of transitions to drain.
+     * @return drained The number of transitions handed to the sink.
+     */
+    public synchronized int drain(TransitionSink sink, int maxEvents) {
+        int drained = Math.max(0, Math.min(size, maxEvents));
+        int tail = (head - size) & mask;
+        for (int i = 0; i < drained; i++) {
+            int index = (tail + i) & mask;
+            sink.onTransition(switchIds[index], timestamps[index], fromModes[index],
+                    toModes[index], sources[index], durations[index]);
+        }
+        size -= drained;
+        return drained;
+    }
+
+    /**
+     * Returns the number of transitions waiting to be drained.
+     *
+     * @return {@link #size}
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of transitions overwritten before they could be drained.
+     *
+     * @return {@link #droppedCount}
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+}
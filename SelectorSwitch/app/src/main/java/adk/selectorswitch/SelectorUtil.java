@@ -42,7 +42,7 @@ class SelectorUtil {
      * @return sweepingAngle The angle between 2 adjacent modes.
      */
     static float getSweepingAngle(int maxModes) {
-        return (float) 360 / maxModes;
+        return SelectorGeometry.getSweepingAngle(maxModes);
     }
 
     /**
@@ -95,38 +95,19 @@ class SelectorUtil {
     }
 
     /**
-     * Generates a list of colors that blend from a starting color to an ending color. The
-     * size of the list is same as dialModeCount.
+     * Generates a list of colors that blend evenly from a starting color to an ending
+     * color, both included. The size of the list is same as dialModeCount. The blending is
+     * done, and memoized, by {@link SelectorColorBlender}; the list is shared and
+     * unmodifiable, so it is copied before any of its colors are changed.
      *
      * @param dialModeCount <tt>int</tt> : Size of the list.
      * @param startingColor <tt>int</tt> : Color to start blending from.
      * @param endingColor   <tt>int</tt> : Color to finally blend into.
      * @return colorList    List of Integers representing the blended colors.
-     * @see Color#HSVToColor(float[])
+     * @see SelectorColorBlender#getBlendingList(int, int, int)
      */
     static List<Integer> generateBlendingColors(int dialModeCount, int startingColor, int endingColor) {
-
-        List<Integer> colorList = new ArrayList<>(dialModeCount);
-        float[] startingColorHSV = new float[3];
-        float[] endingColorHSV = new float[3];
-
-        Color.colorToHSV(startingColor, startingColorHSV);
-        Color.colorToHSV(endingColor, endingColorHSV);
-
-        float hInc = endingColorHSV[0] - startingColorHSV[0];
-        float sInc = endingColorHSV[1] - startingColorHSV[1];
-        float vInc = endingColorHSV[2] - startingColorHSV[2];
-        float[] temp;
-
-        // Generate the blending colors.
-        for (int i = 0; i < dialModeCount; i++) {
-            temp = new float[]{startingColorHSV[0] + i * hInc,
-                    startingColorHSV[1] + i * sInc,
-                    startingColorHSV[2] + i * vInc};
-            colorList.add(Color.HSVToColor(temp));
-        }
-
-        return colorList;
+        return SelectorColorBlender.getBlendingList(dialModeCount, startingColor, endingColor);
     }
 
     /**
@@ -136,7 +117,7 @@ class SelectorUtil {
      * @return pixels   Pixel count equivalent to the given DP units.
      */
     static int getPixelsFromDips(int dps, float density) {
-        return (int) (density * dps / 0.5);
+        return SelectorGeometry.getPixelsFromDips(dps, density);
     }
 
     /**
@@ -0,0 +1,105 @@
+package adk.selectorswitch;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.NonNull;
+import android.support.annotation.UiThread;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * SelectorWarmUp pre-builds the rendering resources of {@link SelectorSwitch} configurations
+ * before the switches using them are inflated. Each configuration is described by a
+ * {@link SelectorSpec.Builder}; the spec built from it, with its dial colors, paints, angles,
+ * knob path and scene, is kept in a process-wide cache. A switch constructed
+ * later with the same modes, colors and densities takes those resources from the cache
+ * instead of computing them in its constructor, which keeps the work out of the first frame
+ * of the screen it appears on.
+ * <p>
+ * The specs can be built while the main looper is idle, one per idle pass so that no single
+ * pass holds up a frame, or on any executor.
+ *
+ * @see SelectorSpec
+ * @see SelectorSwitch
+ */
+public final class SelectorWarmUp {
+
+    private SelectorWarmUp() {
+    }
+
+    /**
+     * Builds the specs of the given configurations while the current thread's looper is
+     * idle, one configuration per idle pass. Configurations that can't be built, for
+     * example because the number of modes and colors differ, are skipped.
+     *
+     * @param builders <tt>Collection<SelectorSpec.Builder></tt> : The configurations of
+     *                 the switches to be inflated later. The builders must not be changed
+     *                 until they have been built.
+     * @see MessageQueue#addIdleHandler(MessageQueue.IdleHandler)
+     */
+    @UiThread
+    public static void prebuildWhenIdle(@NonNull Collection<SelectorSpec.Builder> builders) {
+        final List<SelectorSpec.Builder> pending = new ArrayList<>(builders);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            private int next;
+
+            @Override
+            public boolean queueIdle() {
+                prebuild(pending.get(next++));
+                return next < pending.size();
+            }
+        });
+    }
+
+    /**
+     * Builds the specs of the given configurations on an executor, one task per
+     * configuration. Configurations that can't be built are skipped.
+     *
+     * @param builders <tt>Collection<SelectorSpec.Builder></tt> : The configurations of
+     *                 the switches to be inflated later. The builders must not be changed
+     *                 until they have been built.
+     * @param executor <tt>Executor</tt> : The executor to build on.
+     */
+    public static void prebuild(@NonNull Collection<SelectorSpec.Builder> builders,
+                                @NonNull Executor executor) {
+        for (final SelectorSpec.Builder builder : builders) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    prebuild(builder);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops every pre-built spec, for example once the screens they were built for are
+     * gone. The other cached resources of the switches that aren't bitmaps, such as knob
+     * shapes, are dropped as well.
+     *
+     * @see SelectorCacheManager
+     */
+    public static void clear() {
+        SelectorSpecCache.clear();
+    }
+
+    /**
+     * Builds a single spec and adds it to the cache.
+     *
+     * @param builder <tt>SelectorSpec.Builder</tt> : The configuration to build.
+     */
+    private static void prebuild(SelectorSpec.Builder builder) {
+        try {
+            SelectorSpecCache.put(builder.build());
+        } catch (IllegalSelectorException e) {
+            // The switch will report the invalid configuration itself when inflated.
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package adk.selectorswitch;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link SelectorAssetCache} only accepts the header of a file written for the
+ * same layer in the current format, and that layers drawn in different theme colors are
+ * kept apart.
+ */
+public class SelectorAssetCacheTest {
+
+    private static final long HASH = 0x0123456789ABCDEFL;
+    private static final int WIDTH = 88;
+    private static final int HEIGHT = 112;
+
+    private static final List<String> MODES = Arrays.asList("OFF", "LOW", "HIGH");
+    private static final List<Integer> COLORS = Arrays.asList(0xFFFF0000, 0xFF00FF00,
+            0xFF0000FF);
+
+    @Test
+    public void readsTheHeaderItWrote() {
+        ByteBuffer buffer = writeHeader();
+
+        assertTrue(SelectorAssetCache.readHeader(buffer, HASH, WIDTH, HEIGHT));
+        // The pixels follow the header.
+        assertEquals(24, buffer.position());
+    }
+
+    @Test
+    public void rejectsAnotherFileType() {
+        assertFalse(readCorrupted(0));
+    }
+
+    @Test
+    public void rejectsAnotherFormatVersion() {
+        ByteBuffer buffer = writeHeader();
+        buffer.putInt(4, SelectorAssetCache.FORMAT_VERSION + 1);
+
+        assertFalse(SelectorAssetCache.readHeader(buffer, HASH, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void rejectsAnotherConfiguration() {
+        assertFalse(readCorrupted(8));
+        assertFalse(SelectorAssetCache.readHeader(writeHeader(), HASH + 1, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void rejectsAnotherSize() {
+        assertFalse(readCorrupted(16));
+        assertFalse(readCorrupted(20));
+        assertFalse(SelectorAssetCache.readHeader(writeHeader(), HASH, HEIGHT, WIDTH));
+    }
+
+    @Test
+    public void rejectsATruncatedHeader() {
+        ByteBuffer buffer = writeHeader();
+        buffer.limit(20);
+
+        assertFalse(SelectorAssetCache.readHeader(buffer, HASH, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void hashesTheThemeColorsOfTheLayer() throws IllegalSelectorException {
+        long light = SelectorAssetCache.hashOf(new SelectorScene(2, 2, MODES, COLORS), 2, 2);
+
+        assertEquals(light, SelectorAssetCache.hashOf(
+                new SelectorScene(2, 2, MODES, COLORS), 2, 2));
+        assertNotEquals(light, SelectorAssetCache.hashOf(new SelectorScene(2, 2, MODES,
+                COLORS, 0xFF303030, 0xFF444444, 0xFF000000), 2, 2));
+        assertNotEquals(light, SelectorAssetCache.hashOf(new SelectorScene(2, 2, MODES,
+                COLORS, 0xFFFFFFFF, 0xFF000000, 0xFF000000), 2, 2));
+        // The mode's name isn't part of the layer.
+        assertEquals(light, SelectorAssetCache.hashOf(new SelectorScene(2, 2, MODES,
+                COLORS, 0xFFFFFFFF, 0xFF444444, 0xFFFFFFFF), 2, 2));
+    }
+
+    private static ByteBuffer writeHeader() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        SelectorAssetCache.writeHeader(buffer, HASH, WIDTH, HEIGHT);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Flips a bit in the given byte of a valid header and reads it back.
+     */
+    private static boolean readCorrupted(int index) {
+        ByteBuffer buffer = writeHeader();
+        buffer.put(index, (byte) (buffer.get(index) ^ 1));
+        return SelectorAssetCache.readHeader(buffer, HASH, WIDTH, HEIGHT);
+    }
+}
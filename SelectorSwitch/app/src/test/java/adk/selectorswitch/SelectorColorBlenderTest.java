@@ -0,0 +1,97 @@
+package adk.selectorswitch;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the OKLab blending of {@link SelectorColorBlender} and the memo of its ramps.
+ */
+public class SelectorColorBlenderTest {
+
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+
+    @Test
+    public void keepsTheEndsOfARamp() {
+        int[] ramp = new int[5];
+        SelectorColorBlender.fillBlendingRamp(ramp, 5, RED, BLUE);
+
+        assertColor(RED, ramp[0]);
+        assertColor(BLUE, ramp[4]);
+    }
+
+    @Test
+    public void startsARampOfOneColor() {
+        int[] ramp = new int[1];
+        SelectorColorBlender.fillBlendingRamp(ramp, 1, RED, BLUE);
+
+        assertEquals(RED, ramp[0]);
+    }
+
+    @Test
+    public void blendsGraysByLightness() {
+        // Halfway in OKLab lightness is a quarter of the way in linear light, not sRGB 0x80.
+        int gray = SelectorColorBlender.blend(0xFF000000, 0xFFFFFFFF, 0.5f);
+
+        assertColor(0xFF636363, gray);
+    }
+
+    @Test
+    public void blendsAlphaLinearly() {
+        int color = SelectorColorBlender.blend(0x00FF0000, 0xFFFF0000, 0.5f);
+
+        assertEquals(0x80, color >>> 24);
+        assertColor(0xFFFF0000, color | 0xFF000000);
+    }
+
+    @Test
+    public void sharesCachedRamps() {
+        int[] ramp = SelectorColorBlender.getBlendingRamp(4, RED, BLUE);
+        List<Integer> list = SelectorColorBlender.getBlendingList(4, RED, BLUE);
+
+        assertSame(ramp, SelectorColorBlender.getBlendingRamp(4, RED, BLUE));
+        assertSame(list, SelectorColorBlender.getBlendingList(4, RED, BLUE));
+        assertEquals(SelectorUtil.arrayToList(ramp), list);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void handsOutUnmodifiableLists() {
+        SelectorColorBlender.getBlendingList(3, RED, BLUE).set(0, BLUE);
+    }
+
+    @Test
+    public void replacesRampsThatShareASlot() {
+        // More ramps than slots, so some of them evict others.
+        for (int i = 0; i < 100; i++) {
+            SelectorColorBlender.getBlendingList(2 + i % 7, RED + i, BLUE);
+        }
+        for (int i = 0; i < 100; i++) {
+            int count = 2 + i % 7;
+            int[] expected = new int[count];
+            SelectorColorBlender.fillBlendingRamp(expected, count, RED + i, BLUE);
+
+            assertArrayEquals(expected, SelectorColorBlender.getBlendingRamp(count, RED + i,
+                    BLUE));
+            assertEquals(SelectorUtil.arrayToList(expected),
+                    SelectorColorBlender.getBlendingList(count, RED + i, BLUE));
+        }
+    }
+
+    /**
+     * Checks that two colors are within one step of each other in every channel, to allow
+     * for rounding on the way through OKLab.
+     */
+    private static void assertColor(int expected, int actual) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            int difference = ((expected >>> shift) & 0xFF) - ((actual >>> shift) & 0xFF);
+            assertTrue(String.format("Expected %08X, got %08X", expected, actual),
+                    Math.abs(difference) <= 1);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package adk.selectorswitch;
+
+import android.view.LayoutInflater;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SelectorInitBenchmark inflates <tt>activity_main.xml</tt>, whose switch takes its modes
+ * and colors from XML attributes, 1, 50 and 500 times on the JVM, and prints the per-phase
+ * averages recorded by the {@link SelectorInitProfiler}.
+ * <p>
+ * The times are taken with heap profiling off, since the garbage collections it forces
+ * would dwarf them. The heap of each phase is then taken in a second, smaller pass, which
+ * leaves out the 500 switches: a switch doesn't retain more because it has neighbors, and
+ * four collections per switch would make that batch take minutes.
+ * <p>
+ * Robolectric's framework isn't a device's, so only the ratios between the batches are
+ * asserted, not the times themselves.
+ *
+ * @see SelectorInitProfiler#report()
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SelectorInitBenchmark {
+
+    /**
+     * How many times the batch of one switch is repeated, to take the median of its times.
+     */
+    private static final int SINGLE_REPEATS = 7;
+
+    /**
+     * The most a switch in the batch of 500 may take, as a multiple of the lone switch.
+     * Startup work that grows with the number of switches, such as a scan over a shared
+     * list, would make the ratio grow with the batch, well past this.
+     */
+    private static final float MAX_PER_INSTANCE_RATIO = 4;
+
+    private LayoutInflater inflater;
+    private FrameLayout parent;
+
+    @Before
+    public void setUp() {
+        inflater = LayoutInflater.from(RuntimeEnvironment.application);
+        parent = new FrameLayout(RuntimeEnvironment.application);
+
+        // Inflate a few switches before measuring, so class loading, the shared caches and
+        // the JIT aren't charged to the first batch.
+        for (int i = 0; i < 50; i++) {
+            inflater.inflate(R.layout.activity_main, parent, false);
+        }
+        SelectorInitProfiler.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        SelectorInitProfiler.setEnabled(false);
+        SelectorInitProfiler.setHeapProfilingEnabled(false);
+        SelectorInitProfiler.reset();
+    }
+
+    @Test
+    public void scalesSubLinearly() {
+        long[] singles = new long[SINGLE_REPEATS];
+        for (int i = 0; i < SINGLE_REPEATS; i++) {
+            singles[i] = inflate(1);
+        }
+        Arrays.sort(singles);
+        long single = singles[SINGLE_REPEATS / 2];
+
+        inflate(50);
+        long fiveHundred = inflate(500);
+
+        float ratio = fiveHundred / (float) Math.max(1, single);
+        System.out.println(String.format(Locale.US, "SelectorInitBenchmark: 500/1 ratio=%.2f",
+                ratio));
+        assertTrue("A switch takes " + ratio + " times as long among 500 as on its own",
+                ratio <= MAX_PER_INSTANCE_RATIO);
+    }
+
+    @Test
+    public void reportsTheHeapOfEachPhase() {
+        SelectorInitProfiler.setHeapProfilingEnabled(true);
+        inflate(1);
+        inflate(50);
+
+        assertTrue(SelectorInitProfiler.getAverageHeapBytes() > 0);
+    }
+
+    /**
+     * Inflates a number of switches into the same parent and prints the profiler's report.
+     *
+     * @param count <tt>int</tt> : The number of switches to inflate.
+     * @return nanos The average construction time of a switch.
+     */
+    private long inflate(int count) {
+        SelectorInitProfiler.reset();
+        parent.removeAllViews();
+        for (int i = 0; i < count; i++) {
+            parent.addView(inflater.inflate(R.layout.activity_main, parent, false));
+        }
+
+        assertEquals(count, SelectorInitProfiler.getInstanceCount());
+        System.out.println("SelectorInitBenchmark: " + SelectorInitProfiler.report());
+        return SelectorInitProfiler.getAverageNanos();
+    }
+}
@@ -0,0 +1,245 @@
+package adk.selectorswitch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that {@link SelectorPathDataParser} follows the SVG path grammar and replays the
+ * right commands, with quadratic curves and arcs turned into cubic curves.
+ */
+public class SelectorPathDataParserTest {
+
+    private static final float DELTA = 1e-4f;
+
+    @Test
+    public void readsCompactNumbers() throws IllegalSelectorException {
+        Recorder path = parse("M1-2.5L.5.5");
+
+        path.expect('M', 1, -2.5f);
+        path.expect('L', .5f, .5f);
+        path.expectEnd();
+    }
+
+    @Test
+    public void readsExponents() throws IllegalSelectorException {
+        Recorder path = parse("M1e1 2E-1");
+
+        path.expect('M', 10, .2f);
+        path.expectEnd();
+    }
+
+    @Test
+    public void treatsCoordinatesAfterAMoveAsLines() throws IllegalSelectorException {
+        Recorder path = parse("M0 0 10 0 10,10z m1 1 2 0");
+
+        path.expect('M', 0, 0);
+        path.expect('L', 10, 0);
+        path.expect('L', 10, 10);
+        path.expect('Z');
+        path.expect('M', 1, 1);
+        path.expect('L', 3, 1);
+        path.expectEnd();
+    }
+
+    @Test
+    public void resolvesRelativeCommands() throws IllegalSelectorException {
+        Recorder path = parse("m1 1 l2 0 h3 v-4 H0 V2 z l1 0");
+
+        path.expect('M', 1, 1);
+        path.expect('L', 3, 1);
+        path.expect('L', 6, 1);
+        path.expect('L', 6, -3);
+        path.expect('L', 0, -3);
+        path.expect('L', 0, 2);
+        path.expect('Z');
+        // A close returns to the start of the contour.
+        path.expect('L', 2, 1);
+        path.expectEnd();
+    }
+
+    @Test
+    public void reflectsControlPointsOfSmoothCubics() throws IllegalSelectorException {
+        Recorder path = parse("M0 0 C0 1 1 1 1 0 S2 -1 2 0 M5 5 S6 6 7 5");
+
+        path.expect('M', 0, 0);
+        path.expect('C', 0, 1, 1, 1, 1, 0);
+        path.expect('C', 1, -1, 2, -1, 2, 0);
+        path.expect('M', 5, 5);
+        // Nothing to reflect after a move, so the first control point is the current point.
+        path.expect('C', 5, 5, 6, 6, 7, 5);
+        path.expectEnd();
+    }
+
+    @Test
+    public void convertsQuadraticCurvesToCubics() throws IllegalSelectorException {
+        Recorder path = parse("M0 0 Q3 3 6 0 T12 0");
+
+        path.expect('M', 0, 0);
+        path.expect('C', 2, 2, 4, 2, 6, 0);
+        // The smooth quad reflects (3, 3) about (6, 0) to (9, -3).
+        path.expect('C', 8, -2, 10, -2, 12, 0);
+        path.expectEnd();
+    }
+
+    @Test
+    public void splitsArcsIntoQuarterTurns() throws IllegalSelectorException {
+        Recorder path = parse("M1 0 A1 1 0 0 1 -1 0");
+
+        path.expect('M', 1, 0);
+        float[] first = path.next('C');
+        float[] second = path.next('C');
+        path.expectEnd();
+
+        // A half circle about the origin, through (0, 1).
+        assertEquals(0, first[4], DELTA);
+        assertEquals(1, first[5], DELTA);
+        assertEquals(-1, second[4], DELTA);
+        assertEquals(0, second[5], DELTA);
+
+        // The handles of a quarter turn of a unit circle are 4/3 tan(pi/8) long.
+        float handle = (float) (4.0 / 3 * Math.tan(Math.PI / 8));
+        assertArrayEquals(new float[]{1, handle, handle, 1, 0, 1}, first, DELTA);
+    }
+
+    @Test
+    public void scalesUpRadiiTooSmallForTheArc() throws IllegalSelectorException {
+        Recorder path = parse("M0 0 A0.1 0.1 0 0 1 2 0");
+
+        path.expect('M', 0, 0);
+        float[] first = path.next('C');
+        float[] second = path.next('C');
+        path.expectEnd();
+
+        // The radius grows to 1, so the arc is a half circle about (1, 0).
+        assertEquals(1, first[4], DELTA);
+        assertEquals(1, Math.abs(first[5]), DELTA);
+        assertEquals(2, second[4], DELTA);
+        assertEquals(0, second[5], DELTA);
+    }
+
+    @Test
+    public void drawsArcsWithoutRadiiAsLines() throws IllegalSelectorException {
+        Recorder path = parse("M0 0 A0 5 0 0 1 3 4 a5 5 0 0 1 0 0");
+
+        path.expect('M', 0, 0);
+        path.expect('L', 3, 4);
+        // An arc to the current point draws nothing.
+        path.expectEnd();
+    }
+
+    @Test
+    public void readsArcFlagsWithoutSeparators() throws IllegalSelectorException {
+        Recorder path = parse("M0 0a5 5 0 1010 0");
+
+        path.expect('M', 0, 0);
+        float[] last = null;
+        while (path.hasNext()) {
+            last = path.next('C');
+        }
+        assertEquals(10, last[4], DELTA);
+        assertEquals(0, last[5], DELTA);
+    }
+
+    @Test
+    public void rejectsNumbersWithoutACommand() {
+        expectError("1 2", "Expected a command at index 0");
+        expectError("M0 0 z 1 2", "Expected a command at index 7");
+    }
+
+    @Test
+    public void rejectsMissingNumbers() {
+        expectError("M1", "Expected a number at index 2");
+        expectError("M1 2 L3", "Expected a number at index 7");
+    }
+
+    @Test
+    public void rejectsUnknownCommands() {
+        expectError("M1 2 X3", "Unknown command 'X'");
+    }
+
+    @Test
+    public void rejectsInvalidArcFlags() {
+        expectError("M0 0 A1 1 0 2 0 1 1", "Expected an arc flag at index 12");
+    }
+
+    private static Recorder parse(String data) throws IllegalSelectorException {
+        Recorder recorder = new Recorder();
+        SelectorPathDataParser.parse(data, recorder);
+        return recorder;
+    }
+
+    private static void expectError(String data, String message) {
+        try {
+            parse(data);
+            fail("\"" + data + "\" should not parse");
+        } catch (IllegalSelectorException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    /**
+     * Records the commands replayed into it, to be checked one at a time.
+     */
+    private static final class Recorder implements SelectorKnobShape.PathSink {
+
+        private final List<Character> commands = new ArrayList<>();
+        private final List<float[]> arguments = new ArrayList<>();
+        private int position;
+
+        @Override
+        public void moveTo(float x, float y) {
+            add('M', x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            add('L', x, y);
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            add('C', x1, y1, x2, y2, x3, y3);
+        }
+
+        @Override
+        public void addArc(float left, float top, float right, float bottom, float startAngle,
+                           float sweepAngle) {
+            add('A', left, top, right, bottom, startAngle, sweepAngle);
+        }
+
+        @Override
+        public void close() {
+            add('Z');
+        }
+
+        private void add(char command, float... values) {
+            commands.add(command);
+            arguments.add(values);
+        }
+
+        boolean hasNext() {
+            return position < commands.size();
+        }
+
+        float[] next(char command) {
+            assertTrue("Missing command " + command, hasNext());
+            assertEquals("Command " + position, command, (char) commands.get(position));
+            return arguments.get(position++);
+        }
+
+        void expect(char command, float... values) {
+            assertArrayEquals(values, next(command), DELTA);
+        }
+
+        void expectEnd() {
+            assertEquals("Commands", commands.size(), position);
+        }
+    }
+}
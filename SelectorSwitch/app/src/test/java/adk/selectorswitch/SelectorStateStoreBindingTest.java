@@ -0,0 +1,82 @@
+package adk.selectorswitch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that {@link SelectorStateStore} and the switches bound to it stay in step when the
+ * switches are changed on their own, with the default three modes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SelectorStateStoreBindingTest {
+
+    private SelectorStateStore store;
+    private SelectorSwitch selectorSwitch;
+
+    @Before
+    public void setUp() throws IllegalSelectorException {
+        store = new SelectorStateStore(4);
+        selectorSwitch = new SelectorSwitch(RuntimeEnvironment.application);
+        store.bind(1, selectorSwitch);
+    }
+
+    @Test
+    public void reappliesASnapshotAfterTheUserChangedTheSwitch()
+            throws IllegalSelectorException {
+        long[] snapshot = SelectorStateStore.pack(new int[4], 3);
+        assertEquals(0, store.applySnapshot(snapshot));
+
+        // A tap away from the dial selects the next mode.
+        selectorSwitch.performClick();
+        assertEquals(1, selectorSwitch.getCurrentMode());
+        assertEquals(1, store.getMode(1));
+
+        // The backend still says mode 0, which the switch no longer shows.
+        assertEquals(1, store.applySnapshot(snapshot));
+        assertEquals(0, selectorSwitch.getCurrentMode());
+        assertEquals(0, store.getMode(1));
+    }
+
+    @Test
+    public void storesModesSelectedOnTheSwitch() throws IllegalSelectorException {
+        selectorSwitch.selectMode(2);
+        assertEquals(2, store.getMode(1));
+
+        selectorSwitch.performLongClick();
+        assertEquals(selectorSwitch.getCurrentMode(), store.getMode(1));
+
+        selectorSwitch.setMode(2, false);
+        selectorSwitch.setModeCount(2);
+        assertEquals(1, selectorSwitch.getCurrentMode());
+        assertEquals(1, store.getMode(1));
+    }
+
+    @Test
+    public void movesARecycledSwitchToItsNewIndex() {
+        store.bind(3, selectorSwitch);
+        selectorSwitch.selectMode(2);
+
+        assertEquals(0, store.getMode(1));
+        assertEquals(2, store.getMode(3));
+        assertSame(store, selectorSwitch.getStateStore());
+        assertEquals(3, selectorSwitch.getStateStoreIndex());
+    }
+
+    @Test
+    public void forgetsUnboundSwitches() {
+        store.unbind(1);
+        selectorSwitch.selectMode(2);
+
+        assertEquals(0, store.getMode(1));
+        assertNull(selectorSwitch.getStateStore());
+    }
+}
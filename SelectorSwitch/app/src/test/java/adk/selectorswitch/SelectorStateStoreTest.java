@@ -0,0 +1,104 @@
+package adk.selectorswitch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the bit packing and the snapshot diffing of {@link SelectorStateStore}, without any
+ * switches bound.
+ */
+public class SelectorStateStoreTest {
+
+    @Test
+    public void packsWholeSwitchesPerWord() {
+        // 21 switches of 3 bits fit in a word, so 25 switches take two words.
+        assertEquals(2, SelectorStateStore.getWordCount(25, 3));
+        assertEquals(1, SelectorStateStore.getWordCount(16, 4));
+        assertEquals(2, SelectorStateStore.getWordCount(11, 6));
+        assertEquals(0, SelectorStateStore.getWordCount(0, 3));
+    }
+
+    @Test
+    public void storesModesAcrossWords() throws IllegalSelectorException {
+        SelectorStateStore store = new SelectorStateStore(25);
+        int[] modes = new int[25];
+        for (int i = 0; i < modes.length; i++) {
+            modes[i] = i % 8;
+            assertTrue(store.setMode(i, modes[i]));
+        }
+        for (int i = 0; i < modes.length; i++) {
+            assertEquals(modes[i], store.getMode(i));
+        }
+        assertArrayEquals(SelectorStateStore.pack(modes, 3), store.getSnapshot());
+    }
+
+    @Test
+    public void rejectsModesThatDontFit() throws IllegalSelectorException {
+        SelectorStateStore store = new SelectorStateStore(4);
+        store.setMode(1, 5);
+
+        assertFalse(store.setMode(1, 8));
+        assertFalse(store.setMode(1, -1));
+        assertEquals(5, store.getMode(1));
+        assertEquals(0, store.getMode(0));
+        assertEquals(0, store.getMode(2));
+    }
+
+    @Test
+    public void countsOnlyChangedSwitches() throws IllegalSelectorException {
+        SelectorStateStore store = new SelectorStateStore(30, 4);
+        int[] modes = new int[30];
+        store.applySnapshot(SelectorStateStore.pack(modes, 4));
+
+        modes[0] = 1;
+        modes[15] = 7;
+        modes[16] = 2;
+        modes[29] = 15;
+        assertEquals(4, store.applySnapshot(SelectorStateStore.pack(modes, 4)));
+        assertEquals(0, store.applySnapshot(SelectorStateStore.pack(modes, 4)));
+        for (int i = 0; i < modes.length; i++) {
+            assertEquals(modes[i], store.getMode(i));
+        }
+    }
+
+    @Test
+    public void ignoresBitsPastTheLastSwitch() throws IllegalSelectorException {
+        SelectorStateStore store = new SelectorStateStore(12, 6);
+        long[] snapshot = SelectorStateStore.pack(new int[12], 6);
+
+        // The last word holds two switches; everything above them is padding.
+        snapshot[1] = -1L << 12;
+        snapshot[0] = -1L << 60;
+        assertEquals(0, store.applySnapshot(snapshot));
+        assertArrayEquals(new long[2], store.getSnapshot());
+
+        snapshot[1] |= 0x3FL << 6;
+        assertEquals(1, store.applySnapshot(snapshot));
+        assertEquals(63, store.getMode(11));
+        assertArrayEquals(new long[]{0, 0x3FL << 6}, store.getSnapshot());
+    }
+
+    @Test
+    public void usesEveryBitWhenSwitchesFillTheWord() throws IllegalSelectorException {
+        SelectorStateStore store = new SelectorStateStore(16, 4);
+        long[] snapshot = {-1L};
+
+        assertEquals(16, store.applySnapshot(snapshot));
+        assertEquals(15, store.getMode(15));
+        assertArrayEquals(snapshot, store.getSnapshot());
+    }
+
+    @Test(expected = IllegalSelectorException.class)
+    public void rejectsSnapshotsOfAnotherLayout() throws IllegalSelectorException {
+        new SelectorStateStore(25).applySnapshot(new long[1]);
+    }
+
+    @Test(expected = IllegalSelectorException.class)
+    public void rejectsTooFewBits() throws IllegalSelectorException {
+        new SelectorStateStore(4, 2);
+    }
+}
@@ -0,0 +1,114 @@
+package adk.selectorswitch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the ring buffer of {@link SelectorTransitionRecorder}: ordering, wrapping around,
+ * dropping the oldest transitions and draining in batches.
+ */
+public class SelectorTransitionRecorderTest {
+
+    @Test
+    public void roundsTheCapacityUpToAPowerOfTwo() {
+        assertEquals(1, fill(new SelectorTransitionRecorder(1), 10).size());
+        assertEquals(2, fill(new SelectorTransitionRecorder(2), 10).size());
+        assertEquals(4, fill(new SelectorTransitionRecorder(3), 10).size());
+        assertEquals(8, fill(new SelectorTransitionRecorder(5), 10).size());
+        assertEquals(1, fill(new SelectorTransitionRecorder(0), 10).size());
+    }
+
+    @Test
+    public void drainsEveryFieldFromOldestToNewest() {
+        SelectorTransitionRecorder recorder = new SelectorTransitionRecorder(4);
+        recorder.record(7, 100, 0, 1, SelectorTransitionRecorder.SOURCE_TAP, 250);
+        recorder.record(9, 200, 3, 2, SelectorTransitionRecorder.SOURCE_ROTARY, 0);
+
+        Sink sink = new Sink();
+        assertEquals(2, recorder.drain(sink, 10));
+        assertArrayEquals(new long[]{7, 100, 0, 1, SelectorTransitionRecorder.SOURCE_TAP, 250},
+                sink.events.get(0));
+        assertArrayEquals(new long[]{9, 200, 3, 2, SelectorTransitionRecorder.SOURCE_ROTARY, 0},
+                sink.events.get(1));
+        assertEquals(0, recorder.size());
+        assertEquals(0, recorder.getDroppedCount());
+    }
+
+    @Test
+    public void overwritesTheOldestWhenFull() {
+        SelectorTransitionRecorder recorder = fill(new SelectorTransitionRecorder(4), 6);
+
+        assertEquals(4, recorder.size());
+        assertEquals(2, recorder.getDroppedCount());
+        assertArrayEquals(new long[]{2, 3, 4, 5}, drainTimestamps(recorder, 10));
+    }
+
+    @Test
+    public void drainsInBatchesAcrossTheEndOfTheBuffer() {
+        SelectorTransitionRecorder recorder = fill(new SelectorTransitionRecorder(4), 3);
+        assertArrayEquals(new long[]{0, 1}, drainTimestamps(recorder, 2));
+
+        // The next three wrap around to the start of the arrays.
+        recorder.record(0, 3, 0, 1, SelectorTransitionRecorder.SOURCE_API, 0);
+        recorder.record(0, 4, 0, 1, SelectorTransitionRecorder.SOURCE_API, 0);
+        recorder.record(0, 5, 0, 1, SelectorTransitionRecorder.SOURCE_API, 0);
+
+        assertEquals(4, recorder.size());
+        assertEquals(0, recorder.getDroppedCount());
+        assertArrayEquals(new long[]{2, 3, 4}, drainTimestamps(recorder, 3));
+        assertArrayEquals(new long[]{5}, drainTimestamps(recorder, 3));
+        assertArrayEquals(new long[0], drainTimestamps(recorder, 3));
+    }
+
+    @Test
+    public void drainsNothingForANonPositiveBatch() {
+        SelectorTransitionRecorder recorder = fill(new SelectorTransitionRecorder(4), 2);
+
+        assertEquals(0, recorder.drain(new Sink(), 0));
+        assertEquals(0, recorder.drain(new Sink(), -1));
+        assertEquals(2, recorder.size());
+    }
+
+    /**
+     * Records transitions with the timestamps 0 to count - 1.
+     */
+    private static SelectorTransitionRecorder fill(SelectorTransitionRecorder recorder,
+                                                   int count) {
+        for (int i = 0; i < count; i++) {
+            recorder.record(0, i, 0, 1, SelectorTransitionRecorder.SOURCE_API, 0);
+        }
+        return recorder;
+    }
+
+    private static long[] drainTimestamps(SelectorTransitionRecorder recorder, int maxEvents) {
+        Sink sink = new Sink();
+        int drained = recorder.drain(sink, maxEvents);
+        assertEquals(sink.events.size(), drained);
+
+        long[] timestamps = new long[drained];
+        for (int i = 0; i < drained; i++) {
+            timestamps[i] = sink.events.get(i)[1];
+        }
+        return timestamps;
+    }
+
+    /**
+     * Keeps the drained transitions, each as {id, time, from, to, source, duration}.
+     */
+    private static final class Sink implements SelectorTransitionRecorder.TransitionSink {
+
+        private final List<long[]> events = new ArrayList<>();
+
+        @Override
+        public void onTransition(int switchId, long timestampMillis, int fromMode, int toMode,
+                                 int source, long durationMillis) {
+            events.add(new long[]{switchId, timestampMillis, fromMode, toMode, source,
+                    durationMillis});
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package adk.selectorswitch;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Java2DSelectorRenderer is the headless backend of {@link SelectorRenderer}: it draws a
+ * {@link SelectorScene} with Java2D, so switches can be rendered into a BufferedImage on a
+ * plain JVM, without the Android framework, for golden images and server-side previews.
+ * <p>
+ * Java2D has no shadow layer, so a shadow is drawn as a faint outline around the shape,
+ * reaching half of its shadow radius out. Images are therefore close to, but not pixel
+ * identical with, what a device draws; compare them against goldens rendered by this
+ * renderer.
+ *
+ * @see SelectorScene#draw(SelectorRenderer, int)
+ */
+
+public final class Java2DSelectorRenderer implements SelectorRenderer {
+
+    /**
+     * The font the mode's name is written in, before it is sized.
+     */
+    private static final Font MODE_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 1);
+
+    /**
+     * Stores the graphics being drawn onto.
+     */
+    private final Graphics2D graphics;
+
+    /**
+     * The knob shape whose path is kept in {@link #knobPath}.
+     */
+    private SelectorKnobShape knobShape;
+
+    /**
+     * The path of the {@link #knobShape}, about the origin.
+     */
+    private Path2D.Float knobPath;
+
+    /**
+     * Creates a renderer that draws onto the given graphics, with anti-aliasing turned on.
+     *
+     * @param graphics <tt>Graphics2D</tt> : The graphics to draw on.
+     */
+    public Java2DSelectorRenderer(Graphics2D graphics) {
+        this.graphics = graphics;
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
+                RenderingHints.VALUE_STROKE_PURE);
+    }
+
+    /**
+     * Renders the scene with the knob pointing at the given mode into a new image.
+     *
+     * @param scene <tt>SelectorScene</tt> : The scene of the switch.
+     * @param mode  <tt>int</tt> : The index of the selected mode.
+     * @return image An ARGB image of {@link SelectorScene#getWidth()} by
+     * {@link SelectorScene#getHeight()} pixels.
+     */
+    public static BufferedImage render(SelectorScene scene, int mode) {
+        BufferedImage image = new BufferedImage(scene.getWidth(), scene.getHeight(),
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            scene.draw(new Java2DSelectorRenderer(graphics), mode);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Renders every mode of the scene in parallel on the given executor.
+     *
+     * @param scene    <tt>SelectorScene</tt> : The scene of the switch.
+     * @param executor <tt>ExecutorService</tt> : The executor to render on.
+     * @return futures One future per mode, in the order of the modes.
+     * @see #render(SelectorScene, int)
+     */
+    public static List<Future<BufferedImage>> renderAll(SelectorScene scene,
+                                                        ExecutorService executor) {
+        int modeCount = scene.getModeCount();
+        List<SelectorScene> scenes = new ArrayList<>(modeCount);
+        int[] modes = new int[modeCount];
+        for (int mode = 0; mode < modeCount; mode++) {
+            scenes.add(scene);
+            modes[mode] = mode;
+        }
+        return renderAll(scenes, modes, executor);
+    }
+
+    /**
+     * Renders a batch of (scene, mode) pairs in parallel on the given executor.
+     *
+     * @param scenes   <tt>List<SelectorScene></tt> : The scenes of the switches.
+     * @param modes    <tt>int[]</tt> : The selected mode for each scene.
+     * @param executor <tt>ExecutorService</tt> : The executor to render on.
+     * @return futures One future per scene, in the order of the scenes.
+     * @see #render(SelectorScene, int)
+     */
+    public static List<Future<BufferedImage>> renderAll(List<SelectorScene> scenes, int[] modes,
+                                                        ExecutorService executor) {
+        List<Future<BufferedImage>> futures = new ArrayList<>(scenes.size());
+        for (int i = 0; i < scenes.size(); i++) {
+            final SelectorScene scene = scenes.get(i);
+            final int mode = modes[i];
+            futures.add(executor.submit(new Callable<BufferedImage>() {
+                @Override
+                public BufferedImage call() {
+                    return render(scene, mode);
+                }
+            }));
+        }
+        return futures;
+    }
+
+    @Override
+    public void drawCircle(float centerX, float centerY, float radius, int color,
+                           float shadowRadius, int shadowColor) {
+        fill(new Ellipse2D.Float(centerX - radius, centerY - radius, 2 * radius, 2 * radius),
+                color, shadowRadius, shadowColor);
+    }
+
+    @Override
+    public void drawSector(float left, float top, float right, float bottom, float startAngle,
+                           float sweepAngle, int color) {
+        // Java2D measures angles counter-clockwise, the Canvas clockwise.
+        fill(new Arc2D.Float(left, top, right - left, bottom - top, -startAngle, -sweepAngle,
+                Arc2D.PIE), color, 0, 0);
+    }
+
+    @Override
+    public void drawKnob(SelectorKnobShape shape, float pivotX, float pivotY, float angle,
+                         int color, float shadowRadius, int shadowColor) {
+        if (!shape.equals(knobShape)) {
+            knobPath = new Path2D.Float();
+            shape.appendTo(new PathSink(knobPath), 0, 0);
+            knobShape = shape;
+        }
+        AffineTransform transform = graphics.getTransform();
+        graphics.translate(pivotX, pivotY);
+        graphics.rotate(Math.toRadians(angle));
+        fill(knobPath, color, shadowRadius, shadowColor);
+        graphics.setTransform(transform);
+    }
+
+    /**
+     * Draws the knob from its shape, since there are no sprites to save work with here.
+     */
+    @Override
+    public void drawKnobSprite(SelectorKnobShape shape, float pivotX, float pivotY,
+                               float angle, int color, float shadowRadius, int shadowColor) {
+        drawKnob(shape, pivotX, pivotY, angle, color, shadowRadius, shadowColor);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY,
+                         float strokeWidth, int color) {
+        graphics.setColor(new Color(color, true));
+        graphics.setStroke(new BasicStroke(strokeWidth, BasicStroke.CAP_BUTT,
+                BasicStroke.JOIN_MITER));
+        graphics.draw(new Line2D.Float(startX, startY, stopX, stopY));
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom,
+                              float cornerRadius, int color, float shadowRadius,
+                              int shadowColor) {
+        fill(new RoundRectangle2D.Float(left, top, right - left, bottom - top,
+                2 * cornerRadius, 2 * cornerRadius), color, shadowRadius, shadowColor);
+    }
+
+    @Override
+    public float measureText(String text, float textSize) {
+        return (float) MODE_FONT.deriveFont(textSize)
+                .getStringBounds(text, graphics.getFontRenderContext()).getWidth();
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float textSize, int color) {
+        graphics.setFont(MODE_FONT.deriveFont(textSize));
+        graphics.setColor(new Color(color, true));
+        graphics.drawString(text, x, y);
+    }
+
+    @Override
+    public void setAntiAlias(boolean antiAlias) {
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antiAlias
+                ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antiAlias
+                ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+    }
+
+    /**
+     * Fills the shape, over a faint outline standing in for its shadow.
+     *
+     * @param shape        <tt>Shape</tt> : The shape to fill.
+     * @param color        <tt>int</tt> : The color of the shape.
+     * @param shadowRadius <tt>float</tt> : The radius of the shape's shadow.
+     * @param shadowColor  <tt>int</tt> : The color of the shape's shadow.
+     */
+    private void fill(Shape shape, int color, float shadowRadius, int shadowColor) {
+        if (shadowRadius > 0) {
+            int alpha = (shadowColor >>> 24) / 3;
+            graphics.setColor(new Color((alpha << 24) | (shadowColor & 0xFFFFFF), true));
+            graphics.setStroke(new BasicStroke(shadowRadius, BasicStroke.CAP_ROUND,
+                    BasicStroke.JOIN_ROUND));
+            graphics.draw(shape);
+        }
+        graphics.setColor(new Color(color, true));
+        graphics.fill(shape);
+    }
+
+    /**
+     * Replays the commands of a {@link SelectorKnobShape} into a Java2D path.
+     */
+    private static final class PathSink implements SelectorKnobShape.PathSink {
+
+        private final Path2D.Float path;
+
+        PathSink(Path2D.Float path) {
+            this.path = path;
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            path.moveTo(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            path.lineTo(x, y);
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            path.curveTo(x1, y1, x2, y2, x3, y3);
+        }
+
+        @Override
+        public void addArc(float left, float top, float right, float bottom, float startAngle,
+                           float sweepAngle) {
+            path.append(new Arc2D.Float(left, top, right - left, bottom - top, -startAngle,
+                    -sweepAngle, Arc2D.OPEN), false);
+        }
+
+        @Override
+        public void close() {
+            path.closePath();
+        }
+    }
+}
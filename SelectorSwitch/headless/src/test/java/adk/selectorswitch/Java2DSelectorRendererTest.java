@@ -0,0 +1,143 @@
+package adk.selectorswitch;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares switches rendered by {@link Java2DSelectorRenderer} against the golden images in
+ * <tt>src/test/resources/golden</tt>. The names of the modes are kept to one letter, so that
+ * differences between the fonts of two JVMs stay within the tolerance.
+ * <p>
+ * After an intended change to the look of the switch, run the tests with
+ * <tt>-DupdateGoldens</tt> to write new goldens, and check them in.
+ */
+public class Java2DSelectorRendererTest {
+
+    private static final List<String> MODES = Arrays.asList("A", "B", "C", "D");
+    private static final List<Integer> COLORS = Arrays.asList(0xFFE53935, 0xFFFDD835,
+            0xFF43A047, 0xFF1E88E5);
+
+    /**
+     * A custom knob: a triangle pointing towards negative X.
+     */
+    private static final String KNOB_PATH_DATA = "M-7 0L0-3V3z";
+
+    /**
+     * The largest difference in any channel for two pixels to count as the same.
+     */
+    private static final int CHANNEL_TOLERANCE = 8;
+
+    /**
+     * The fraction of pixels allowed to differ by more than {@link #CHANNEL_TOLERANCE}.
+     */
+    private static final float MAX_DIFFERENT_PIXELS = 0.01f;
+
+    @Test
+    public void rendersTheDefaultSwitch() throws Exception {
+        SelectorScene scene = new SelectorScene(2, 2, MODES, COLORS);
+
+        assertMatchesGolden("default_mode0.png", Java2DSelectorRenderer.render(scene, 0));
+        assertMatchesGolden("default_mode2.png", Java2DSelectorRenderer.render(scene, 2));
+    }
+
+    @Test
+    public void rendersACustomKnob() throws Exception {
+        SelectorScene scene = new SelectorScene(2, 2, MODES, COLORS,
+                SelectorKnobShape.fromPathData(KNOB_PATH_DATA), SelectorGeometry.BASE_COLOR,
+                SelectorGeometry.SHADOW_COLOR, SelectorGeometry.MODE_TEXT_COLOR);
+
+        assertMatchesGolden("custom_knob_mode1.png", Java2DSelectorRenderer.render(scene, 1));
+    }
+
+    @Test
+    public void rendersTheSameInParallel() throws IllegalSelectorException,
+            ExecutionException, InterruptedException {
+        SelectorScene scene = new SelectorScene(2, 2, MODES, COLORS);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<BufferedImage>> futures =
+                    Java2DSelectorRenderer.renderAll(scene, executor);
+            assertEquals(MODES.size(), futures.size());
+            for (int mode = 0; mode < futures.size(); mode++) {
+                assertSimilar("Mode " + mode, Java2DSelectorRenderer.render(scene, mode),
+                        futures.get(mode).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Compares the image with a golden, or writes it as the golden when updating them.
+     *
+     * @param name   <tt>String</tt> : The file name of the golden.
+     * @param actual <tt>BufferedImage</tt> : The rendered image.
+     * @throws IOException If the golden can't be read or written.
+     */
+    private static void assertMatchesGolden(String name, BufferedImage actual)
+            throws IOException {
+        if (System.getProperty("updateGoldens") != null) {
+            ImageIO.write(actual, "png", new File("src/test/resources/golden", name));
+            return;
+        }
+
+        InputStream in = Java2DSelectorRendererTest.class.getResourceAsStream("/golden/" + name);
+        assertNotNull("Missing golden " + name, in);
+        BufferedImage expected;
+        try {
+            expected = ImageIO.read(in);
+        } finally {
+            in.close();
+        }
+        assertSimilar(name, expected, actual);
+    }
+
+    /**
+     * Fails unless the images have the same size and all but {@link #MAX_DIFFERENT_PIXELS}
+     * of their pixels are within {@link #CHANNEL_TOLERANCE} of each other.
+     *
+     * @param message  <tt>String</tt> : Identifies the comparison when it fails.
+     * @param expected <tt>BufferedImage</tt> : The reference image.
+     * @param actual   <tt>BufferedImage</tt> : The rendered image.
+     */
+    private static void assertSimilar(String message, BufferedImage expected,
+                                      BufferedImage actual) {
+        assertEquals(message + " width", expected.getWidth(), actual.getWidth());
+        assertEquals(message + " height", expected.getHeight(), actual.getHeight());
+
+        int width = expected.getWidth();
+        int height = expected.getHeight();
+        int[] expectedPixels = expected.getRGB(0, 0, width, height, null, 0, width);
+        int[] actualPixels = actual.getRGB(0, 0, width, height, null, 0, width);
+
+        int different = 0;
+        for (int i = 0; i < expectedPixels.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int difference = ((expectedPixels[i] >>> shift) & 0xFF)
+                        - ((actualPixels[i] >>> shift) & 0xFF);
+                if (Math.abs(difference) > CHANNEL_TOLERANCE) {
+                    different++;
+                    break;
+                }
+            }
+        }
+        assertTrue(message + ": " + different + " of " + expectedPixels.length
+                + " pixels differ", different <= expectedPixels.length * MAX_DIFFERENT_PIXELS);
+    }
+}
@@ -0,0 +1,264 @@
+package adk.selectorswitch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests the layout of {@link SelectorScene} through the calls it makes to a renderer, with
+ * the same numbers {@link SelectorSwitch} lays itself out with.
+ */
+public class SelectorSceneTest {
+
+    private static final float DELTA = 1e-4f;
+
+    private static final List<String> MODES = Arrays.asList("OFF", "LOW", "HIGH");
+    private static final List<Integer> COLORS = Arrays.asList(0xFFFF0000, 0xFF00FF00,
+            0xFF0000FF);
+
+    @Test
+    public void laysOutTheSwitchLikeTheView() throws IllegalSelectorException {
+        SelectorScene scene = new SelectorScene(1.5f, 1.5f, MODES, COLORS);
+
+        // space = 18px, base radius = 48px, mode's base padding = 6px and height = 24px.
+        assertEquals(18 + 96 + 18, scene.getWidth());
+        assertEquals(18 + 96 + 6 + 24 + 6 + 18, scene.getHeight());
+        assertEquals(120, scene.getModeSweepingAngle(), DELTA);
+    }
+
+    @Test
+    public void drawsTheBaseTheDialTheKnobAndTheName() throws IllegalSelectorException {
+        SelectorScene scene = new SelectorScene(1, 1, MODES, COLORS);
+        Recorder renderer = new Recorder();
+        scene.draw(renderer, 1);
+
+        assertEquals(Arrays.asList("circle", "sector", "sector", "sector", "knob",
+                "roundRect", "text"), renderer.calls);
+
+        // The base about the center, with a shadow.
+        float center = 12 + 32;
+        assertArrayEquals(new float[]{center, center, 32, 0xFFFFFFFF, 2, 0xFF444444},
+                renderer.arguments.get(0));
+
+        // Mode i starts at (i + 1) sweeping angles, like SelectorUtil.generateStartingAngles.
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(new float[]{center - 28, center - 28, center + 28, center + 28,
+                    (i + 1) * 120, 120, COLORS.get(i)}, renderer.arguments.get(1 + i));
+        }
+
+        // The knob points at the selected mode.
+        assertEquals(120, renderer.arguments.get(4)[2], DELTA);
+
+        // The name is centered under the switch, on its base.
+        float[] base = renderer.arguments.get(5);
+        float[] text = renderer.arguments.get(6);
+        assertEquals(center, (base[0] + base[2]) / 2, DELTA);
+        assertEquals(center - Recorder.textWidth("LOW", 12) / 2, text[0], DELTA);
+        assertEquals(12, text[2], DELTA);
+    }
+
+    @Test
+    public void drawsFramesOfTheKnobAtAnyAngle() throws IllegalSelectorException {
+        Recorder renderer = new Recorder();
+        new SelectorScene(1, 1, MODES, COLORS).draw(renderer, 2, 200);
+
+        assertEquals(200, renderer.arguments.get(4)[2], DELTA);
+    }
+
+    @Test
+    public void scalesCustomKnobsLikeTheView() throws IllegalSelectorException {
+        SelectorKnobShape shape = SelectorKnobShape.fromPathData("M-7 0L0-3V3z");
+        Recorder renderer = new Recorder();
+        new SelectorScene(1.5f, 1.5f, MODES, COLORS, shape, 0xFFFFFFFF, 0xFF444444,
+                0xFF000000).draw(renderer, 0);
+
+        // Three pixels per DP, as for every other dimension.
+        assertEquals(shape.scaledBy(3), renderer.knobShape);
+        assertNotEquals(SelectorKnobShape.createDefault(1.5f), renderer.knobShape);
+    }
+
+    @Test
+    public void dropsTheShadowsBelowFullDetail() throws IllegalSelectorException {
+        Recorder renderer = new Recorder();
+        new SelectorScene(1, 1, MODES, COLORS).draw(renderer, new SelectorScene.Frame()
+                .setLevelOfDetail(SelectorScene.LOD_REDUCED));
+
+        assertEquals(Arrays.asList("circle", "sector", "sector", "sector", "knob",
+                "roundRect", "text"), renderer.calls);
+        assertEquals(0, renderer.arguments.get(0)[4], DELTA);
+        assertEquals(0, renderer.arguments.get(4)[4], DELTA);
+        assertEquals(0, renderer.arguments.get(5)[6], DELTA);
+    }
+
+    @Test
+    public void drawsALineForTheKnobAtMinimalDetail() throws IllegalSelectorException {
+        Recorder renderer = new Recorder();
+        new SelectorScene(1, 1, MODES, COLORS).draw(renderer, new SelectorScene.Frame()
+                .setMode(1)
+                .setKnobAngle(90)
+                .setLevelOfDetail(SelectorScene.LOD_MINIMAL));
+
+        // No anti-aliasing, no shadows and no mode's name.
+        assertEquals(Arrays.asList("antiAlias", "circle", "sector", "sector", "sector",
+                "line", "antiAlias"), renderer.calls);
+        assertArrayEquals(new float[]{0}, renderer.arguments.get(0));
+        assertEquals(0, renderer.arguments.get(1)[4], DELTA);
+        assertArrayEquals(new float[]{1}, renderer.arguments.get(6));
+
+        // Three quarters of the dial's radius, pointing where the knob would.
+        float center = 12 + 32;
+        assertArrayEquals(new float[]{center, center, center, center - 21, 2, 0xFFFFFFFF},
+                renderer.arguments.get(5));
+    }
+
+    @Test
+    public void drawsOnlyTheLayersOfTheFrame() throws IllegalSelectorException {
+        SelectorScene scene = new SelectorScene(1, 1, MODES, COLORS);
+        Recorder dial = new Recorder();
+        scene.draw(dial, new SelectorScene.Frame().setLayers(SelectorScene.LAYER_DIAL));
+        Recorder knob = new Recorder();
+        scene.draw(knob, new SelectorScene.Frame().setLayers(SelectorScene.LAYER_KNOB));
+
+        assertEquals(Arrays.asList("circle", "sector", "sector", "sector"), dial.calls);
+        assertEquals(Arrays.asList("knob", "roundRect", "text"), knob.calls);
+    }
+
+    @Test
+    public void drawsTheKnobFromASprite() throws IllegalSelectorException {
+        Recorder renderer = new Recorder();
+        new SelectorScene(1, 1, MODES, COLORS).draw(renderer, new SelectorScene.Frame()
+                .setKnobAngle(240)
+                .setKnobSprite(true)
+                .setLayers(SelectorScene.LAYER_KNOB));
+
+        assertEquals(Arrays.asList("sprite", "roundRect", "text"), renderer.calls);
+        assertEquals(240, renderer.arguments.get(0)[2], DELTA);
+    }
+
+    @Test
+    public void drawsTheSectorsOfTheFramesDial() throws IllegalSelectorException {
+        // Half way through a fade of the second mode, with a sector on its way in.
+        SelectorScene.Dial fading = new SelectorScene.Dial() {
+            @Override
+            public int getSectorCount() {
+                return 4;
+            }
+
+            @Override
+            public float getSectorStartingAngle(int sector) {
+                return sector * 90;
+            }
+
+            @Override
+            public float getSectorSweepingAngle(int sector) {
+                return 90;
+            }
+
+            @Override
+            public int getSectorColor(int sector) {
+                return sector == 1 ? 0xFF808080 : COLORS.get(Math.min(sector, 2));
+            }
+        };
+        Recorder renderer = new Recorder();
+        new SelectorScene(1, 1, MODES, COLORS).draw(renderer, new SelectorScene.Frame()
+                .setDial(fading)
+                .setLayers(SelectorScene.LAYER_DIAL));
+
+        assertEquals(5, renderer.calls.size());
+        for (int i = 0; i < 4; i++) {
+            float[] sector = renderer.arguments.get(1 + i);
+            assertEquals(i * 90, sector[4], DELTA);
+            assertEquals(90, sector[5], DELTA);
+            assertEquals(fading.getSectorColor(i), (int) sector[6]);
+        }
+    }
+
+    @Test(expected = IllegalSelectorException.class)
+    public void rejectsUnequalModesAndColors() throws IllegalSelectorException {
+        new SelectorScene(1, 1, MODES, COLORS.subList(0, 2));
+    }
+
+    private static void assertArrayEquals(float[] expected, float[] actual) {
+        org.junit.Assert.assertArrayEquals(expected, actual, DELTA);
+    }
+
+    /**
+     * Records the calls made to it, with text a fixed width per character.
+     */
+    private static final class Recorder implements SelectorRenderer {
+
+        private final List<String> calls = new ArrayList<>();
+        private final List<float[]> arguments = new ArrayList<>();
+        private SelectorKnobShape knobShape;
+
+        static float textWidth(String text, float textSize) {
+            return text.length() * textSize / 2;
+        }
+
+        @Override
+        public void drawCircle(float centerX, float centerY, float radius, int color,
+                               float shadowRadius, int shadowColor) {
+            add("circle", centerX, centerY, radius, color, shadowRadius, shadowColor);
+        }
+
+        @Override
+        public void drawSector(float left, float top, float right, float bottom,
+                               float startAngle, float sweepAngle, int color) {
+            add("sector", left, top, right, bottom, startAngle, sweepAngle, color);
+        }
+
+        @Override
+        public void drawKnob(SelectorKnobShape shape, float pivotX, float pivotY, float angle,
+                             int color, float shadowRadius, int shadowColor) {
+            knobShape = shape;
+            add("knob", pivotX, pivotY, angle, color, shadowRadius, shadowColor);
+        }
+
+        @Override
+        public void drawKnobSprite(SelectorKnobShape shape, float pivotX, float pivotY,
+                                   float angle, int color, float shadowRadius,
+                                   int shadowColor) {
+            knobShape = shape;
+            add("sprite", pivotX, pivotY, angle, color, shadowRadius, shadowColor);
+        }
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY,
+                             float strokeWidth, int color) {
+            add("line", startX, startY, stopX, stopY, strokeWidth, color);
+        }
+
+        @Override
+        public void drawRoundRect(float left, float top, float right, float bottom,
+                                  float cornerRadius, int color, float shadowRadius,
+                                  int shadowColor) {
+            add("roundRect", left, top, right, bottom, cornerRadius, color, shadowRadius,
+                    shadowColor);
+        }
+
+        @Override
+        public float measureText(String text, float textSize) {
+            return textWidth(text, textSize);
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, float textSize, int color) {
+            add("text", x, y, textSize, color);
+        }
+
+        @Override
+        public void setAntiAlias(boolean antiAlias) {
+            add("antiAlias", antiAlias ? 1 : 0);
+        }
+
+        private void add(String call, float... values) {
+            calls.add(call);
+            arguments.add(values);
+        }
+    }
+}